@@ -0,0 +1,247 @@
+package io.frictionlessdata.datapackage;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.tabledatasource.TableDataSource;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Read access to the entries of a ZIP-based Package. The archive is opened once and its entries are
+ * indexed in a hash map, so looking up the descriptor, schemas, dialects, data files and the image
+ * does not open the archive and walk its central directory again for every file.
+ *
+ * The ZipFile is opened on first access and stays open until the session is closed, handed-out entry
+ * streams stay valid until then. After {@link #close()}, the session cannot be used anymore.
+ *
+ * Data files are handed to the table layer as extracted temporary files (see {@link #extractToFile(String, Charset)}),
+ * so tables stream their rows from disk instead of holding the whole entry in memory. The temporary files
+ * are deleted on {@link #close()}, or on JVM exit at the latest.
+ */
+public class ArchiveSession implements Closeable {
+    private final Path archivePath;
+    private ZipFile zipFile;
+    private Map<String, ZipEntry> entries;
+    private List<String> directories;
+    private Path extractDir;
+    private final Map<String, FutureTask<File>> extractions = new HashMap<>();
+    private boolean closed = false;
+
+    public ArchiveSession(Path archivePath) {
+        this.archivePath = archivePath;
+    }
+
+    public Path getArchivePath() {
+        return archivePath;
+    }
+
+    /**
+     * Look for the `fileName` entry. If it is not on the top-level, look into the directories
+     * of the archive and look again for the `fileName` entry there.
+     * @param fileName name of the entry we are looking for
+     * @return ZipEntry if found, null otherwise
+     * @throws IOException if the archive cannot be opened
+     */
+    public synchronized ZipEntry findEntry(String fileName) throws IOException {
+        ensureOpen();
+        ZipEntry entry = entries.get(fileName);
+        if (null != entry)
+            return entry;
+        for (String directory : directories) {
+            entry = entries.get(directory + fileName);
+            if (null != entry)
+                return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Open a stream over the `fileName` entry. The stream stays valid until this session is closed;
+     * callers must close it when done.
+     * @param fileName name of the entry to read
+     * @return stream over the uncompressed entry content
+     * @throws IOException if the entry cannot be read
+     * @throws DataPackageException if there is no such entry
+     */
+    public synchronized InputStream getInputStream(String fileName) throws IOException {
+        ZipEntry entry = findEntry(fileName);
+
+        // Throw exception if expected file not found.
+        if (entry == null) {
+            throw new DataPackageException("The zip file does not contain the expected file: " + fileName);
+        }
+        return zipFile.getInputStream(entry);
+    }
+
+    public String getContentAsString(String fileName) throws IOException {
+        return JSONBase.getFileContentAsString(getInputStream(fileName));
+    }
+
+    public byte[] getContentAsByteArray(String fileName) throws IOException {
+        long size;
+        InputStream inputStream;
+        synchronized (this) {
+            ZipEntry entry = findEntry(fileName);
+            size = (null != entry) ? entry.getSize() : -1;
+            inputStream = getInputStream(fileName);
+        }
+        try (InputStream in = inputStream) {
+            return JSONBase.getContentAsByteArray(in, size);
+        }
+    }
+
+    /**
+     * Extract the `fileName` entry to a temporary file that tables can stream from. The entry is decoded
+     * with `encoding` and written in the default encoding of the table layer, without ever holding
+     * more than a buffer of the entry in memory. Entries are only extracted once per session.
+     *
+     * The session is only locked to look up and open the entry, so extracting a large entry doesn't
+     * block reads of other entries. Concurrent calls for the same entry wait for the first extraction.
+     *
+     * @param fileName name of the entry to extract
+     * @param encoding the character encoding of the entry, null for the table layer default
+     * @return the extracted file
+     * @throws IOException if the entry cannot be read or written
+     * @throws DataPackageException if there is no such entry
+     */
+    public File extractToFile(String fileName, Charset encoding) throws IOException {
+        Charset targetEncoding = TableDataSource.getDefaultEncoding();
+        Charset sourceEncoding = (null != encoding) ? encoding : targetEncoding;
+        String key = sourceEncoding.name() + ":" + fileName;
+        FutureTask<File> extraction;
+        boolean extractHere = false;
+        synchronized (this) {
+            extraction = extractions.get(key);
+            if (null == extraction) {
+                if (null == extractDir) {
+                    ensureOpen();
+                    extractDir = Files.createTempDirectory("datapackage-archive-");
+                    extractDir.toFile().deleteOnExit();
+                }
+                // don't use the entry name as file name, it could contain path elements
+                String suffix = "";
+                int dotPos = fileName.lastIndexOf('.');
+                if ((dotPos > fileName.lastIndexOf('/')) && (dotPos > -1)) {
+                    suffix = fileName.substring(dotPos);
+                }
+                Path target = extractDir.resolve("entry-" + extractions.size() + suffix);
+                InputStream in = getInputStream(fileName);
+                extraction = new FutureTask<>(() -> extract(in, sourceEncoding, targetEncoding, target));
+                extractions.put(key, extraction);
+                extractHere = true;
+            }
+        }
+        if (extractHere) {
+            extraction.run();
+        }
+        try {
+            return extraction.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting " + fileName);
+        } catch (ExecutionException ex) {
+            synchronized (this) {
+                extractions.remove(key, extraction);
+            }
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new DataPackageException(cause);
+        }
+    }
+
+    private static File extract(InputStream entryStream, Charset sourceEncoding, Charset targetEncoding, Path target)
+            throws IOException {
+        try (InputStream in = entryStream) {
+            if (sourceEncoding.equals(targetEncoding)) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                try (Reader reader = new InputStreamReader(in, sourceEncoding);
+                     Writer writer = Files.newBufferedWriter(target, targetEncoding)) {
+                    char[] buffer = new char[8192];
+                    for (int n; (n = reader.read(buffer)) != -1; ) {
+                        writer.write(buffer, 0, n);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(target);
+            throw ex;
+        }
+        File extracted = target.toFile();
+        extracted.deleteOnExit();
+        return extracted;
+    }
+
+    /**
+     * Close the archive and delete the files extracted from it. The session cannot be used anymore.
+     * @throws IOException if closing the ZipFile or deleting the files fails
+     */
+    @Override
+    public void close() throws IOException {
+        List<FutureTask<File>> started;
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            if (null != zipFile) {
+                zipFile.close();
+                zipFile = null;
+            }
+            started = new ArrayList<>(extractions.values());
+            extractions.clear();
+        }
+        for (FutureTask<File> extraction : started) {
+            try {
+                // extractions still running fail because the ZipFile is closed and remove their file
+                Files.deleteIfExists(extraction.get().toPath());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                // nothing was extracted
+            }
+        }
+        if (null != extractDir) {
+            Files.deleteIfExists(extractDir);
+            extractDir = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new DataPackageException("Archive " + archivePath + " is already closed");
+        }
+        if (null != zipFile)
+            return;
+        zipFile = new ZipFile(archivePath.toFile());
+        if (null == entries) {
+            Map<String, ZipEntry> index = new HashMap<>(Math.max(16, zipFile.size() * 4 / 3 + 1));
+            List<String> dirs = new ArrayList<>();
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                index.put(zipEntry.getName(), zipEntry);
+                if (zipEntry.isDirectory()) {
+                    dirs.add(zipEntry.getName());
+                }
+            }
+            entries = index;
+            directories = dirs;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package io.frictionlessdata.datapackage;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
@@ -19,17 +22,18 @@ import io.frictionlessdata.tableschema.util.JsonUtil;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Enumeration;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import static io.frictionlessdata.datapackage.Validator.isValidUrl;
 
@@ -51,6 +55,19 @@ public abstract class JSONBase {
     public static final String JSON_KEY_DIALECT = "dialect";
     public static final String JSON_KEY_SOURCES = "sources";
     public static final String JSON_KEY_LICENSES = "licenses";
+    public static final String JSON_KEY_STATISTICS = "statistics";
+
+    // some VMs reserve header words in an array
+    static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    static final int COPY_BUFFER_SIZE = 8192;
+    static final int MAX_INITIAL_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Mapper used for reading descriptors token by token. Floating point numbers are read as BigDecimal
+     * so custom properties keep their precision.
+     */
+    static final ObjectMapper DESCRIPTOR_MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
 
     /**
      * If true, we are reading from an archive format, eg. ZIP
@@ -199,6 +216,23 @@ public abstract class JSONBase {
 
     public static Schema buildSchema(JsonNode resourceJson, Object basePath, boolean isArchivePackage)
             throws Exception {
+        if (!isArchivePackage)
+            return buildSchema(resourceJson, basePath, (ArchiveSession) null);
+        try (ArchiveSession archive = new ArchiveSession((Path) basePath)) {
+            return buildSchema(resourceJson, basePath, archive);
+        }
+    }
+
+    /**
+     * Build the Schema of a Resource or Package, dereferencing it if necessary.
+     * @param resourceJson the descriptor JSON holding a `schema` property
+     * @param basePath base directory, ZIP file or URL to resolve relative references against
+     * @param archive open archive of a ZIP-based Package, null otherwise
+     * @return the Schema or null if there is none
+     * @throws Exception if dereferencing or parsing the Schema fails
+     */
+    public static Schema buildSchema(JsonNode resourceJson, Object basePath, ArchiveSession archive)
+            throws Exception {
         FileReference ref = referenceFromJson(resourceJson, JSON_KEY_SCHEMA, basePath);
         if (null != ref) {
             return Schema.fromJson(ref, true);
@@ -208,11 +242,28 @@ public abstract class JSONBase {
                 : null;
         if (null == schemaObj)
             return null;
-        return Schema.fromJson(dereference(schemaObj, basePath, isArchivePackage).toString(), true);
+        return Schema.fromJson(dereference(schemaObj, basePath, archive).toString(), true);
     }
 
     public static Dialect buildDialect (JsonNode resourceJson, Object basePath, boolean isArchivePackage)
             throws Exception {
+        if (!isArchivePackage)
+            return buildDialect(resourceJson, basePath, (ArchiveSession) null);
+        try (ArchiveSession archive = new ArchiveSession((Path) basePath)) {
+            return buildDialect(resourceJson, basePath, archive);
+        }
+    }
+
+    /**
+     * Build the Dialect of a Resource, dereferencing it if necessary.
+     * @param resourceJson the descriptor JSON holding a `dialect` property
+     * @param basePath base directory, ZIP file or URL to resolve relative references against
+     * @param archive open archive of a ZIP-based Package, null otherwise
+     * @return the Dialect or null if there is none
+     * @throws Exception if dereferencing or parsing the Dialect fails
+     */
+    public static Dialect buildDialect (JsonNode resourceJson, Object basePath, ArchiveSession archive)
+            throws Exception {
         FileReference ref = referenceFromJson(resourceJson, JSON_KEY_DIALECT, basePath);
         if (null != ref) {
             return Dialect.fromJson(ref);
@@ -222,7 +273,7 @@ public abstract class JSONBase {
                 : null;
         if (null == dialectObj)
             return null;
-        return Dialect.fromJson(dereference(dialectObj, basePath, isArchivePackage).toString());
+        return Dialect.fromJson(dereference(dialectObj, basePath, archive).toString());
     }
 
     private static FileReference referenceFromJson(JsonNode resourceJson, String key, Object basePath)
@@ -333,76 +384,161 @@ public abstract class JSONBase {
     }
 
     /**
-     * Take a ZipFile and look for the `filename` entry. If it is not on the top-level,
-     * look for directories and go into them (but only one level deep) and look again
-     * for the `filename` entry
-     * @param zipFile the ZipFile to use for looking for the `filename` entry
-     * @param fileName name of the entry we are looking for
-     * @return ZipEntry if found, null otherwise
+     * Read a stream into a byte array using a bulk buffer. If the size of the content is known
+     * (eg. from the `bytes` property or the ZIP entry), the buffer grows towards that size, so
+     * a correct hint saves copying the content around. The hint is not trusted for the first
+     * allocation though, which is capped at {@link #MAX_INITIAL_BUFFER_SIZE}; a wrong size hint
+     * is not an error.
+     * @param stream the stream to read from, is not closed
+     * @param sizeHint expected number of bytes, or a negative number if unknown
+     * @return the stream content
+     * @throws IOException if reading fails
      */
-    private static ZipEntry findZipEntry(ZipFile zipFile, String fileName) {
-        ZipEntry entry = zipFile.getEntry(fileName);
-        if (null != entry)
-            return entry;
-        else {
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry zipEntry = entries.nextElement();
-                if (zipEntry.isDirectory()) {
-                    entry = zipFile.getEntry(zipEntry.getName()+fileName);
-                    if (null != entry)
-                        return entry;
+    protected static byte[] getContentAsByteArray(InputStream stream, long sizeHint) throws IOException {
+        byte[] buffer = new byte[(sizeHint > 0)
+                ? (int) Math.min(sizeHint, MAX_INITIAL_BUFFER_SIZE)
+                : COPY_BUFFER_SIZE];
+        int count = 0;
+        while (true) {
+            if (count == buffer.length) {
+                // don't grow the buffer if it already holds the whole content
+                int next = stream.read();
+                if (next == -1)
+                    return buffer;
+                if (buffer.length == MAX_ARRAY_SIZE)
+                    throw new DataPackageException("Content is too large for a byte array");
+                long length = (long) buffer.length * 2;
+                if ((sizeHint > buffer.length) && (sizeHint < length)) {
+                    length = sizeHint;
                 }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(MAX_ARRAY_SIZE, length));
+                buffer[count++] = (byte) next;
             }
+            int n = stream.read(buffer, count, buffer.length - count);
+            if (n == -1)
+                break;
+            count += n;
         }
-        return null;
+        return (count == buffer.length) ? buffer : Arrays.copyOf(buffer, count);
     }
 
-    protected static String getZipFileContentAsString(Path inFilePath, String fileName) throws IOException {
-        // Read in memory the file inside the zip.
-        ZipFile zipFile = new ZipFile(inFilePath.toFile());
-        ZipEntry entry = findZipEntry(zipFile, fileName);
+    /**
+     * Read a local file into a byte array through a FileChannel, allocating the array
+     * with the size of the file.
+     * @param filePath the file to read from
+     * @return the file content
+     * @throws IOException if reading fails
+     */
+    protected static byte[] getFileContentAsByteArray(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAX_ARRAY_SIZE)
+                throw new DataPackageException("File " + filePath + " is too large for a byte array");
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1)
+                    break;
+            }
+            return (buffer.position() == buffer.capacity())
+                    ? buffer.array()
+                    : Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
 
-        // Throw exception if expected datapackage.json file not found.
-        if(entry == null){
-            throw new DataPackageException("The zip file does not contain the expected file: " + fileName);
+    /**
+     * Open a URL for streaming. Maps a missing remote file to a {@link DataPackageValidationException}
+     * the same way {@link #getFileContentAsString(URL)} does.
+     * @param url the URL to read from
+     * @return an unbuffered stream, caller must close it
+     */
+    static InputStream getFileContentAsStream(URL url) {
+        try {
+            return url.openStream();
+        } catch (Exception ex) {
+            if (ex instanceof FileNotFoundException)
+                throw new DataPackageValidationException(ex.getMessage(), ex);
+            throw new DataPackageException(ex);
         }
+    }
 
-        String content;
-        // Read the datapackage.json file inside the zip
-        try (InputStream stream = zipFile.getInputStream(entry)) {
-            content = getFileContentAsString(stream);
+    /**
+     * Open a local file for streaming. Maps a missing file to a {@link DataPackageFileOrUrlNotFoundException}
+     * the same way {@link #getFileContentAsString(Path)} does.
+     * @param filePath the file to read from
+     * @return an unbuffered stream, caller must close it
+     */
+    static InputStream getFileContentAsStream(Path filePath) {
+        try {
+            return Files.newInputStream(filePath);
+        } catch (Exception ex) {
+            if ((ex instanceof NoSuchFileException
+                    || (ex instanceof FileNotFoundException))) {
+                throw new DataPackageFileOrUrlNotFoundException(ex);
+            }
+            throw new DataPackageException(ex);
         }
-        zipFile.close();
-        return content;
     }
 
-    protected static byte[] getZipFileContentAsByteArray(Path inFilePath, String fileName) throws IOException {
-        // Read in memory the file inside the zip.
-        ZipFile zipFile = new ZipFile(inFilePath.toFile());
-        ZipEntry entry = findZipEntry(zipFile, fileName);
+    /**
+     * Create a streaming parser over a descriptor. Unlike {@link #createNode(String)}, this neither
+     * needs the descriptor as a String nor builds the full tree, so callers can pick it apart
+     * one property at a time. Closing the parser closes the stream.
+     * @param stream the descriptor content, must be JSON
+     * @return a parser positioned before the first token
+     * @throws IOException if the parser cannot be created
+     */
+    static JsonParser createDescriptorParser(InputStream stream) throws IOException {
+        return DESCRIPTOR_MAPPER.getFactory().createParser(stream);
+    }
+
+    static JsonParser createDescriptorParser(String json) throws IOException {
+        return DESCRIPTOR_MAPPER.getFactory().createParser(json);
+    }
+
+    /**
+     * Read the JSON value at the current token of `parser` into a tree, leaving the parser on
+     * the last token of the value.
+     * @param parser the parser, positioned on the first token of a value
+     * @return the value as a JsonNode
+     * @throws IOException if reading fails
+     */
+    static JsonNode readValueAsNode(JsonParser parser) throws IOException {
+        JsonNode node = DESCRIPTOR_MAPPER.readTree(parser);
+        if (null == node)
+            return DESCRIPTOR_MAPPER.getNodeFactory().nullNode();
+        return node;
+    }
 
-        // Throw exception if expected datapackage.json file not found.
-        if(entry == null){
-            throw new DataPackageException("The zip file does not contain the expected file: " + fileName);
+    protected static String getZipFileContentAsString(Path inFilePath, String fileName) throws IOException {
+        // Read in memory the file inside the zip.
+        try (ArchiveSession archive = new ArchiveSession(inFilePath)) {
+            return archive.getContentAsString(fileName);
         }
-        try (InputStream inputStream = zipFile.getInputStream(entry);
-             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            for (int b; (b = inputStream.read()) != -1; ) {
-                out.write(b);
-            }
-            return out.toByteArray();
+    }
+
+    protected static byte[] getZipFileContentAsByteArray(Path inFilePath, String fileName) throws IOException {
+        // Read in memory the file inside the zip.
+        try (ArchiveSession archive = new ArchiveSession(inFilePath)) {
+            return archive.getContentAsByteArray(fileName);
         }
     }
 
     public static ObjectNode dereference(File fileObj, Path basePath, boolean isArchivePackage) throws IOException {
+        if (!isArchivePackage)
+            return dereference(fileObj, basePath, (ArchiveSession) null);
+        try (ArchiveSession archive = new ArchiveSession(basePath)) {
+            return dereference(fileObj, basePath, archive);
+        }
+    }
+
+    public static ObjectNode dereference(File fileObj, Path basePath, ArchiveSession archive) throws IOException {
         String jsonContentString;
-        if (isArchivePackage) {
+        if (null != archive) {
             String filePath = fileObj.getPath();
             if (File.separator.equals("\\")) {
                 filePath = filePath.replaceAll("\\\\", "/");
             }
-            jsonContentString = getZipFileContentAsString(basePath, filePath);
+            jsonContentString = archive.getContentAsString(filePath);
         } else {
             /* If reference is file path.
                from the spec: "SECURITY: / (absolute path) and ../ (relative parent path)
@@ -452,6 +588,14 @@ public abstract class JSONBase {
     }
 
     public static ObjectNode dereference(Object obj, Object basePath, boolean isArchivePackage) throws IOException {
+        if (!isArchivePackage)
+            return dereference(obj, basePath, (ArchiveSession) null);
+        try (ArchiveSession archive = new ArchiveSession((Path) basePath)) {
+            return dereference(obj, basePath, archive);
+        }
+    }
+
+    public static ObjectNode dereference(Object obj, Object basePath, ArchiveSession archive) throws IOException {
         if (null == obj)
             return null;
         // Object is already a dereferenced object.
@@ -459,7 +603,7 @@ public abstract class JSONBase {
             // Don't need to do anything, just cast and return.
             return (ObjectNode)obj;
         } else if (obj instanceof TextNode) {
-        	return dereference(((TextNode) obj).asText(), basePath, isArchivePackage);
+        	return dereference(((TextNode) obj).asText(), basePath, archive);
         } else if(obj instanceof String){
             String reference = (String)obj;
             if (isValidUrl(reference))
@@ -474,7 +618,7 @@ public abstract class JSONBase {
             else if (basePath instanceof URL) {
                 return dereference(reference, (URL) basePath);
             } else
-                return dereference(new File(reference), (Path)basePath, isArchivePackage);
+                return dereference(new File(reference), (Path)basePath, archive);
         }
 
         return null;
@@ -4,6 +4,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -13,8 +17,12 @@ import io.frictionlessdata.datapackage.exceptions.DataPackageFileOrUrlNotFoundEx
 import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
 import io.frictionlessdata.datapackage.resource.AbstractDataResource;
 import io.frictionlessdata.datapackage.resource.AbstractReferencebasedResource;
+import io.frictionlessdata.datapackage.resource.AbstractResource;
+import io.frictionlessdata.datapackage.resource.Join;
+import io.frictionlessdata.datapackage.resource.RelationEngine;
+import io.frictionlessdata.datapackage.resource.ValidationEngine;
+import io.frictionlessdata.datapackage.resource.ValidationReport;
 import io.frictionlessdata.datapackage.resource.Resource;
-import io.frictionlessdata.tableschema.exception.JsonParsingException;
 import io.frictionlessdata.tableschema.exception.ValidationException;
 import io.frictionlessdata.tableschema.io.LocalFileReference;
 import io.frictionlessdata.tableschema.schema.Schema;
@@ -35,6 +43,7 @@ import java.nio.file.FileSystem;
 import java.nio.file.*;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -46,7 +55,7 @@ import static io.frictionlessdata.datapackage.Validator.isValidUrl;
  * https://specs.frictionlessdata.io/data-package
  */
 @JsonInclude(value = Include.NON_EMPTY, content = Include.NON_EMPTY )
-public class Package extends JSONBase{
+public class Package extends JSONBase implements Closeable {
     public  static final String DATAPACKAGE_FILENAME = "datapackage.json";
     private static final String JSON_KEY_RESOURCES = "resources";
     private static final String JSON_KEY_ID = "id";
@@ -78,8 +87,16 @@ public class Package extends JSONBase{
     
     private ObjectNode jsonObject = JsonUtil.getInstance().createNode();
     private boolean strictValidation = false;
-    private final List<Resource> resources = new ArrayList<>();
+    private ArchiveSession archive = null;
+    private Executor loadExecutor = null;
+    private boolean writeRowIndex = false;
+    // Resources in insertion order, plus an index by lower-cased name for lookups and duplicate checks.
+    // Lenient Packages can hold more than one Resource with the same name.
+    private final Set<Resource> resources = new LinkedHashSet<>();
+    private final Map<String, List<Resource>> resourceIndex = new HashMap<>();
     private final List<DataPackageValidationException> errors = new ArrayList<>();
+    // resolves foreign keys between the Resources, caches the indexes of referenced fields
+    private final RelationEngine relationEngine = new RelationEngine(this::getResource);
 
     /**
      * Create a new DataPackage and initialize with a number of Resources.
@@ -116,16 +133,34 @@ public class Package extends JSONBase{
      * @throws DataPackageException thrown if constructing the Descriptor fails
      */
     public Package(String jsonStringSource, Path basePath, boolean strict) throws Exception {
+        this(jsonStringSource, basePath, strict, null);
+    }
+
+    /**
+     * Load from String representation of JSON object, building the Resources in parallel.
+     * See {@link #Package(String, Path, boolean)} for details on the `basePath`.
+     *
+     * Each Resource is built and validated as a task on `loadExecutor`, which means dereferencing
+     * Schemas and Dialects from files or URLs happens concurrently. The Resources end up in
+     * the order of the descriptor, and errors are reported as in sequential loading: in strict mode,
+     * the error of the first failing Resource is thrown, otherwise all errors are collected.
+     *
+     * @param jsonStringSource the String representation of the Descriptor JSON object
+     * @param strict whether to use strict schema parsing
+     * @param loadExecutor Executor to build the Resources on, null to build them on the calling thread
+     * @throws IOException thrown if I/O operations fail
+     * @throws DataPackageException thrown if constructing the Descriptor fails
+     */
+    public Package(String jsonStringSource, Path basePath, boolean strict, Executor loadExecutor) throws Exception {
         this.strictValidation = strict;
+        this.loadExecutor = loadExecutor;
         if (null == basePath)
             throw new DataPackageException("basePath cannot be null for JSON-based DataPackages ");
         this.basePath = basePath;
 
-    	// Create and set the JsonNode for the String representation of descriptor JSON object.
-        try {
-            this.setJson((ObjectNode) JsonUtil.getInstance().createNode(jsonStringSource));
-        } catch(JsonParsingException ex) {
-            throw new DataPackageException(ex.getMessage(), ex);
+    	// Read the descriptor JSON object token by token
+        try (JsonParser parser = createDescriptorParser(jsonStringSource)) {
+            this.setJson(parser);
         }
 
     }
@@ -148,18 +183,35 @@ public class Package extends JSONBase{
      * @throws DataPackageException thrown if constructing the Descriptor fails
      */
     public Package(URL urlSource, boolean strict) throws Exception {
+        this(urlSource, strict, null);
+    }
+
+    /**
+     * Load from URL, building the Resources in parallel. Useful for catalogs with many Resources
+     * whose Schemas and Dialects need to be fetched from remote URLs.
+     * See {@link #Package(URL, boolean)} for details on URL loading and
+     * {@link #Package(String, Path, boolean, Executor)} for details on parallel loading.
+     *
+     * @param urlSource The URL that points to the DataPackage Descriptor (if it's in
+     *                  a directory on the server) or the ZIP file if it's a ZIP-based
+     *                  package.
+     * @param strict whether to use strict schema parsing
+     * @param loadExecutor Executor to build the Resources on, null to build them on the calling thread
+     *
+     * @throws IOException thrown if I/O operations fail
+     * @throws DataPackageException thrown if constructing the Descriptor fails
+     */
+    public Package(URL urlSource, boolean strict, Executor loadExecutor) throws Exception {
         this.strictValidation = strict;
+        this.loadExecutor = loadExecutor;
         this.basePath = getParentUrl(urlSource);
 
         if (!isValidUrl(urlSource.toExternalForm())) {
             throw new DataPackageException("URL form not valid: "+urlSource.toExternalForm());
         }
-        // Get string content of given remove file.
-        String jsonString = getFileContentAsString(urlSource);
-
-        // Create JsonNode and validate.
-        try {
-        	this.setJson((ObjectNode) createNode(jsonString));
+        // Open a stream over the given remote file and read the descriptor from it.
+        try (JsonParser parser = createDescriptorParser(getFileContentAsStream(urlSource))) {
+        	this.setJson(parser);
         } catch (DataPackageException ex) {
         	if (strict) {
         		throw ex;
@@ -185,6 +237,9 @@ public class Package extends JSONBase{
      * Security: local file path-based Packages can load Resources as JSON strings, from
      * local files below the basePath or from URLs
      *
+     * ZIP-based Packages keep one handle on the archive open for all Resource reads, call
+     * {@link #close()} to release it.
+     *
      * @param descriptorFile local file path that points to the DataPackage Descriptor (if it's in
      *                  a local directory) or the ZIP file if it's a ZIP-based
      *                  package or to the parent directory
@@ -194,37 +249,135 @@ public class Package extends JSONBase{
      * @throws DataPackageException thrown if constructing the Descriptor fails
      */
     public Package(Path descriptorFile, boolean strict) throws Exception {
+        this(descriptorFile, strict, null);
+    }
+
+    /**
+     * Load from local file path, building the Resources in parallel.
+     * See {@link #Package(Path, boolean)} for details on file loading and
+     * {@link #Package(String, Path, boolean, Executor)} for details on parallel loading.
+     *
+     * @param descriptorFile local file path that points to the DataPackage Descriptor (if it's in
+     *                  a local directory) or the ZIP file if it's a ZIP-based
+     *                  package or to the parent directory
+     * @param strict whether to use strict schema parsing
+     * @param loadExecutor Executor to build the Resources on, null to build them on the calling thread
+     * @throws DataPackageFileOrUrlNotFoundException if the path is invalid
+     * @throws IOException thrown if I/O operations fail
+     * @throws DataPackageException thrown if constructing the Descriptor fails
+     */
+    public Package(Path descriptorFile, boolean strict, Executor loadExecutor) throws Exception {
         this.strictValidation = strict;
-        JsonNode sourceJsonNode;
+        this.loadExecutor = loadExecutor;
         if (!descriptorFile.toFile().exists()) {
             throw new DataPackageFileOrUrlNotFoundException("File " + descriptorFile + "does not exist");
         }
         if (descriptorFile.toFile().isDirectory()) {
             basePath = descriptorFile;
             File realDescriptor = new File(descriptorFile.toFile(), DATAPACKAGE_FILENAME);
-            String sourceJsonString = getFileContentAsString(realDescriptor.toPath());
-            sourceJsonNode = createNode(sourceJsonString);
+            try (JsonParser parser = createDescriptorParser(getFileContentAsStream(realDescriptor.toPath()))) {
+                this.setJson(parser);
+            }
         } else {
             if (isArchive(descriptorFile.toFile())) {
                 isArchivePackage = true;
                 basePath = descriptorFile;
-                sourceJsonNode = createNode(JSONBase.getZipFileContentAsString(descriptorFile, DATAPACKAGE_FILENAME));
+                archive = new ArchiveSession(descriptorFile);
+                try (JsonParser parser = createDescriptorParser(archive.getInputStream(DATAPACKAGE_FILENAME))) {
+                    this.setJson(parser);
+                } catch (Exception ex) {
+                    archive.close();
+                    throw ex;
+                }
+                // the archive stays open, Resources read their data through it until the Package is closed
             } else {
                 basePath = descriptorFile.getParent();
-                String sourceJsonString = getFileContentAsString(descriptorFile);
-                sourceJsonNode = createNode(sourceJsonString);
+                try (JsonParser parser = createDescriptorParser(getFileContentAsStream(descriptorFile))) {
+                    this.setJson(parser);
+                }
             }
         }
-        this.setJson((ObjectNode) sourceJsonNode);
     }
 
-    public Resource getResource(String resourceName){
-        for (Resource resource : this.resources) {
-            if (resource.getName().equalsIgnoreCase(resourceName)) {
-                return resource;
-            }
+    /**
+     * Close the archive of a ZIP-based Package. Resources of the Package can't read their data from the
+     * archive afterwards. Does nothing for Packages that are not read from a ZIP archive.
+     *
+     * @throws IOException thrown if closing the archive fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (null != archive) {
+            archive.close();
         }
-        return null;
+    }
+
+    /**
+     * Return the first Resource with the given name, ignoring case. Lookup is by the name the Resource
+     * had when it was added to the Package: the Package doesn't notice if a Resource is renamed
+     * afterwards, so remove it and add it again under the new name.
+     *
+     * @param resourceName name of the Resource
+     * @return the Resource or null if there is none with that name
+     */
+    public Resource getResource(String resourceName){
+        List<Resource> named = resourceIndex.get(indexKey(resourceName));
+        return (null == named) ? null : named.get(0);
+    }
+
+    /**
+     * Join two Resources of the Package on key fields. See {@link Join} for the strategies and the joined rows.
+     *
+     * @param leftResource name of the left Resource
+     * @param leftFields key fields of the left Resource
+     * @param rightResource name of the right Resource
+     * @param rightFields key fields of the right Resource, in the order of `leftFields`
+     * @return the join, read its rows with {@link Join#iterator()} or {@link Join#beanIterator(Class)}
+     * @throws DataPackageException if a Resource is not in the Package
+     */
+    public Join join(String leftResource, List<String> leftFields, String rightResource, List<String> rightFields) {
+        return new Join(getExistingResource(leftResource), leftFields, getExistingResource(rightResource), rightFields);
+    }
+
+    /**
+     * Join two Resources of the Package on the foreign key that one of them declares referencing the other.
+     *
+     * @param leftResource name of the left Resource
+     * @param rightResource name of the right Resource
+     * @return the join, read its rows with {@link Join#iterator()} or {@link Join#beanIterator(Class)}
+     * @throws DataPackageException if a Resource is not in the Package, or there is no foreign key between them
+     */
+    public Join join(String leftResource, String rightResource) {
+        return Join.onForeignKey(getExistingResource(leftResource), getExistingResource(rightResource));
+    }
+
+    /**
+     * Validate the data of all Resources against their Schemas and foreign keys, in one pass over each part.
+     * Parts are validated in parallel on the executor the Package was loaded with, if any.
+     *
+     * @return the errors found, by Resource
+     * @throws InterruptedException if the thread is interrupted while waiting for the executor
+     */
+    public ValidationReport validateData() throws InterruptedException {
+        return validateData(new ValidationEngine(loadExecutor));
+    }
+
+    /**
+     * Validate the data of all Resources against their Schemas and foreign keys.
+     *
+     * @param engine the engine to validate with, it sets the executor and the error limits
+     * @return the errors found, by Resource
+     * @throws InterruptedException if the thread is interrupted while waiting for the executor
+     */
+    public ValidationReport validateData(ValidationEngine engine) throws InterruptedException {
+        return engine.validate(getResources());
+    }
+
+    private Resource getExistingResource(String resourceName) {
+        Resource resource = getResource(resourceName);
+        if (null == resource)
+            throw new DataPackageException("Resource " + resourceName + " is not in the Package");
+        return resource;
     }
 
     /**
@@ -233,6 +386,7 @@ public class Package extends JSONBase{
      *
      * @return the resources as a List.
      */
+    @JsonIgnore
     public List<Resource> getResources(){
         return new ArrayList<>(this.resources);
     }
@@ -304,16 +458,12 @@ public class Package extends JSONBase{
             return imageData;
         if (!StringUtils.isEmpty(image)) {
             if (isArchivePackage) {
+                if (null != archive)
+                    return archive.getContentAsByteArray(image);
                 return getZipFileContentAsByteArray((Path)basePath, image);
             } else {
                 File imgFile = new File (((Path)basePath).toFile(), image);
-                try (InputStream inputStream = new FileInputStream(imgFile);
-                     ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                    for (int b; (b = inputStream.read()) != -1; ) {
-                        out.write(b);
-                    }
-                    return out.toByteArray();
-                }
+                return getFileContentAsByteArray(imgFile.toPath());
             }
         }
         return null;
@@ -410,6 +560,35 @@ public class Package extends JSONBase{
         }
     }
 
+    /**
+     * Returns the engine that resolves and checks the foreign keys between the Resources of this Package.
+     * Indexes of referenced fields are built on first use and kept for the lifetime of the Package.
+     * @return the relation engine
+     */
+    @JsonIgnore
+    public RelationEngine getRelationEngine() {
+        return relationEngine;
+    }
+
+    /**
+     * Returns whether {@link #write(File, boolean)} writes a row index next to each CSV data file.
+     * @return true if row indexes are written
+     */
+    @JsonIgnore
+    public boolean isWriteRowIndex() {
+        return writeRowIndex;
+    }
+
+    /**
+     * Set whether {@link #write(File, boolean)} writes a row index next to each CSV data file
+     * (see {@link Resource#writeRowIndex(Path)}), so that {@link Resource#readRows(long, int)} doesn't
+     * need to scan the files after the Package is read again. ZIP-based Packages don't get an index.
+     * @param writeRowIndex true to write row indexes
+     */
+    public void setWriteRowIndex(boolean writeRowIndex) {
+        this.writeRowIndex = writeRowIndex;
+    }
+
     public void addContributor (Contributor contributor) {
         if (null == contributor)
             return;
@@ -479,10 +658,16 @@ public class Package extends JSONBase{
     }
 
     /**
-     * Remove a {@link Resource}s from the Package. If no resource with a name matching `name`, no exception is thrown
+     * Remove a {@link Resource}s from the Package. If no resource with a name matching `name`, no exception is thrown.
+     * Like {@link #getResource(String)}, this matches the name a Resource had when it was added.
      */
     public void removeResource(String name){
-        this.resources.removeIf(resource -> resource.getName().equalsIgnoreCase(name));
+        List<Resource> named = resourceIndex.remove(indexKey(name));
+        if (null != named) {
+            named.forEach(this.resources::remove);
+            named.forEach((r) -> attach(r, null));
+            relationEngine.invalidate(name);
+        }
     }
 
     public void removeContributor (Contributor contributor) {
@@ -556,6 +741,7 @@ public class Package extends JSONBase{
      * @throws Exception thrown if something goes wrong writing
      */
     public void write (File outputDir, Consumer<Path> callback, boolean zipCompressed) throws Exception {
+        validate();
         this.isArchivePackage = zipCompressed;
         FileSystem outFs = getTargetFileSystem(outputDir, zipCompressed);
         String parentDirName = "";
@@ -573,6 +759,9 @@ public class Package extends JSONBase{
 
         for (Resource r : resourceList) {
             r.writeData(outFs.getPath(parentDirName ));
+            if (writeRowIndex && !zipCompressed) {
+                r.writeRowIndex(outFs.getPath(parentDirName));
+            }
             r.writeSchema(outFs.getPath(parentDirName));
 
             // write out dialect file only if not null or URL
@@ -641,28 +830,96 @@ public class Package extends JSONBase{
      */
     public void writeJson (OutputStream output) throws IOException{
         try (BufferedWriter file = new BufferedWriter(new OutputStreamWriter(output))) {
-            file.write(this.getJsonNode().toPrettyString());
+            writeJson(file);
         }
     }
 
     /**
+     * Serialize the whole package including Resources to pretty-printed JSON and write to a Writer.
+     * The descriptor is streamed: each Resource is converted to JSON and written out before the next
+     * one is converted, so neither the descriptor text nor all Resource trees are held in memory.
+     *
+     * @param writer Writer to write to, will be flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public void writeJson (Writer writer) throws IOException{
+        ObjectNode descriptor = getDescriptorNode();
+        JsonGenerator generator = DESCRIPTOR_MAPPER.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.useDefaultPrettyPrinter();
+        try {
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = descriptor.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName(field.getKey());
+                generator.writeTree(field.getValue());
+            }
+            writeResources(generator);
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    private void writeResources(JsonGenerator generator) throws IOException {
+        if (resources.isEmpty())
+            return;
+        generator.writeArrayFieldStart(JSON_KEY_RESOURCES);
+        for (Resource resource : resources) {
+            generator.writeTree(getResourceJsonNode(resource));
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Validate the whole Package descriptor against the Package profile. This serializes all
+     * Resources, so it is not done when adding Resources, but only when reading or writing a Package
+     * or when called explicitly.
+     *
      * Validation is strict or lenient depending on how the package was
      * instantiated with the strict flag.
      * @throws IOException if something goes wrong reading the datapackage
      * @throws DataPackageException if validation fails and validation is strict
      */
-    final void validate() throws IOException, DataPackageException{
+    public final void validate() throws IOException, DataPackageException{
         try{
             Validator.validate(this.getJsonNode());
         } catch(ValidationException | DataPackageException ve){
-            if (this.strictValidation){
-                throw ve;
-            }else{
-                if (ve instanceof DataPackageValidationException)
-                    errors.add((DataPackageValidationException)ve);
-                else
-                    errors.add(new DataPackageValidationException (ve));
+            handleValidationError(ve);
+        }
+    }
+
+    /**
+     * Validate the descriptor of a single Resource against its profile, `data-resource` if it doesn't
+     * specify one.
+     * @param resource the Resource to validate
+     * @throws IOException if something goes wrong reading the profile
+     * @throws DataPackageException if validation fails and validation is strict
+     */
+    private void validate(Resource resource) throws IOException, DataPackageException{
+        try{
+            // the curated node, as written to the descriptor
+            JsonNode resourceJson = getResourceJsonNode(resource);
+            String profile = resource.getProfile();
+            if (isValidUrl(profile)) {
+                Validator.validate(resourceJson, new URL(profile));
+            } else {
+                Validator.validate(resourceJson, profile);
             }
+        } catch(ValidationException | DataPackageException ve){
+            handleValidationError(ve);
+        }
+    }
+
+    private void handleValidationError(RuntimeException ve) {
+        if (this.strictValidation){
+            throw ve;
+        }else{
+            if (ve instanceof DataPackageValidationException)
+                errors.add((DataPackageValidationException)ve);
+            else
+                errors.add(new DataPackageValidationException (ve));
         }
     }
 
@@ -687,6 +944,22 @@ public class Package extends JSONBase{
 
     @JsonIgnore
     protected ObjectNode getJsonNode(){
+    	ObjectNode objectNode = getDescriptorNode();
+
+        ArrayNode resourcesJsonArray = JsonUtil.getInstance().createArrayNode();
+        for (Resource resource : resources) {
+            resourcesJsonArray.add(getResourceJsonNode(resource));
+        }
+
+        if(resourcesJsonArray.size() > 0){
+        	objectNode.set(JSON_KEY_RESOURCES, resourcesJsonArray);
+        }
+
+        return objectNode;
+    }
+
+    // the Package properties without the Resources
+    private ObjectNode getDescriptorNode(){
     	ObjectNode objectNode = (ObjectNode) JsonUtil.getInstance().createNode(this);
     	// update any manually set properties
     	this.jsonObject.fields().forEachRemaining(f->{
@@ -695,35 +968,26 @@ public class Package extends JSONBase{
                 objectNode.set(f.getKey(), f.getValue());
             }
     	});
+        return objectNode;
+    }
 
-    	Iterator<Resource> resourceIter = resources.iterator();
-
-        ArrayNode resourcesJsonArray = JsonUtil.getInstance().createArrayNode();
-        while(resourceIter.hasNext()){
-            Resource resource = resourceIter.next();
-            // this is ugly. If we encounter a DataResource which should be written to a file via
-            // manual setting, do some trickery to not write the DataResource, but a curated version
-            // to the package descriptor.
-            ObjectNode obj = (ObjectNode) JsonUtil.getInstance().createNode(resource.getJson());
-            if ((resource instanceof AbstractDataResource) && (resource.shouldSerializeToFile())) {
-                Set<String> datafileNames = resource.getDatafileNamesForWriting();
-                Set<String> outPaths = datafileNames.stream().map((r) -> r+"."+resource.getSerializationFormat()).collect(Collectors.toSet());
-                if (outPaths.size() == 1) {
-                    obj.put(JSON_KEY_PATH, outPaths.iterator().next());
-                } else {
-                    obj.set(JSON_KEY_PATH, JsonUtil.getInstance().createArrayNode(outPaths));
-                }
-                obj.put(JSON_KEY_FORMAT, resource.getSerializationFormat());
+    private static ObjectNode getResourceJsonNode(Resource resource){
+        // this is ugly. If we encounter a DataResource which should be written to a file via
+        // manual setting, do some trickery to not write the DataResource, but a curated version
+        // to the package descriptor.
+        ObjectNode obj = resource.getJsonNode();
+        if ((resource instanceof AbstractDataResource) && (resource.shouldSerializeToFile())) {
+            Set<String> datafileNames = resource.getDatafileNamesForWriting();
+            Set<String> outPaths = datafileNames.stream().map((r) -> r+"."+resource.getSerializationFormat()).collect(Collectors.toSet());
+            if (outPaths.size() == 1) {
+                obj.put(JSON_KEY_PATH, outPaths.iterator().next());
+            } else {
+                obj.set(JSON_KEY_PATH, JsonUtil.getInstance().createArrayNode(outPaths));
             }
-            obj.remove("originalReferences");
-            resourcesJsonArray.add(obj);
-        }
-
-        if(resourcesJsonArray.size() > 0){
-        	objectNode.set(JSON_KEY_RESOURCES, resourcesJsonArray);
+            obj.put(JSON_KEY_FORMAT, resource.getSerializationFormat());
         }
-
-        return objectNode;
+        obj.remove("originalReferences");
+        return obj;
     }
 
     /**
@@ -736,41 +1000,60 @@ public class Package extends JSONBase{
     }
 
 
-    private void setJson(ObjectNode jsonNodeSource) throws Exception {
+    /**
+     * Read the descriptor from a streaming parser. Resources are built one by one while the parser walks
+     * the `resources` array, so the array is never held as a whole. All other properties are kept as they
+     * are in the `jsonObject` and only converted when they are accessed.
+     *
+     * @param parser parser positioned before the start of the descriptor object
+     * @throws Exception if reading the descriptor or building a Resource fails
+     */
+    private void setJson(JsonParser parser) throws Exception {
+        ObjectNode jsonNodeSource = JsonUtil.getInstance().createNode();
         this.jsonObject = jsonNodeSource;
+        boolean hasResources = false;
 
-        // Create Resource list, if there are resources.
-        if(jsonNodeSource.has(JSON_KEY_RESOURCES) && jsonNodeSource.get(JSON_KEY_RESOURCES).isArray()){
-            ArrayNode resourcesJsonArray = (ArrayNode) jsonNodeSource.get(JSON_KEY_RESOURCES);
-            for(int i=0; i < resourcesJsonArray.size(); i++){
-                ObjectNode resourceJson = (ObjectNode) resourcesJsonArray.get(i);
-                Resource resource = null;
-                try {
-                    resource = Resource.build(resourceJson, basePath, isArchivePackage);
-                } catch (DataPackageException dpe) {
-                    if(this.strictValidation){
-                        this.jsonObject = null;
-                        this.resources.clear();
-
-                        throw dpe;
-                    }else{
-                        if (dpe instanceof DataPackageValidationException)
-                            this.errors.add((DataPackageValidationException)dpe);
-                        else
-                            this.errors.add(new DataPackageValidationException(dpe));
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DataPackageException("Package descriptor must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (key.equals(JSON_KEY_RESOURCES) && (token == JsonToken.START_ARRAY)) {
+                    // Create Resource list, if there are resources.
+                    hasResources = true;
+                    if (null == loadExecutor) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            loadResource(readValueAsNode(parser));
+                        }
+                    } else {
+                        List<Future<Resource>> builds = new ArrayList<>();
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            JsonNode resourceJson = readValueAsNode(parser);
+                            builds.add(submit(() -> buildResource(resourceJson)));
+                        }
+                        // collect in descriptor order, so errors are handled as if built sequentially
+                        for (Future<Resource> build : builds) {
+                            loadResource(() -> await(build));
+                        }
                     }
-                }
-
-                if(resource != null){
-                    addResource(resource, false);
+                } else {
+                    jsonNodeSource.set(key, readValueAsNode(parser));
                 }
             }
-        } else {
+        } catch (JsonProcessingException ex) {
+            this.jsonObject = null;
+            clearResources();
+            throw new DataPackageException(ex.getMessage(), ex);
+        }
+
+        if (!hasResources) {
             DataPackageValidationException dpe = new DataPackageValidationException("Trying to create a DataPackage from JSON, " +
                     "but no resource entries found");
             if(this.strictValidation){
                 this.jsonObject = null;
-                this.resources.clear();
+                clearResources();
 
                 throw dpe;
 
@@ -778,7 +1061,7 @@ public class Package extends JSONBase{
                 this.errors.add(dpe);
             }
         }
-        Schema schema = buildSchema (jsonNodeSource, basePath, isArchivePackage);
+        Schema schema = buildSchema (jsonNodeSource, basePath, archive);
         setFromJson(jsonNodeSource, this, schema);
         this.setId(textValueOrNull(jsonNodeSource, Package.JSON_KEY_ID));
         this.setName(textValueOrNull(jsonNodeSource, Package.JSON_KEY_NAME));
@@ -810,10 +1093,80 @@ public class Package extends JSONBase{
                 this.setProperty(k, obj);
             }
         });
-        resources.forEach(Resource::validate);
+        if (null == loadExecutor) {
+            resources.forEach(Resource::validate);
+        } else {
+            List<Future<Resource>> validations = new ArrayList<>();
+            for (Resource r : resources) {
+                validations.add(submit(() -> {
+                    r.validate();
+                    return r;
+                }));
+            }
+            for (Future<Resource> validation : validations) {
+                await(validation);
+            }
+        }
         validate();
     }
 
+    private void loadResource(JsonNode resourceJson) throws Exception {
+        loadResource(() -> buildResource(resourceJson));
+    }
+
+    private void loadResource(Callable<Resource> builder) throws Exception {
+        Resource resource = null;
+        try {
+            resource = builder.call();
+        } catch (DataPackageException dpe) {
+            if(this.strictValidation){
+                this.jsonObject = null;
+                clearResources();
+
+                throw dpe;
+            }else{
+                if (dpe instanceof DataPackageValidationException)
+                    this.errors.add((DataPackageValidationException)dpe);
+                else
+                    this.errors.add(new DataPackageValidationException(dpe));
+            }
+        }
+
+        if(resource != null){
+            addResource(resource, false);
+        }
+    }
+
+    private Resource buildResource(JsonNode resourceJson) throws Exception {
+        if (!resourceJson.isObject()) {
+            throw new DataPackageValidationException("Invalid Resource, it must be a JSON object.");
+        }
+        return Resource.build((ObjectNode) resourceJson, basePath, archive);
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        loadExecutor.execute(future);
+        return future;
+    }
+
+    // unwrap the exception of a task so it can be handled like on the calling thread
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw ex;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw ex;
+        }
+    }
+
     /**
      * DataPackage version SHOULD be SemVer, but sloppy versions are acceptable.
      *
@@ -902,9 +1255,16 @@ public class Package extends JSONBase{
         else {
             dpe = checkDuplicates(resource);
         }
-        this.resources.add(resource);
-        if (validate)
+        // Resources without a name (lenient Packages only) can't be looked up
+        if (this.resources.add(resource) && (null != resource.getName())) {
+            resourceIndex.computeIfAbsent(indexKey(resource.getName()), (k) -> new ArrayList<>(1)).add(resource);
+            relationEngine.invalidate(resource.getName());
+        }
+        attach(resource, relationEngine);
+        if (validate) {
             validate(dpe);
+            validate(resource);
+        }
     }
 
     private void addResource(AbstractDataResource resource, boolean validate)
@@ -943,22 +1303,34 @@ public class Package extends JSONBase{
                 errors.add(new DataPackageValidationException(dpe));
             }
         }
-
-        this.validate();
     }
 
     private DataPackageException checkDuplicates(Resource resource) {
         DataPackageException dpe = null;
         // Check if there is duplication.
-        for (Resource value : this.resources) {
-            if (value.getName().equalsIgnoreCase(resource.getName())) {
-                dpe = new DataPackageException(
-                        "A resource with the same name already exists.");
-            }
+        if (resourceIndex.containsKey(indexKey(resource.getName()))) {
+            dpe = new DataPackageException(
+                    "A resource with the same name already exists.");
         }
         return dpe;
     }
 
+    private static String indexKey(String resourceName) {
+        return (null == resourceName) ? null : resourceName.toLowerCase(Locale.ROOT);
+    }
+
+    private void clearResources() {
+        this.resources.forEach((r) -> attach(r, null));
+        this.resources.clear();
+        this.resourceIndex.clear();
+        this.relationEngine.clear();
+    }
+
+    private static void attach(Resource resource, RelationEngine engine) {
+        if (resource instanceof AbstractResource)
+            ((AbstractResource<?, ?>) resource).setRelationEngine(engine);
+    }
+
     private FileSystem getTargetFileSystem(File outputDir, boolean zipCompressed) throws IOException {
         FileSystem outFs;
         if (zipCompressed) {
@@ -982,8 +1354,7 @@ public class Package extends JSONBase{
     private void writeDescriptor (FileSystem outFs, String parentDirName) throws IOException {
         Path nf = outFs.getPath(parentDirName+File.separator+DATAPACKAGE_FILENAME);
         try (Writer writer = Files.newBufferedWriter(nf, StandardCharsets.UTF_8, StandardOpenOption.CREATE)) {
-            ObjectNode jsonNode = this.getJsonNode();
-            writer.write(jsonNode.toPrettyString());
+            writeJson(writer);
         }
     }
 
@@ -11,12 +11,45 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
  * Validates against schema.
+ *
+ * Profile schemas are compiled once and cached: the bundled profiles listed in
+ * `/schemas/registry.json` are compiled when the class is loaded, remote profiles
+ * when they are first used. At most {@link #MAX_CACHED_REMOTE_PROFILES} remote
+ * profiles are kept, the least recently used ones are dropped first.
  */
 public class Validator {
+    static final int MAX_CACHED_REMOTE_PROFILES = 32;
+
+    private static final Map<String, FormalSchemaValidator> bundledProfiles = new ConcurrentHashMap<>();
+
+    private static final Map<String, FormalSchemaValidator> remoteProfiles =
+            new LinkedHashMap<String, FormalSchemaValidator>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FormalSchemaValidator> eldest) {
+            return size() > MAX_CACHED_REMOTE_PROFILES;
+        }
+    };
+
+    static {
+        try (InputStream registry = Validator.class.getResourceAsStream("/schemas/registry.json")) {
+            if (null != registry) {
+                for (JsonNode entry : JsonUtil.getInstance().createArrayNode(JSONBase.getFileContentAsString(registry))) {
+                    if (entry.hasNonNull("id")) {
+                        getBundledProfile(entry.get("id").asText());
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            // the profiles will be compiled on first use and report their errors there
+        }
+    }
 
     /**
      * Validates a given JSON Object against the default profile schema.
@@ -55,9 +88,8 @@ public class Validator {
      */
     public static void validate(JsonNode jsonObjectToValidate, String profileId) throws DataPackageException, ValidationException{
 
-        InputStream inputStream = Validator.class.getResourceAsStream("/schemas/" + profileId + ".json");
-        if(inputStream != null){
-            FormalSchemaValidator schema = FormalSchemaValidator.fromJson(inputStream, true);
+        FormalSchemaValidator schema = getBundledProfile(profileId);
+        if(schema != null){
             schema.validate(jsonObjectToValidate); // throws a ValidationException if this object is invalid
             
         }else{
@@ -75,16 +107,45 @@ public class Validator {
      * @throws ValidationException 
      */
     public static void validate(JsonNode jsonObjectToValidate, URL schemaUrl) throws IOException, DataPackageException, ValidationException{
-        try{
-            InputStream inputStream = schemaUrl.openStream();
-            FormalSchemaValidator schema = FormalSchemaValidator.fromJson(inputStream, true);
-            schema.validate(jsonObjectToValidate); // throws a ValidationException if this object is invalid
-            
-        }catch(FileNotFoundException e){
-             throw new DataPackageException("Invalid profile schema URL: " + schemaUrl);   
-        }  
+        String key = schemaUrl.toExternalForm();
+        FormalSchemaValidator schema;
+        synchronized (remoteProfiles) {
+            schema = remoteProfiles.get(key);
+        }
+        if (null == schema) {
+            // download outside the lock, two threads compiling the same profile is harmless
+            try (InputStream inputStream = schemaUrl.openStream()) {
+                schema = FormalSchemaValidator.fromJson(inputStream, true);
+            } catch (FileNotFoundException e) {
+                throw new DataPackageException("Invalid profile schema URL: " + schemaUrl);
+            }
+            synchronized (remoteProfiles) {
+                remoteProfiles.put(key, schema);
+            }
+        }
+        schema.validate(jsonObjectToValidate); // throws a ValidationException if this object is invalid
     }
     
+    /**
+     * Returns the compiled schema of a profile bundled with this library, compiling it on first use.
+     * @param profileId the profile id, eg. `data-package`
+     * @return the compiled schema, or null if no such profile is bundled
+     */
+    private static FormalSchemaValidator getBundledProfile(String profileId) {
+        FormalSchemaValidator schema = bundledProfiles.get(profileId);
+        if (null != schema)
+            return schema;
+        try (InputStream inputStream = Validator.class.getResourceAsStream("/schemas/" + profileId + ".json")) {
+            if (null == inputStream)
+                return null;
+            schema = FormalSchemaValidator.fromJson(inputStream, true);
+        } catch (IOException ex) {
+            throw new DataPackageException(ex);
+        }
+        FormalSchemaValidator existing = bundledProfiles.putIfAbsent(profileId, schema);
+        return (null != existing) ? existing : schema;
+    }
+
     /**
      * Validates a given JSON String against the default profile schema.
      * @param jsonStringToValidate
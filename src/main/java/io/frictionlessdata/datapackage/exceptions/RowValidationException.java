@@ -0,0 +1,52 @@
+package io.frictionlessdata.datapackage.exceptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A row of a Resource that violates a constraint, eg. a foreign key value without a matching row in the
+ * referenced Resource.
+ */
+public class RowValidationException extends DataPackageValidationException {
+    private final String resourceName;
+    private final long rowNumber;
+    private final List<String> fieldNames;
+    private final List<Object> values;
+
+    /**
+     * Constructs an instance of <code>RowValidationException</code> with the
+     * specified detail message.
+     *
+     * @param msg the detail message.
+     * @param resourceName the name of the Resource holding the row
+     * @param rowNumber the number of the row, the first row after the header is row 1
+     * @param fieldNames the names of the fields that violate the constraint
+     * @param values the values of those fields in the row
+     */
+    public RowValidationException(String msg, String resourceName, long rowNumber,
+                                  List<String> fieldNames, Object[] values) {
+        super(msg);
+        this.resourceName = resourceName;
+        this.rowNumber = rowNumber;
+        this.fieldNames = Collections.unmodifiableList(new ArrayList<>(fieldNames));
+        this.values = Collections.unmodifiableList(Arrays.asList(values.clone()));
+    }
+
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+}
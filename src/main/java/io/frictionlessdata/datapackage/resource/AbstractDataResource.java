@@ -5,7 +5,10 @@ import io.frictionlessdata.datapackage.Dialect;
 import io.frictionlessdata.datapackage.exceptions.DataPackageException;
 import io.frictionlessdata.tableschema.Table;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -39,6 +42,14 @@ public abstract class AbstractDataResource<T,C> extends AbstractResource<T,C> {
         return data;
     }
 
+    /**
+     * @return a stream over the serialized data, a CSV String or a JSON array in UTF-8
+     */
+    @Override
+    public InputStream openRawStream() throws IOException {
+        return new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * @param data the data to set
      */
@@ -2,15 +2,17 @@ package io.frictionlessdata.datapackage.resource;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
 import io.frictionlessdata.tableschema.Table;
 import io.frictionlessdata.tableschema.tabledatasource.TableDataSource;
 import io.frictionlessdata.tableschema.util.JsonUtil;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 public abstract class AbstractReferencebasedResource<T,C> extends AbstractResource<T,C> {
@@ -51,6 +53,33 @@ public abstract class AbstractReferencebasedResource<T,C> extends AbstractResour
         return null;
     }
 
+    @JsonIgnore
+    @Override
+    public InputStream openRawStream() throws IOException {
+        if (null == paths)
+            return new ByteArrayInputStream(new byte[0]);
+        Iterator<T> iter = paths.iterator();
+        if (paths.size() == 1) {
+            return openRawStream(iter.next());
+        }
+        // open the next file or URL only when the previous one is exhausted
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return openRawStream(iter.next());
+                } catch (IOException ex) {
+                    throw new DataPackageException(ex);
+                }
+            }
+        });
+    }
+
     /*
      if more than one path in our paths object, return a JSON array,
      else just that one object.
@@ -83,23 +112,50 @@ public abstract class AbstractReferencebasedResource<T,C> extends AbstractResour
                 return p.substring(0, i);
             }
             return p;
-        }).collect(Collectors.toSet());
+        }).collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     abstract Table createTable(T reference) throws Exception;
 
+    /**
+     * Create the Table for one part of the Resource, applying the same security checks
+     * as reading all parts via {@link #readData()}.
+     * @param reference the file or URL of the part
+     * @return the Table of that part
+     * @throws Exception if the part cannot be read
+     */
+    abstract Table createPartTable(T reference) throws Exception;
+
+    @Override
+    List<Callable<Table>> getTableParts() throws Exception {
+        if ((null != tables) || (null == paths))
+            return super.getTableParts();
+        List<Callable<Table>> parts = new ArrayList<>(paths.size());
+        for (T reference : paths) {
+            parts.add(() -> createPartTable(reference));
+        }
+        return parts;
+    }
+
     abstract String getStringRepresentation(T reference);
 
     abstract byte[] getRawData(T input) throws IOException;
+
+    abstract InputStream openRawStream(T input) throws IOException;
+
     byte[] getRawData(InputStream inputStream) throws IOException {
-        byte[] retVal = null;
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            for (int b; (b = inputStream.read()) != -1; ) {
-                out.write(b);
-            }
-            retVal = out.toByteArray();
-        }
-        return retVal;
+        return getContentAsByteArray(inputStream, getDeclaredSize());
+    }
+
+    /*
+     The `bytes` property describes the whole Resource, so it's only useful as a buffer size if there
+     is just one file or URL.
+     */
+    long getDeclaredSize() {
+        Integer declared = getBytes();
+        if ((null != declared) && (null != paths) && (paths.size() == 1))
+            return declared;
+        return -1;
     }
 
 }
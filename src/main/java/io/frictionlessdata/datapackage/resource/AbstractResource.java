@@ -3,6 +3,7 @@ package io.frictionlessdata.datapackage.resource;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.frictionlessdata.datapackage.Dialect;
@@ -10,17 +11,17 @@ import io.frictionlessdata.datapackage.JSONBase;
 import io.frictionlessdata.datapackage.Profile;
 import io.frictionlessdata.datapackage.exceptions.DataPackageException;
 import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
+import io.frictionlessdata.datapackage.exceptions.RowValidationException;
 import io.frictionlessdata.tableschema.Table;
+import io.frictionlessdata.tableschema.field.Field;
 import io.frictionlessdata.tableschema.fk.ForeignKey;
 import io.frictionlessdata.tableschema.io.FileReference;
 import io.frictionlessdata.tableschema.io.URLFileReference;
-import io.frictionlessdata.tableschema.iterator.BeanIterator;
-import io.frictionlessdata.tableschema.iterator.TableIterator;
 import io.frictionlessdata.tableschema.schema.Schema;
 import io.frictionlessdata.tableschema.tabledatasource.TableDataSource;
 import io.frictionlessdata.tableschema.util.JsonUtil;
-import org.apache.commons.collections4.iterators.IteratorChain;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
 
 import java.io.IOException;
 import java.io.Writer;
@@ -30,6 +31,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Abstract base implementation of a Resource.
@@ -37,6 +42,7 @@ import java.util.*;
  */
 @JsonInclude(value = Include.NON_EMPTY, content = Include.NON_EMPTY )
 public abstract class AbstractResource<T,C> extends JSONBase implements Resource<T,C> {
+    public static final int DEFAULT_MAX_LOOKUP_ROWS = 10000;
 
     // Data properties.
     protected List<Table> tables;
@@ -53,6 +59,12 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
     boolean serializeToFile = true;
     private String serializationFormat;
     final List<DataPackageValidationException> errors = new ArrayList<>();
+    private List<Map<String, FieldStatistics>> partStatistics = null;
+    private Map<String, FieldStatistics> statistics = null;
+    private KeyIndex primaryKeyIndex = null;
+    private List<Object[]> primaryKeyRows = null;
+    private int maxLookupRows = DEFAULT_MAX_LOOKUP_ROWS;
+    private RelationEngine relationEngine = null;
 
     AbstractResource(String name){
         this.name = name;
@@ -65,57 +77,125 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
         return this.objectArrayIterator(false, false);
     }
 
+    /*
+     All row iterators are {@link PartIterator}s that open the Tables of a multi-part Resource
+     one after the other.
+     */
     @Override
     public Iterator<Object[]> objectArrayIterator(boolean extended, boolean relations) throws Exception{
-        ensureDataLoaded();
-        Iterator<Object[]>[] tableIteratorArray = new TableIterator[tables.size()];
-        int cnt = 0;
-        for (Table table : tables) {
-            tableIteratorArray[cnt++] = (Iterator)table.iterator(false, extended, true, relations);
-        }
-        return new IteratorChain(tableIteratorArray);
+        return new PartIterator<>(getTableParts(),
+                (table) -> (Iterator)table.iterator(false, extended, true, relations));
+    }
+
+    @Override
+    public Iterator<Object[]> objectArrayIterator(List<String> fieldNames) throws Exception{
+        return objectArrayIterator(fieldNames, null);
+    }
+
+    @Override
+    public Iterator<Object[]> objectArrayIterator(List<String> fieldNames, RowFilter filter) throws Exception{
+        return new PartIterator<>(pruneParts(getTableParts(), filter),
+                new Projection(fieldNames, schema, getNullSequence()).reader(filter));
     }
 
     public Iterator<String[]> stringArrayIterator(boolean relations) throws Exception{
-        ensureDataLoaded();
-        Iterator[] tableIteratorArray = new TableIterator[tables.size()];
-        int cnt = 0;
-        for (Table table : tables) {
-            tableIteratorArray[cnt++] = table.stringArrayIterator(relations);
-        }
-        return new IteratorChain<>(tableIteratorArray);
+        return new PartIterator<>(getTableParts(), (table) -> table.stringArrayIterator(relations));
     }
 
     @Override
     public Iterator<String[]> stringArrayIterator() throws Exception{
-        ensureDataLoaded();
-        Iterator<String[]>[] tableIteratorArray = new TableIterator[tables.size()];
-        int cnt = 0;
-        for (Table table : tables) {
-            tableIteratorArray[cnt++] = table.stringArrayIterator();
-        }
-        return new IteratorChain<>(tableIteratorArray);
+        return new PartIterator<>(getTableParts(), Table::stringArrayIterator);
     }
 
     @Override
     public Iterator<Map<String, Object>> mappingIterator(boolean relations) throws Exception{
-        ensureDataLoaded();
-        Iterator<Map<String, Object>>[] tableIteratorArray = new TableIterator[tables.size()];
-        int cnt = 0;
-        for (Table table : tables) {
-            tableIteratorArray[cnt++] = table.mappingIterator(false, true, relations);
-        }
-        return new IteratorChain(tableIteratorArray);
+        return new PartIterator<>(getTableParts(), (table) -> table.mappingIterator(false, true, relations));
     }
 
     @Override
     public Iterator<C> beanIterator(Class<C> beanType, boolean relations) throws Exception {
-        ensureDataLoaded();
-        IteratorChain<C> ic = new IteratorChain<>();
-        for (Table table : tables) {
-            ic.addIterator ((Iterator<? extends C>) table.iterator(beanType, false));
-        }
-        return ic;
+        return new PartIterator<>(getTableParts(), (table) -> table.iterator(beanType, false));
+    }
+
+    @Override
+    public Stream<Object[]> stream() throws Exception {
+        return StreamSupport.stream(spliterator(objectArrayReader()), false);
+    }
+
+    @Override
+    public Stream<Object[]> parallelStream() throws Exception {
+        return StreamSupport.stream(spliterator(objectArrayReader()), true);
+    }
+
+    @Override
+    public Stream<Object[]> objectArrayStream(List<String> fieldNames) throws Exception {
+        return objectArrayStream(fieldNames, null);
+    }
+
+    @Override
+    public Stream<Object[]> objectArrayStream(List<String> fieldNames, RowFilter filter) throws Exception {
+        return StreamSupport.stream(spliterator(new Projection(fieldNames, schema, getNullSequence()).reader(filter), filter, null), false);
+    }
+
+    @Override
+    public Stream<Object[]> objectArrayStream(boolean extended, boolean relations) throws Exception {
+        PartIterator.RowReader<Object[]> reader = (table) -> (Iterator)table.iterator(false, extended, true, relations);
+        if (relations)
+            return StreamSupport.stream(partSpliterator(reader), false);
+        return StreamSupport.stream(spliterator(reader, null, extended ? CsvSplitSpliterator.EXTENDED_ROWS : null), false);
+    }
+
+    @Override
+    public Stream<String[]> stringArrayStream(boolean relations) throws Exception {
+        PartIterator.RowReader<String[]> reader = (table) -> table.stringArrayIterator(relations);
+        return StreamSupport.stream(relations ? partSpliterator(reader) : spliterator(reader), false);
+    }
+
+    @Override
+    public Stream<Map<String, Object>> mappingStream(boolean relations) throws Exception {
+        PartIterator.RowReader<Map<String, Object>> reader = (table) -> table.mappingIterator(false, true, relations);
+        return StreamSupport.stream(relations ? partSpliterator(reader) : spliterator(reader), false);
+    }
+
+    @Override
+    public Stream<C> beanStream(Class<C> beanType, boolean relations) throws Exception {
+        return StreamSupport.stream(spliterator((table) -> table.iterator(beanType, false)), false);
+    }
+
+    @Override
+    public Stream<Object[]> parallelStream(Executor executor, boolean ordered) throws Exception {
+        ParallelPartIterator<Object[]> iter = new ParallelPartIterator<>(getTableParts(), objectArrayReader(),
+                executor, ordered, Runtime.getRuntime().availableProcessors(),
+                ParallelPartIterator.DEFAULT_BUFFERED_ROWS);
+        int characteristics = Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, characteristics), false)
+                .onClose(iter::close);
+    }
+
+    @Override
+    public Iterator<ColumnBatch> columnBatchIterator(int batchSize) throws Exception {
+        return new ColumnBatchIterator(getTableParts(), schema, getNullSequence(), batchSize, true, null);
+    }
+
+    @Override
+    public Iterator<ColumnBatch> columnBatchIterator(int batchSize, List<String> fieldNames) throws Exception {
+        return new ColumnBatchIterator(getTableParts(), schema, getNullSequence(), batchSize, true,
+                new Projection(fieldNames, schema, getNullSequence()));
+    }
+
+    @Override
+    public Cursor openCursor() throws Exception {
+        return new Cursor(new ColumnBatchIterator(getTableParts(), schema, getNullSequence(),
+                Cursor.BATCH_SIZE, false, null));
+    }
+
+    private String getNullSequence() {
+        Dialect lDialect = (null != dialect) ? dialect : Dialect.DEFAULT;
+        return lDialect.getNullSequence();
+    }
+
+    private static PartIterator.RowReader<Object[]> objectArrayReader() {
+        return (table) -> (Iterator)table.iterator(false, false, true, false);
     }
 
     /**
@@ -135,7 +215,6 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
     @JsonIgnore
     public List<String[]> getData(boolean relations) throws Exception{
         List<String[]> retVal = new ArrayList<>();
-        ensureDataLoaded();
         Iterator<String[]> iter = stringArrayIterator(relations);
         while (iter.hasNext()) {
             retVal.add(iter.next());
@@ -161,13 +240,7 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
     @Override
     public List<Map<String, Object>> getMappedData(boolean relations) throws Exception {
         List<Map<String, Object>> retVal = new ArrayList<>();
-        ensureDataLoaded();
-        Iterator[] tableIteratorArray = new TableIterator[tables.size()];
-        int cnt = 0;
-        for (Table table : tables) {
-            tableIteratorArray[cnt++] = table.iterator(true, false, true, relations);
-        }
-        Iterator iter = new IteratorChain<>(tableIteratorArray);
+        Iterator iter = new PartIterator<>(getTableParts(), (table) -> table.iterator(true, false, true, relations));
         while (iter.hasNext()) {
             retVal.add((Map)iter.next());
         }
@@ -201,7 +274,6 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
      */
     public List<Object> getData(boolean keyed, boolean extended, boolean cast, boolean relations) throws Exception{
         List<Object> retVal = new ArrayList<>();
-        ensureDataLoaded();
         Iterator iter;
         if (keyed) {
             iter = mappingIterator(relations);
@@ -219,12 +291,9 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
     @Override
     public List<C> getData(Class<C> beanClass)  throws Exception {
         List<C> retVal = new ArrayList<C>();
-        ensureDataLoaded();
-        for (Table t : tables) {
-            final BeanIterator<C> iter = (BeanIterator<C>) t.iterator(beanClass, false);
-            while (iter.hasNext()) {
-                retVal.add(iter.next());
-            }
+        Iterator<C> iter = beanIterator(beanClass, false);
+        while (iter.hasNext()) {
+            retVal.add(iter.next());
         }
         return retVal;
     }
@@ -232,8 +301,11 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
     @Override
 	@JsonIgnore
     public String[] getHeaders() throws Exception{
-        ensureDataLoaded();
-        return tables.get(0).getHeaders();
+        // only open the first part, the others must have the same headers
+        List<Callable<Table>> parts = getTableParts();
+        if (parts.isEmpty())
+            return null;
+        return parts.get(0).call().getHeaders();
     }
 
     @Override
@@ -243,28 +315,66 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
         return tables;
     }
 
-    public void checkRelations() {
-        if (null != schema) {
-            for (ForeignKey fk : schema.getForeignKeys()) {
-                fk.validate();
-                fk.getReference().validate();
-            }
-            for (ForeignKey fk : schema.getForeignKeys()) {
-                if (null != fk.getReference().getResource()) {
-                    //Package pkg = new Package(fk.getReference().getDatapackage(), true);
-                    // TODO fix this
-                }
-            }
+    /**
+     * Validate the foreign keys of the Schema, and check that every row has a match in the referenced Resource.
+     * References to other Resources are resolved by the {@link RelationEngine} of the Package holding this
+     * Resource, a Resource outside of a Package can only reference itself.
+     *
+     * @throws io.frictionlessdata.datapackage.exceptions.RowValidationException for the first row with a foreign
+     * key value that has no match
+     * @throws Exception if reading the data fails
+     */
+    @Override
+    public void checkRelations() throws Exception {
+        List<RowValidationException> violations = findRelationViolations(1);
+        if (!violations.isEmpty())
+            throw violations.get(0);
+    }
+
+    /**
+     * Validate the foreign keys of the Schema, and find the rows with a foreign key value that has no match.
+     *
+     * @param maxViolations stop reading rows after this many violations
+     * @return the violations in row order, empty if there is no Schema
+     * @throws Exception if reading the data fails
+     */
+    List<RowValidationException> findRelationViolations(int maxViolations) throws Exception {
+        if (null == schema)
+            return new ArrayList<>();
+        for (ForeignKey fk : schema.getForeignKeys()) {
+            fk.validate();
+            fk.getReference().validate();
         }
+        return getRelationEngine().findViolations(this, maxViolations);
     }
 
+    /**
+     * @return the engine that resolves the foreign keys of this Resource, one that only resolves references
+     * to this Resource if none is set
+     */
+    RelationEngine getRelationEngine() {
+        return (null != relationEngine) ? relationEngine : new RelationEngine((n) -> null);
+    }
+
+    /**
+     * Set the engine that resolves the foreign keys of this Resource. A Package sets its own engine
+     * on the Resources added to it.
+     * @param relationEngine the engine, null to only resolve references to this Resource
+     */
+    public void setRelationEngine(RelationEngine relationEngine) {
+        this.relationEngine = relationEngine;
+    }
+
+    /**
+     * Validate the rows of the Resource against its Schema and foreign keys with a {@link ValidationEngine},
+     * and add up to {@link ValidationEngine#DEFAULT_MAX_ERRORS} errors to the errors of the Resource.
+     * Only Resources with data already in memory are validated.
+     */
     public void validate()  {
         if (null == tables)
             return;
         try {
-            // will validate schema against data
-            tables.forEach(Table::validate);
-            checkRelations();
+            errors.addAll(new ValidationEngine(null).validate(this).getErrors());
         } catch (Exception ex) {
             if (ex instanceof DataPackageValidationException) {
                 errors.add((DataPackageValidationException) ex);
@@ -281,6 +391,16 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
      */
     @JsonIgnore
     public String getJson(){
+        return getJsonNode().toString();
+    }
+
+    /**
+     * Get JSON representation of the object as a tree.
+     * @return a new ObjectNode representing the properties of this object
+     */
+    @JsonIgnore
+    @Override
+    public ObjectNode getJsonNode(){
         ObjectNode json = (ObjectNode) JsonUtil.getInstance().createNode(this);
 
         if (this instanceof URLbasedResource) {
@@ -332,7 +452,10 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
         if(Objects.nonNull(dialectObj)) {
         	json.put(JSON_KEY_DIALECT, dialectObj);
         }
-        return json.toString();
+        if (null != statistics) {
+            json.set(JSON_KEY_STATISTICS, getStatisticsJson());
+        }
+        return json;
     }
 
 
@@ -495,6 +618,10 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
     @Override
     public void setSchema(Schema schema) {
         this.schema = schema;
+        synchronized (this) {
+            this.primaryKeyIndex = null;
+            this.primaryKeyRows = null;
+        }
     }
 
     @JsonIgnore
@@ -544,6 +671,182 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
 
     abstract List<Table> readData() throws Exception;
 
+    /**
+     * Returns one source per part of the Resource data, each creating the {@link Table} for that part.
+     * If the Tables have already been read, they are handed out, otherwise implementations
+     * should only open a part when its Table is requested.
+     *
+     * @return the sources of the Tables, in order
+     * @throws Exception if reading the data fails
+     */
+    List<Callable<Table>> getTableParts() throws Exception {
+        List<Callable<Table>> parts = new ArrayList<>();
+        for (Table table : ensureDataLoaded()) {
+            parts.add(() -> table);
+        }
+        return parts;
+    }
+
+    /**
+     * Returns the Spliterator backing the row Streams. By default, it splits along the parts of
+     * the Resource; implementations that can split their data more finely should override it.
+     *
+     * @param reader opens the row iterator for a Table
+     * @param <R> the row type
+     * @return Spliterator over all rows, in order
+     * @throws Exception if reading the data fails
+     */
+    <R> Spliterator<R> spliterator(PartIterator.RowReader<R> reader) throws Exception {
+        return spliterator(reader, null, null);
+    }
+
+    /**
+     * Returns the Spliterator backing the row Streams, leaving out the parts that can't contain
+     * rows matching `filter` according to the part statistics.
+     *
+     * @param reader opens the row iterator for a Table
+     * @param filter the filter rows must match, null for all rows
+     * @param numbering renumbers rows that carry their row number if a part is read in several
+     *                  Tables, null if rows don't carry a row number
+     * @param <R> the row type
+     * @return Spliterator over all rows, in order
+     * @throws Exception if reading the data fails
+     */
+    <R> Spliterator<R> spliterator(PartIterator.RowReader<R> reader, RowFilter filter,
+                                   CsvSplitSpliterator.RowNumbering<R> numbering) throws Exception {
+        return new PartSpliterator<>(pruneParts(getTableParts(), filter), reader);
+    }
+
+    /*
+     * Relations are resolved by the Table holding the rows, so Streams with relations read each part
+     * as a whole, the same as the iterators do.
+     */
+    private <R> Spliterator<R> partSpliterator(PartIterator.RowReader<R> reader) throws Exception {
+        return new PartSpliterator<>(getTableParts(), reader);
+    }
+
+    /**
+     * Statistics of the fields of each part of the Resource, if known. They are used to skip parts
+     * when reading with a {@link RowFilter}.
+     *
+     * @return per part, the statistics by field name. Null if unknown
+     */
+    @JsonIgnore
+    public List<Map<String, FieldStatistics>> getPartStatistics() {
+        return partStatistics;
+    }
+
+    /**
+     * Set the statistics of the fields of each part of the Resource, in the order of the parts.
+     * @param partStatistics per part, the statistics by field name. Null if unknown
+     */
+    public void setPartStatistics(List<Map<String, FieldStatistics>> partStatistics) {
+        this.partStatistics = partStatistics;
+    }
+
+    @Override
+    public Map<String, FieldStatistics> computeStatistics() throws Exception {
+        StatisticsCollector collector = new StatisticsCollector(schema);
+        for (Callable<Table> part : getTableParts()) {
+            collector.collect(part.call());
+        }
+        this.partStatistics = collector.getPartStatistics();
+        this.statistics = collector.getStatistics();
+        return statistics;
+    }
+
+    @JsonIgnore
+    @Override
+    public Map<String, FieldStatistics> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set the statistics of the fields of the whole Resource.
+     * @param statistics the statistics by field name. Null if unknown
+     */
+    public void setStatistics(Map<String, FieldStatistics> statistics) {
+        this.statistics = statistics;
+    }
+
+    /*
+     The statistics are written as
+        {"fields": {"<field name>": {...}, ...}, "parts": [{"<field name>": {...}, ...}, ...]}
+     with `parts` only present if the part statistics are known.
+     */
+    private ObjectNode getStatisticsJson() {
+        ObjectNode json = JsonUtil.getInstance().createNode();
+        json.set("fields", getStatisticsJson(statistics));
+        if (null != partStatistics) {
+            ArrayNode parts = JsonUtil.getInstance().createArrayNode();
+            for (Map<String, FieldStatistics> part : partStatistics) {
+                if (null == part) {
+                    parts.addNull();
+                } else {
+                    parts.add(getStatisticsJson(part));
+                }
+            }
+            json.set("parts", parts);
+        }
+        return json;
+    }
+
+    private static ObjectNode getStatisticsJson(Map<String, FieldStatistics> statistics) {
+        ObjectNode json = JsonUtil.getInstance().createNode();
+        for (Map.Entry<String, FieldStatistics> entry : statistics.entrySet()) {
+            json.set(entry.getKey(), entry.getValue().getJsonNode());
+        }
+        return json;
+    }
+
+    /**
+     * Restore the statistics written by {@link #getJsonNode()}.
+     * @param json the value of the `statistics` property of the descriptor
+     */
+    void setStatisticsFromJson(JsonNode json) {
+        if ((null == json) || !json.isObject())
+            return;
+        if (json.has("fields")) {
+            this.statistics = statisticsFromJson(json.get("fields"));
+        }
+        if (json.has("parts") && json.get("parts").isArray()) {
+            List<Map<String, FieldStatistics>> parts = new ArrayList<>();
+            for (JsonNode part : json.get("parts")) {
+                parts.add(part.isObject() ? statisticsFromJson(part) : null);
+            }
+            this.partStatistics = parts;
+        }
+    }
+
+    private static Map<String, FieldStatistics> statisticsFromJson(JsonNode json) {
+        Map<String, FieldStatistics> statistics = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            statistics.put(field.getKey(), FieldStatistics.fromJson(field.getValue()));
+        }
+        return statistics;
+    }
+
+    /**
+     * @param parts the parts of the Resource, in order (eg. Tables or file references)
+     * @param filter the filter rows must match, may be null
+     * @return the parts whose statistics don't rule out rows matching `filter`
+     */
+    <E> List<E> pruneParts(List<E> parts, RowFilter filter) {
+        // statistics that don't fit the parts are stale, don't skip anything based on them
+        if ((null == filter) || (null == partStatistics) || (partStatistics.size() != parts.size()))
+            return parts;
+        List<E> pruned = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            Map<String, FieldStatistics> statistics = partStatistics.get(i);
+            if ((null == statistics) || filter.mightMatch(statistics)) {
+                pruned.add(parts.get(i));
+            }
+        }
+        return pruned;
+    }
+
     public abstract Set<String> getDatafileNamesForWriting();
 
     private List<Table> ensureDataLoaded () throws Exception {
@@ -553,29 +856,38 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
         return tables;
     }
 
+    /*
+     Data is written part by part, and each part is copied row by row (see {@link #copyRowsAsCsv}),
+     so writing never holds more than a batch of rows in memory.
+     */
     @Override
     public void writeData(Writer out) throws Exception {
         Dialect lDialect = (null != dialect) ? dialect : Dialect.DEFAULT;
-        List<Table> tables = getTables();
-        for (Table t : tables) {
-            if (serializationFormat.equals(TableDataSource.Format.FORMAT_CSV.getLabel())) {
-                t.writeCsv(out, lDialect.toCsvFormat());
-            } else if (serializationFormat.equals(TableDataSource.Format.FORMAT_JSON.getLabel())) {
-                out.write(t.asJson());
+        List<Callable<Table>> parts = getTableParts();
+        if (serializationFormat.equals(TableDataSource.Format.FORMAT_CSV.getLabel())) {
+            copyRowsAsCsv(parts, out, lDialect.toCsvFormat());
+        } else if (serializationFormat.equals(TableDataSource.Format.FORMAT_JSON.getLabel())) {
+            for (Callable<Table> part : parts) {
+                out.write(part.call().asJson());
             }
         }
     }
 
+    /*
+     Parts are written to the data files one by one. If there are more parts than files (eg. for
+     a Resource copied from a multi-part Resource), the remaining parts go to the last file.
+     */
     @Override
     public void writeData(Path outputDir) throws Exception {
         Dialect lDialect = (null != dialect) ? dialect : Dialect.DEFAULT;
-        List<Table> tables = getTables();
-        Set<String> paths = getDatafileNamesForWriting();
+        List<Callable<Table>> parts = getTableParts();
+        List<String> paths = new ArrayList<>(getDatafileNamesForWriting());
 
-        int cnt = 0;
-        for (String fName : paths) {
-            String fileName = fName+"."+getSerializationFormat();
-            Table t  = tables.get(cnt++);
+        for (int cnt = 0; cnt < paths.size(); cnt++) {
+            String fileName = paths.get(cnt)+"."+getSerializationFormat();
+            List<Callable<Table>> fileParts = (cnt < paths.size() - 1)
+                    ? parts.subList(Math.min(cnt, parts.size()), Math.min(cnt + 1, parts.size()))
+                    : parts.subList(Math.min(cnt, parts.size()), parts.size());
             Path p;
             if (outputDir.toString().isEmpty()) {
                 p = outputDir.getFileSystem().getPath(fileName);
@@ -588,14 +900,202 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
             Files.deleteIfExists(p);
             try (Writer wr = Files.newBufferedWriter(p, StandardCharsets.UTF_8)) {
                 if (serializationFormat.equals(TableDataSource.Format.FORMAT_CSV.getLabel())) {
-                    t.writeCsv(wr, lDialect.toCsvFormat());
+                    copyRowsAsCsv(fileParts, wr, lDialect.toCsvFormat());
                 } else if (serializationFormat.equals(TableDataSource.Format.FORMAT_JSON.getLabel())) {
-                    wr.write(t.asJson());
+                    for (Callable<Table> part : fileParts) {
+                        wr.write(part.call().asJson());
+                    }
                 }
             }
         }
     }
 
+    @Override
+    public void writeRowIndex(Path outputDir) throws IOException {
+        if (!serializationFormat.equals(TableDataSource.Format.FORMAT_CSV.getLabel()))
+            return;
+        Dialect lDialect = (null != dialect) ? dialect : Dialect.DEFAULT;
+        CsvRecordScanner scanner = new CsvRecordScanner(lDialect, lDialect.toCsvFormat().getIgnoreEmptyLines());
+        for (String path : getDatafileNamesForWriting()) {
+            String fileName = path + "." + getSerializationFormat();
+            Path p = outputDir.toString().isEmpty()
+                    ? outputDir.getFileSystem().getPath(fileName)
+                    : outputDir.resolve(fileName);
+            if (Files.exists(p)) {
+                RowOffsetIndex.build(p, scanner, lDialect.isHasHeaderRow(), RowOffsetIndex.DEFAULT_INTERVAL).write(p);
+            }
+        }
+    }
+
+    /*
+     Without an index, all rows before `fromRow` have to be read.
+     */
+    @Override
+    public List<Object[]> readRows(long fromRow, int count) throws Exception {
+        checkRowRange(fromRow, count);
+        List<Object[]> rows = new ArrayList<>();
+        if (count == 0)
+            return rows;
+        Iterator<Object[]> iter = new PartIterator<>(getTableParts(), objectArrayReader());
+        for (long i = 0; (i < fromRow) && iter.hasNext(); i++) {
+            iter.next();
+        }
+        while ((rows.size() < count) && iter.hasNext()) {
+            rows.add(iter.next());
+        }
+        return rows;
+    }
+
+    @Override
+    public Object[] lookup(Object... key) throws Exception {
+        List<Object[]> rows;
+        long row;
+        synchronized (this) {
+            row = getPrimaryKeyIndex(false).find(key);
+            rows = primaryKeyRows;
+        }
+        if (row < 0)
+            return null;
+        if (null != rows)
+            return rows.get((int) row);
+        List<Object[]> result = readRows(row, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    @Override
+    public void createPrimaryKeyIndex(boolean store) throws Exception {
+        synchronized (this) {
+            getPrimaryKeyIndex(store);
+        }
+    }
+
+    /**
+     * @return the maximum number of rows kept in memory with the primary key index of a Resource whose rows
+     * can't be read at random
+     */
+    @JsonIgnore
+    public int getMaxLookupRows() {
+        return maxLookupRows;
+    }
+
+    /**
+     * Set the maximum number of rows kept in memory with the primary key index, for Resources whose rows
+     * can't be read at random, like inlined data or data from URLs. If the Resource has no more rows, lookups
+     * are served from memory, else every lookup reads the rows up to the key. Local CSV files, also in ZIP
+     * archives, are always read at random and never kept in memory. Drops the index.
+     *
+     * @param maxLookupRows the maximum number of rows, 0 to never keep rows. The default is
+     *                      {@link #DEFAULT_MAX_LOOKUP_ROWS}
+     */
+    public void setMaxLookupRows(int maxLookupRows) {
+        synchronized (this) {
+            this.maxLookupRows = Math.max(0, maxLookupRows);
+            this.primaryKeyIndex = null;
+            this.primaryKeyRows = null;
+        }
+    }
+
+    /*
+     Indexes over files that can be read at random only keep row numbers, they are stamped with the state
+     of the files and can be stored next to them. Other Resources keep their rows with the index, up to
+     maxLookupRows of them.
+     */
+    private KeyIndex getPrimaryKeyIndex(boolean store) throws Exception {
+        List<Path> files = getRandomAccessFiles();
+        long signature = getRowSignature();
+        if ((null != primaryKeyIndex) && ((null == files) || primaryKeyIndex.isValidFor(files, signature))) {
+            if (store && (null != files) && canStoreIndexes())
+                primaryKeyIndex.write(files, signature);
+            return primaryKeyIndex;
+        }
+        primaryKeyIndex = null;
+        primaryKeyRows = null;
+        List<String> keyFields = KeyIndex.getPrimaryKey(schema);
+        if (keyFields.isEmpty())
+            throw new DataPackageException("Resource " + name + " has no primary key in its Schema");
+        if (null == files) {
+            List<Object[]> rows = new ArrayList<>();
+            // rows are only kept while there are at most maxLookupRows of them
+            boolean[] keepRows = {maxLookupRows > 0};
+            List<String> fieldNames = new ArrayList<>();
+            for (Field<?> field : schema.getFields()) {
+                fieldNames.add(field.getName());
+            }
+            int[] keyColumns = new int[keyFields.size()];
+            for (int i = 0; i < keyColumns.length; i++) {
+                keyColumns[i] = fieldNames.indexOf(keyFields.get(i));
+            }
+            Iterator<Object[]> iter = objectArrayIterator();
+            Iterator<Object[]> keys = new Iterator<Object[]>() {
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public Object[] next() {
+                    Object[] row = iter.next();
+                    if (keepRows[0]) {
+                        rows.add(row);
+                        if (rows.size() > maxLookupRows) {
+                            keepRows[0] = false;
+                            rows.clear();
+                        }
+                    }
+                    Object[] key = new Object[keyColumns.length];
+                    for (int i = 0; i < keyColumns.length; i++) {
+                        key[i] = ((keyColumns[i] >= 0) && (keyColumns[i] < row.length)) ? row[keyColumns[i]] : null;
+                    }
+                    return key;
+                }
+            };
+            primaryKeyIndex = KeyIndex.build(schema, keys);
+            primaryKeyRows = keepRows[0] ? rows : null;
+            return primaryKeyIndex;
+        }
+        KeyIndex index = KeyIndex.read(files, schema, signature);
+        if (null == index) {
+            index = KeyIndex.build(schema, objectArrayIterator(keyFields));
+            index.stamp(files, signature);
+            if (store && canStoreIndexes())
+                index.write(files, signature);
+        }
+        primaryKeyIndex = index;
+        return primaryKeyIndex;
+    }
+
+    /**
+     * Returns the data files if rows can be read at random with {@link #readRows(long, int)}. Indexes
+     * over such files only need to store row numbers, and can be stored next to the files.
+     *
+     * @return the local data files, or null if rows can't be read at random
+     * @throws IOException if a data file path is not allowed
+     */
+    List<Path> getRandomAccessFiles() throws IOException {
+        return null;
+    }
+
+    /**
+     * @return a value that changes if the rows of the data files are counted differently, eg. because the
+     * Dialect changed
+     */
+    long getRowSignature() {
+        return 0;
+    }
+
+    /**
+     * @return false if the files of {@link #getRandomAccessFiles()} are temporary, so indexes are not
+     * stored next to them
+     */
+    boolean canStoreIndexes() {
+        return true;
+    }
+
+    static void checkRowRange(long fromRow, int count) {
+        if ((fromRow < 0) || (count < 0))
+            throw new DataPackageException("Invalid row range: " + count + " rows from row " + fromRow);
+    }
+
     /**
      * Write the Table as CSV into a file inside `outputDir`.
      *
@@ -609,7 +1109,41 @@ public abstract class AbstractResource<T,C> extends JSONBase implements Resource
         }
         Files.deleteIfExists(outputFile);
         try (Writer wr = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
-            t.writeCsv(wr, dialect.toCsvFormat());
+            copyRowsAsCsv(Collections.singletonList(() -> t), wr, dialect.toCsvFormat());
+        }
+    }
+
+    /**
+     * Copy the rows of the Tables of `parts` as CSV to `out`. The header row is taken from the first part
+     * and written once. Parts are opened one after the other, and each row is printed as soon as it is
+     * read, so memory stays constant regardless of the number of rows.
+     *
+     * @param parts the sources of the Tables to copy, in order
+     * @param out the Writer to write to. It is flushed, but not closed
+     * @param format the CSV format to write
+     * @return the number of rows written, not counting the header row
+     * @throws Exception if reading or writing fails
+     */
+    static long copyRowsAsCsv(List<Callable<Table>> parts, Appendable out, CSVFormat format) throws Exception {
+        if (parts.isEmpty())
+            return 0;
+        String[][] headers = new String[1][];
+        PartIterator<String[]> rows = new PartIterator<>(parts, (table) -> {
+            if (null == headers[0]) {
+                headers[0] = table.getHeaders();
+            }
+            return table.stringArrayIterator();
+        });
+        // opens the first part, so the headers are known before the printer writes them
+        rows.hasNext();
+        CSVFormat lFormat = (null != headers[0]) ? format.withHeader(headers[0]) : format;
+        CSVPrinter printer = new CSVPrinter(out, lFormat);
+        long count = 0;
+        while (rows.hasNext()) {
+            printer.printRecord((Object[]) rows.next());
+            count++;
         }
+        printer.flush();
+        return count;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+
+import java.util.*;
+
+/**
+ * A batch of rows of a Resource, stored column by column in primitive vectors. `integer` and `year`
+ * fields are stored as `long[]`, `number` fields as `double[]`, `boolean` fields as `boolean[]`, and all
+ * other fields as dictionary-encoded strings: an `int[]` of codes into a dictionary of the distinct values.
+ *
+ * A ColumnBatch is filled by a {@link ColumnBatchIterator} and reused for every batch, so scanning a
+ * Resource does not allocate cast values, row arrays or maps per row. The vectors are only valid until
+ * the next batch is read. Dictionaries are kept over all batches of an iteration, so a code denotes the
+ * same string in every batch.
+ *
+ * Vectors have the length of the batch capacity, only the first {@link #size()} entries are valid.
+ * Entries of missing values are 0, 0.0, false or -1 (for string codes) and flagged in {@link #isNull(int, int)}.
+ */
+public class ColumnBatch {
+
+    /**
+     * The vector type a column is stored in
+     */
+    public enum ColumnType {
+        LONG,
+        DOUBLE,
+        BOOLEAN,
+        STRING
+    }
+
+    private final String[] headers;
+    private final ColumnType[] types;
+    private final int capacity;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final boolean[][] booleans;
+    private final int[][] codes;
+    private final boolean[][] nulls;
+    private final List<List<String>> dictionaries;
+    private final List<Map<String, Integer>> dictionaryIndexes;
+    private int size = 0;
+
+    ColumnBatch(String[] headers, ColumnType[] types, int capacity) {
+        this.headers = headers;
+        this.types = types;
+        this.capacity = capacity;
+        int columns = headers.length;
+        longs = new long[columns][];
+        doubles = new double[columns][];
+        booleans = new boolean[columns][];
+        codes = new int[columns][];
+        nulls = new boolean[columns][capacity];
+        dictionaries = new ArrayList<>(columns);
+        dictionaryIndexes = new ArrayList<>(columns);
+        for (int i = 0; i < columns; i++) {
+            switch (types[i]) {
+                case LONG:
+                    longs[i] = new long[capacity];
+                    break;
+                case DOUBLE:
+                    doubles[i] = new double[capacity];
+                    break;
+                case BOOLEAN:
+                    booleans[i] = new boolean[capacity];
+                    break;
+                default:
+                    codes[i] = new int[capacity];
+            }
+            dictionaries.add((types[i] == ColumnType.STRING) ? new ArrayList<>() : null);
+            dictionaryIndexes.add((types[i] == ColumnType.STRING) ? new HashMap<>() : null);
+        }
+    }
+
+    /**
+     * @return number of valid rows in this batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return maximum number of rows in a batch, the length of the vectors
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public int getColumnCount() {
+        return headers.length;
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    /**
+     * @param header the name of a column
+     * @return the index of the column, -1 if there is no column of that name
+     */
+    public int getColumnIndex(String header) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i].equals(header))
+                return i;
+        }
+        return -1;
+    }
+
+    public ColumnType getColumnType(int column) {
+        return types[column];
+    }
+
+    public long[] getLongs(int column) {
+        return vector(longs, column, ColumnType.LONG);
+    }
+
+    public double[] getDoubles(int column) {
+        return vector(doubles, column, ColumnType.DOUBLE);
+    }
+
+    public boolean[] getBooleans(int column) {
+        return vector(booleans, column, ColumnType.BOOLEAN);
+    }
+
+    /**
+     * @param column index of a STRING column
+     * @return codes into the dictionary of the column, see {@link #getDictionary(int)}
+     */
+    public int[] getStringCodes(int column) {
+        return vector(codes, column, ColumnType.STRING);
+    }
+
+    /**
+     * @param column index of a STRING column
+     * @return the distinct values of the column read so far, indexed by their code
+     */
+    public List<String> getDictionary(int column) {
+        vector(codes, column, ColumnType.STRING);
+        return Collections.unmodifiableList(dictionaries.get(column));
+    }
+
+    /**
+     * @param column index of a STRING column
+     * @param row index of the row in this batch
+     * @return the decoded value, null if missing
+     */
+    public String getString(int column, int row) {
+        int code = getStringCodes(column)[row];
+        return (code < 0) ? null : dictionaries.get(column).get(code);
+    }
+
+    /**
+     * @param column index of the column
+     * @param row index of the row in this batch
+     * @return true if the value is missing
+     */
+    public boolean isNull(int column, int row) {
+        return nulls[column][row];
+    }
+
+    void clear(boolean resetDictionaries) {
+        size = 0;
+        if (resetDictionaries) {
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == ColumnType.STRING) {
+                    dictionaries.get(i).clear();
+                    dictionaryIndexes.get(i).clear();
+                }
+            }
+        }
+    }
+
+    int add() {
+        return size++;
+    }
+
+    void setNull(int column, int row) {
+        nulls[column][row] = true;
+        switch (types[column]) {
+            case LONG:
+                longs[column][row] = 0;
+                break;
+            case DOUBLE:
+                doubles[column][row] = 0.0;
+                break;
+            case BOOLEAN:
+                booleans[column][row] = false;
+                break;
+            default:
+                codes[column][row] = -1;
+        }
+    }
+
+    void setLong(int column, int row, long value) {
+        nulls[column][row] = false;
+        longs[column][row] = value;
+    }
+
+    void setDouble(int column, int row, double value) {
+        nulls[column][row] = false;
+        doubles[column][row] = value;
+    }
+
+    void setBoolean(int column, int row, boolean value) {
+        nulls[column][row] = false;
+        booleans[column][row] = value;
+    }
+
+    void setString(int column, int row, String value) {
+        nulls[column][row] = false;
+        Map<String, Integer> index = dictionaryIndexes.get(column);
+        Integer code = index.get(value);
+        if (null == code) {
+            List<String> dictionary = dictionaries.get(column);
+            code = dictionary.size();
+            dictionary.add(value);
+            index.put(value, code);
+        }
+        codes[column][row] = code;
+    }
+
+    private <V> V vector(V[] vectors, int column, ColumnType type) {
+        if (types[column] != type)
+            throw new DataPackageException("Column " + headers[column] + " is of type " + types[column] + ", not " + type);
+        return vectors[column];
+    }
+}
@@ -0,0 +1,337 @@
+package io.frictionlessdata.datapackage.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.Table;
+import io.frictionlessdata.tableschema.field.Field;
+import io.frictionlessdata.tableschema.schema.Schema;
+import io.frictionlessdata.tableschema.util.JsonUtil;
+
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Iterator that reads the rows of a Resource in batches into the column vectors of a {@link ColumnBatch}.
+ * Vector types are derived from the types of the Schema fields, see {@link ColumnBatch}; without a Schema,
+ * all columns are read as strings.
+ *
+ * Values are parsed from the raw strings straight into the vectors. Integers, numbers and booleans in
+ * their plain notation are parsed without creating objects; other notations (eg. numbers with group
+ * characters) and fields that change the notation (eg. by `groupChar` or `trueValues`, see
+ * {@link #getCustomNotationFields(Schema)}) fall back to the cast of the Field.
+ *
+ * Every call to {@link #next()} returns the same ColumnBatch instance, refilled with the next rows.
+ */
+public class ColumnBatchIterator implements Iterator<ColumnBatch> {
+    // Long.MIN_VALUE has 19 digits, so parseLong never returns it for a valid value
+    static final long NOT_A_LONG = Long.MIN_VALUE;
+
+    private static final List<String> DEFAULT_TRUE_VALUES = Arrays.asList("true", "True", "TRUE", "1");
+    private static final List<String> DEFAULT_FALSE_VALUES = Arrays.asList("false", "False", "FALSE", "0");
+
+    private final PartIterator<String[]> rows;
+    private final Schema schema;
+    private final int batchSize;
+    private final String nullSequence;
+    private final boolean retainDictionaries;
+    private final Projection projection;
+    private final Set<String> customNotationFields;
+    private String[] headers = null;
+    private int[] columns = null;
+    private ColumnBatch batch = null;
+    private Field<?>[] fields = null;
+    private boolean[] castOnly = null;
+    private long rowNumber = 0;
+
+    /**
+     * @param parts sources of the Tables of all parts, in order
+     * @param schema the Schema to type the columns by, may be null
+     * @param nullSequence a value that denotes a missing value besides the empty string, may be null
+     * @param batchSize the maximum number of rows per batch
+     * @param retainDictionaries true: keep string dictionaries over all batches, so codes are stable.
+     *                           false: start new dictionaries for every batch, so memory stays bounded
+     * @param projection the fields to read, null for all fields
+     */
+    ColumnBatchIterator(List<Callable<Table>> parts, Schema schema, String nullSequence, int batchSize,
+                        boolean retainDictionaries, Projection projection) {
+        if (batchSize < 1)
+            throw new DataPackageException("Batch size must be positive");
+        this.schema = schema;
+        this.nullSequence = nullSequence;
+        this.batchSize = batchSize;
+        this.retainDictionaries = retainDictionaries;
+        this.projection = projection;
+        this.customNotationFields = getCustomNotationFields(schema);
+        this.rows = new PartIterator<>(parts, (table) -> {
+            if (null == headers) {
+                headers = table.getHeaders();
+            }
+            if (null != projection) {
+                // parts are opened before their first row is returned, so this applies to their rows
+                columns = projection.resolve(table.getHeaders());
+            }
+            return table.stringArrayIterator(false);
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rows.hasNext();
+    }
+
+    /**
+     * Read up to batch size rows.
+     * @return the batch, reused for all calls
+     */
+    @Override
+    public ColumnBatch next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        if (null == batch) {
+            createBatch();
+        }
+        batch.clear(!retainDictionaries);
+        while ((batch.size() < batchSize) && rows.hasNext()) {
+            String[] row = rows.next();
+            rowNumber++;
+            int rowIndex = batch.add();
+            for (int col = 0; col < fields.length; col++) {
+                int source = (null != columns) ? columns[col] : col;
+                String value = (source < row.length) ? row[source] : null;
+                setValue(col, rowIndex, value);
+            }
+        }
+        return batch;
+    }
+
+    private void createBatch() {
+        String[] lHeaders;
+        if (null != projection) {
+            lHeaders = projection.getFieldNames().toArray(new String[0]);
+        } else {
+            lHeaders = (null != headers) ? headers : new String[0];
+        }
+        Map<String, Field<?>> fieldsByName = new HashMap<>();
+        if (null != schema) {
+            for (Field<?> field : schema.getFields()) {
+                fieldsByName.put(field.getName(), field);
+            }
+        }
+        fields = new Field<?>[lHeaders.length];
+        castOnly = new boolean[lHeaders.length];
+        ColumnBatch.ColumnType[] types = new ColumnBatch.ColumnType[lHeaders.length];
+        for (int i = 0; i < lHeaders.length; i++) {
+            fields[i] = fieldsByName.get(lHeaders[i]);
+            types[i] = toColumnType(fields[i]);
+            castOnly[i] = customNotationFields.contains(lHeaders[i]);
+        }
+        batch = new ColumnBatch(lHeaders, types, batchSize);
+    }
+
+    private static ColumnBatch.ColumnType toColumnType(Field<?> field) {
+        if (null == field)
+            return ColumnBatch.ColumnType.STRING;
+        switch (field.getType()) {
+            case "integer":
+            case "year":
+                return ColumnBatch.ColumnType.LONG;
+            case "number":
+                return ColumnBatch.ColumnType.DOUBLE;
+            case "boolean":
+                return ColumnBatch.ColumnType.BOOLEAN;
+            default:
+                return ColumnBatch.ColumnType.STRING;
+        }
+    }
+
+    private void setValue(int col, int row, String value) {
+        // the tableschema default for missing values is the empty string
+        if ((null == value) || value.isEmpty() || value.equals(nullSequence)) {
+            batch.setNull(col, row);
+            return;
+        }
+        switch (batch.getColumnType(col)) {
+            case LONG: {
+                long parsed = parseLong(value);
+                if (parsed != NOT_A_LONG) {
+                    batch.setLong(col, row, parsed);
+                } else {
+                    Object cast = cast(col, value);
+                    if (null == cast) {
+                        batch.setNull(col, row);
+                    } else {
+                        batch.setLong(col, row, toNumber(col, cast).longValue());
+                    }
+                }
+                break;
+            }
+            case DOUBLE: {
+                if (!castOnly[col] && isPlainNumber(value)) {
+                    batch.setDouble(col, row, Double.parseDouble(value));
+                    break;
+                }
+                Object cast = cast(col, value);
+                if (null == cast) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setDouble(col, row, toNumber(col, cast).doubleValue());
+                }
+                break;
+            }
+            case BOOLEAN: {
+                if (!castOnly[col]) {
+                    if (DEFAULT_TRUE_VALUES.contains(value)) {
+                        batch.setBoolean(col, row, true);
+                        break;
+                    } else if (DEFAULT_FALSE_VALUES.contains(value)) {
+                        batch.setBoolean(col, row, false);
+                        break;
+                    }
+                }
+                Object cast = cast(col, value);
+                if (null == cast) {
+                    batch.setNull(col, row);
+                } else {
+                    batch.setBoolean(col, row, (Boolean) cast);
+                }
+                break;
+            }
+            default:
+                batch.setString(col, row, value);
+        }
+    }
+
+    /*
+     Parses a plain decimal integer of up to 18 digits without allocating. Returns NOT_A_LONG if `value`
+     is not one, so the caller falls back to the Field cast.
+     */
+    static long parseLong(String value) {
+        int len = value.length();
+        int i = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if ((first == '-') || (first == '+')) {
+            negative = (first == '-');
+            i++;
+        }
+        if ((i == len) || (len - i > 18))
+            return NOT_A_LONG;
+        long result = 0;
+        for (; i < len; i++) {
+            char c = value.charAt(i);
+            if ((c < '0') || (c > '9'))
+                return NOT_A_LONG;
+            result = result * 10 + (c - '0');
+        }
+        return negative ? -result : result;
+    }
+
+    /*
+     Checks for a decimal number in plain notation (optional sign, digits with an optional decimal point,
+     optional exponent), which Double.parseDouble parses the same as the Field. Double.parseDouble also
+     accepts notations the Field doesn't (eg. surrounding whitespace or a `d` suffix), so it is only
+     called after this check.
+     */
+    static boolean isPlainNumber(String value) {
+        int len = value.length();
+        int i = 0;
+        if ((i < len) && ((value.charAt(i) == '-') || (value.charAt(i) == '+')))
+            i++;
+        int digits = 0;
+        for (; (i < len) && isDigit(value.charAt(i)); i++) {
+            digits++;
+        }
+        if ((i < len) && (value.charAt(i) == '.')) {
+            for (i++; (i < len) && isDigit(value.charAt(i)); i++) {
+                digits++;
+            }
+        }
+        if (digits == 0)
+            return false;
+        if ((i < len) && ((value.charAt(i) == 'e') || (value.charAt(i) == 'E'))) {
+            i++;
+            if ((i < len) && ((value.charAt(i) == '-') || (value.charAt(i) == '+')))
+                i++;
+            int exponentDigits = 0;
+            for (; (i < len) && isDigit(value.charAt(i)); i++) {
+                exponentDigits++;
+            }
+            if (exponentDigits == 0)
+                return false;
+        }
+        return i == len;
+    }
+
+    private static boolean isDigit(char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    /**
+     * Find the fields whose values must be cast by the Field instead of being parsed in plain notation,
+     * because their Schema changes the notation: number fields with a `decimalChar` other than ".", a
+     * `groupChar` or `bareNumber: false`, integer fields with `bareNumber: false`, and boolean fields with
+     * `trueValues` or `falseValues` other than the defaults.
+     *
+     * @param schema the Schema, may be null
+     * @return the names of the fields
+     */
+    static Set<String> getCustomNotationFields(Schema schema) {
+        Set<String> names = new HashSet<>();
+        if (null == schema)
+            return names;
+        JsonNode fields = JsonUtil.getInstance().readValue(schema.getJson()).get("fields");
+        if ((null == fields) || !fields.isArray())
+            return names;
+        for (JsonNode field : fields) {
+            if (hasCustomNotation(field)) {
+                names.add(field.path("name").asText());
+            }
+        }
+        return names;
+    }
+
+    private static boolean hasCustomNotation(JsonNode field) {
+        switch (field.path("type").asText()) {
+            case "number":
+                return !field.path("decimalChar").asText(".").equals(".")
+                        || !field.path("groupChar").asText("").isEmpty()
+                        || !field.path("bareNumber").asBoolean(true);
+            case "integer":
+                return !field.path("bareNumber").asBoolean(true);
+            case "boolean":
+                return !isDefault(field.get("trueValues"), DEFAULT_TRUE_VALUES)
+                        || !isDefault(field.get("falseValues"), DEFAULT_FALSE_VALUES);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isDefault(JsonNode values, List<String> defaults) {
+        if ((null == values) || values.isNull())
+            return true;
+        Set<String> set = new HashSet<>();
+        values.forEach((value) -> set.add(value.asText()));
+        return set.equals(new HashSet<>(defaults));
+    }
+
+    private Object cast(int col, String value) {
+        try {
+            return fields[col].castValue(value);
+        } catch (Exception ex) {
+            throw new DataPackageException("Cannot cast value '" + value + "' in row " + rowNumber
+                    + ", column " + batch.getHeaders()[col] + " to " + fields[col].getType(), ex);
+        }
+    }
+
+    private Number toNumber(int col, Object cast) {
+        if (cast instanceof Number)
+            return (Number) cast;
+        if (cast instanceof TemporalAccessor) {
+            // year fields cast to java.time.Year
+            return ((TemporalAccessor) cast).getLong(ChronoField.YEAR);
+        }
+        throw new DataPackageException("Value " + cast + " of column " + batch.getHeaders()[col] + " is not numeric");
+    }
+}
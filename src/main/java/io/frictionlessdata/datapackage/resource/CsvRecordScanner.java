@@ -0,0 +1,136 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.Dialect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Finds the records of a CSV file on the byte level, without parsing them: a record ends at a line
+ * terminator that is not inside a quoted value, according to the quote, escape and comment characters
+ * of the {@link Dialect}. Scanning only looks for a few byte values, it is much cheaper than parsing.
+ *
+ * This requires that line terminators, quotes and escapes are single bytes that can't be part
+ * of other characters, so the file encoding must be ASCII-compatible
+ * (see {@link CsvSplitSpliterator#isSplittable(java.nio.charset.Charset)}).
+ */
+final class CsvRecordScanner {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int quote;
+    private final int escape;
+    private final int comment;
+    private final int terminator;
+    private final boolean ignoreEmptyLines;
+
+    /**
+     * Receives the end offsets of the records found while scanning.
+     */
+    interface RecordHandler {
+        /**
+         * @param end offset of the first byte after the record
+         * @param isRow false if the record is a comment or an empty line the parser skips
+         * @return true to continue scanning, false to stop
+         */
+        boolean onRecord(long end, boolean isRow) throws IOException;
+    }
+
+    /**
+     * @param dialect the Dialect of the file, null for the default Dialect
+     * @param ignoreEmptyLines whether the parser skips empty lines, see
+     *                         {@link org.apache.commons.csv.CSVFormat#getIgnoreEmptyLines()}
+     */
+    CsvRecordScanner(Dialect dialect, boolean ignoreEmptyLines) {
+        Dialect lDialect = (null != dialect) ? dialect : Dialect.DEFAULT;
+        this.quote = (null != lDialect.getQuoteChar()) ? lDialect.getQuoteChar() : -1;
+        // an escape char equal to the quote char is just quote doubling, which keeps the quote parity
+        this.escape = ((null != lDialect.getEscapeChar()) && (lDialect.getEscapeChar() != quote))
+                ? lDialect.getEscapeChar()
+                : -1;
+        this.comment = (null != lDialect.getCommentChar()) ? lDialect.getCommentChar() : -1;
+        String lineTerminator = lDialect.getLineTerminator();
+        // "\r\n" and "\n" records both end with a '\n'
+        this.terminator = ((null == lineTerminator) || lineTerminator.isEmpty())
+                ? '\n'
+                : lineTerminator.charAt(lineTerminator.length() - 1);
+        this.ignoreEmptyLines = ignoreEmptyLines;
+    }
+
+    /**
+     * @return a value that differs between scanners that may find different records in the same bytes
+     */
+    long signature() {
+        long signature = quote;
+        signature = signature * 31 + escape;
+        signature = signature * 31 + comment;
+        signature = signature * 31 + terminator;
+        return signature * 31 + (ignoreEmptyLines ? 1 : 0);
+    }
+
+    /**
+     * Scan the records from `start` on, which must be a record boundary. A last record without a line
+     * terminator ends at `size`.
+     *
+     * @param channel the file
+     * @param start offset to start scanning at
+     * @param size size of the file
+     * @param handler receives the end of each record
+     * @return the end of the record for which the handler stopped scanning, or `size`
+     * @throws IOException if reading fails
+     */
+    long scan(FileChannel channel, long start, long size, RecordHandler handler) throws IOException {
+        boolean inQuotes = false;
+        boolean escaped = false;
+        boolean inComment = false;
+        boolean commentRecord = false;
+        boolean blank = true;
+        boolean atRecordStart = true;
+        long recordStart = start;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long pos = start;
+        while (pos < size) {
+            buffer.clear();
+            int n = channel.read(buffer, pos);
+            if (n < 0)
+                break;
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < n; i++) {
+                int b = bytes[i] & 0xFF;
+                boolean literal = escaped;
+                if (escaped) {
+                    escaped = false;
+                } else if (inComment) {
+                    inComment = (b != terminator);
+                } else if (b == escape) {
+                    escaped = true;
+                } else if (b == quote) {
+                    // a doubled quote inside a quoted value toggles twice
+                    inQuotes = !inQuotes;
+                } else if (atRecordStart && (b == comment)) {
+                    inComment = true;
+                    commentRecord = true;
+                }
+                atRecordStart = false;
+                if ((b != terminator) && (b != '\r')) {
+                    blank = false;
+                }
+                if ((b == terminator) && !inQuotes && !literal && !inComment) {
+                    long end = pos + i + 1;
+                    boolean isRow = !commentRecord && !(blank && ignoreEmptyLines);
+                    atRecordStart = true;
+                    commentRecord = false;
+                    blank = true;
+                    recordStart = end;
+                    if (!handler.onRecord(end, isRow))
+                        return end;
+                }
+            }
+            pos += n;
+        }
+        if (recordStart < size) {
+            handler.onRecord(size, !commentRecord && !(blank && ignoreEmptyLines));
+        }
+        return size;
+    }
+}
@@ -0,0 +1,334 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.Dialect;
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.Table;
+import io.frictionlessdata.tableschema.schema.Schema;
+import org.apache.commons.csv.CSVFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the rows of local CSV files that can split inside a single file, so a parallel
+ * Stream parses one large file on all cores instead of one.
+ *
+ * Files are split at byte offsets. As a split offset will usually be in the middle of a record, it is
+ * moved forward to the next record boundary found by a {@link CsvRecordScanner}. Whether an offset
+ * is inside quotes can only be told by scanning from a known record boundary, so the boundaries found
+ * while scanning are kept per file as checkpoints, and each byte of a file is scanned about once, no matter
+ * how often it is split.
+ *
+ * Each split then reads its byte range in blocks of whole records and parses each block as a {@link Table},
+ * with the header row of the file prepended. Memory therefore stays bounded by the block size. The scanner
+ * also counts the rows before each boundary, so rows that carry their row number (eg. extended rows) are
+ * renumbered to their row in the file with a {@link RowNumbering}.
+ *
+ * Scanning bytes requires an ASCII-compatible file encoding (see {@link #isSplittable(Charset)}).
+ *
+ * @param <R> the row type, eg. String[], Object[] or a Map
+ */
+class CsvSplitSpliterator<R> implements Spliterator<R> {
+    static final int DEFAULT_BLOCK_SIZE = 8 * 1024 * 1024;
+    static final int DEFAULT_MIN_SPLIT_SIZE = 1024 * 1024;
+
+    /**
+     * Shifts the row number a row carries, for rows read from a block that doesn't start at the first
+     * row of its file.
+     * @param <R> the row type
+     */
+    @FunctionalInterface
+    interface RowNumbering<R> {
+        /**
+         * @param row a row of a block, numbered from the start of the block
+         * @param offset the number of rows of the file before the block
+         * @return the row, numbered from the start of the file
+         */
+        R shift(R row, long offset);
+    }
+
+    /**
+     * Numbering of extended rows, which hold the row number in their first entry.
+     */
+    static final RowNumbering<Object[]> EXTENDED_ROWS = (row, offset) -> {
+        if (row[0] instanceof Number) {
+            long number = ((Number) row[0]).longValue() + offset;
+            row[0] = (number <= Integer.MAX_VALUE) ? (Object) (int) number : (Object) number;
+        }
+        return row;
+    };
+
+    private final List<Segment> segments;
+    private final PartIterator.RowReader<R> reader;
+    private final RowNumbering<R> numbering;
+    private final Settings settings;
+    private Iterator<R> rows = null;
+    private boolean started = false;
+
+    /**
+     * @param files the CSV files, in order
+     * @param dialect the Dialect of the files, null for the default Dialect
+     * @param schema the Schema of the Resource, may be null
+     * @param format the CSVFormat to parse the files with
+     * @param encoding the encoding of the files, must be splittable
+     * @param reader opens the row iterator for a Table
+     * @param numbering renumbers the rows of blocks, null if rows don't carry a row number
+     * @param blockSize how many bytes to parse as one Table at most (rounded up to whole records)
+     * @param minSplitSize byte ranges smaller than this are not split any further
+     */
+    CsvSplitSpliterator(List<Path> files, Dialect dialect, Schema schema, CSVFormat format, Charset encoding,
+                        PartIterator.RowReader<R> reader, RowNumbering<R> numbering, int blockSize, int minSplitSize) {
+        this.reader = reader;
+        this.numbering = numbering;
+        this.settings = new Settings((null != dialect) ? dialect : Dialect.DEFAULT,
+                schema, format, encoding, blockSize, minSplitSize);
+        this.segments = new ArrayList<>();
+        for (Path file : files) {
+            segments.add(new Segment(new CsvFile(file, settings)));
+        }
+    }
+
+    private CsvSplitSpliterator(List<Segment> segments, PartIterator.RowReader<R> reader,
+                                RowNumbering<R> numbering, Settings settings) {
+        this.segments = segments;
+        this.reader = reader;
+        this.numbering = numbering;
+        this.settings = settings;
+    }
+
+    /**
+     * @param encoding encoding of the data files
+     * @return true if the encoding allows scanning for record boundaries on the byte level
+     */
+    static boolean isSplittable(Charset encoding) {
+        return encoding.equals(StandardCharsets.UTF_8)
+                || (encoding.canEncode() && (encoding.newEncoder().maxBytesPerChar() == 1.0f)
+                    && (encoding.encode("\n\"").remaining() == 2));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+        started = true;
+        try {
+            while ((null == rows) || !rows.hasNext()) {
+                rows = null;
+                if (segments.isEmpty())
+                    return false;
+                Segment segment = segments.get(0);
+                if (segment.from >= segment.to) {
+                    segments.remove(0);
+                    continue;
+                }
+                rows = readBlock(segment);
+            }
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new DataPackageException("Cannot read the Resource data", ex);
+        }
+        action.accept(rows.next());
+        return true;
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+        // once reading started, the remaining ranges belong to this Spliterator
+        if (started || segments.isEmpty())
+            return null;
+        if (segments.size() > 1) {
+            int mid = segments.size() >>> 1;
+            List<Segment> prefix = new ArrayList<>(segments.subList(0, mid));
+            segments.subList(0, mid).clear();
+            return new CsvSplitSpliterator<>(prefix, reader, numbering, settings);
+        }
+        Segment segment = segments.get(0);
+        if (segment.to - segment.from < settings.minSplitSize)
+            return null;
+        try {
+            long boundary = segment.file.findBoundary(segment.from + (segment.to - segment.from) / 2);
+            if ((boundary <= segment.from) || (boundary >= segment.to))
+                return null;
+            List<Segment> prefix = new ArrayList<>();
+            prefix.add(new Segment(segment.file, segment.from, boundary));
+            segment.from = boundary;
+            return new CsvSplitSpliterator<>(prefix, reader, numbering, settings);
+        } catch (IOException ex) {
+            throw new DataPackageException("Cannot split " + segment.file.path, ex);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.to - segment.from;
+        }
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    private Iterator<R> readBlock(Segment segment) throws Exception {
+        CsvFile file = segment.file;
+        long end = Math.min(segment.to, file.findBoundary(Math.min(segment.from + settings.blockSize, segment.to)));
+        byte[] content = new byte[file.header.length + (int) (end - segment.from)];
+        System.arraycopy(file.header, 0, content, 0, file.header.length);
+        file.read(segment.from, content, file.header.length);
+        long rowOffset = file.rowsBefore(segment.from) - file.rowsBefore(file.dataStart);
+        segment.from = end;
+        Table table = Table.fromSource(new String(content, settings.encoding), settings.schema, settings.format);
+        Iterator<R> blockRows = reader.read(table);
+        if ((null == numbering) || (rowOffset == 0))
+            return blockRows;
+        return new Iterator<R>() {
+            @Override
+            public boolean hasNext() {
+                return blockRows.hasNext();
+            }
+
+            @Override
+            public R next() {
+                return numbering.shift(blockRows.next(), rowOffset);
+            }
+        };
+    }
+
+    /**
+     * Byte range of a CSV file. `from` and `to` are always record boundaries.
+     */
+    private static final class Segment {
+        private final CsvFile file;
+        private long from;
+        private final long to;
+
+        private Segment(CsvFile file) {
+            this(file, file.dataStart, file.size);
+        }
+
+        private Segment(CsvFile file, long from, long to) {
+            this.file = file;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class Settings {
+        private final CsvRecordScanner scanner;
+        private final boolean hasHeaderRow;
+        private final Schema schema;
+        private final CSVFormat format;
+        private final Charset encoding;
+        private final int blockSize;
+        private final int minSplitSize;
+
+        private Settings(Dialect dialect, Schema schema, CSVFormat format, Charset encoding,
+                         int blockSize, int minSplitSize) {
+            this.scanner = new CsvRecordScanner(dialect, format.getIgnoreEmptyLines());
+            this.hasHeaderRow = dialect.isHasHeaderRow();
+            this.schema = schema;
+            this.format = format;
+            this.encoding = encoding;
+            this.blockSize = Math.max(1, blockSize);
+            this.minSplitSize = Math.max(1, minSplitSize);
+        }
+    }
+
+    /**
+     * A CSV file shared by all Spliterators split off from the same root, with the record
+     * boundaries found so far and the number of records before each of them.
+     */
+    private static final class CsvFile {
+        private final Path path;
+        private final Settings settings;
+        private final long size;
+        private final ConcurrentSkipListMap<Long, Long> boundaries = new ConcurrentSkipListMap<>();
+        private final byte[] header;
+        private final long dataStart;
+
+        private CsvFile(Path path, Settings settings) {
+            this.path = path;
+            this.settings = settings;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                size = channel.size();
+            } catch (IOException ex) {
+                throw new DataPackageException("Cannot read " + path, ex);
+            }
+            boundaries.put(0L, 0L);
+            try {
+                dataStart = settings.hasHeaderRow ? findBoundary(1) : 0;
+                header = new byte[(int) dataStart];
+                read(0, header, 0);
+            } catch (IOException ex) {
+                throw new DataPackageException("Cannot read " + path, ex);
+            }
+        }
+
+        private void read(long position, byte[] target, int offset) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.wrap(target, offset, target.length - offset);
+                long pos = position;
+                while (buffer.hasRemaining()) {
+                    int n = channel.read(buffer, pos);
+                    if (n < 0)
+                        throw new IOException("Unexpected end of " + path);
+                    pos += n;
+                }
+            }
+        }
+
+        /**
+         * @param boundary a record boundary returned by {@link #findBoundary(long)}
+         * @return the number of rows (including a header row) before `boundary`
+         */
+        private long rowsBefore(long boundary) {
+            return boundaries.get(boundary);
+        }
+
+        /**
+         * Find the first record boundary at or after `target`, scanning forward from the nearest known
+         * boundary before it and counting the rows on the way.
+         * @param target byte offset
+         * @return offset of the first byte of the next record, or the file size if there is none
+         */
+        private long findBoundary(long target) throws IOException {
+            if (target >= size)
+                return size;
+            Map.Entry<Long, Long> start = boundaries.floorEntry(target);
+            if (start.getKey() == target)
+                return target;
+            long checkpointDistance = Math.max(CsvRecordScanner.BUFFER_SIZE, settings.minSplitSize / 4);
+            long[] lastCheckpoint = {start.getKey()};
+            long[] rows = {start.getValue()};
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long boundary = settings.scanner.scan(channel, start.getKey(), size, (end, isRow) -> {
+                    if (isRow)
+                        rows[0]++;
+                    if (end >= target)
+                        return false;
+                    if (end - lastCheckpoint[0] >= checkpointDistance) {
+                        boundaries.put(end, rows[0]);
+                        lastCheckpoint[0] = end;
+                    }
+                    return true;
+                });
+                boundaries.put(boundary, rows[0]);
+                return boundary;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+
+/**
+ * Cursor over the rows of a Resource. {@link #next()} advances to the next row, whose values are read
+ * with typed getters. No objects are created per row or value: rows are read in batches into the
+ * reused column vectors of a {@link ColumnBatch} and the cursor moves over them.
+ *
+ * Columns are typed according to the Schema field types (see {@link ColumnBatch}). {@link #getLong(int)} works
+ * on `integer` and `year` columns, {@link #getDouble(int)} on numeric ones, {@link #getBoolean(int)} on `boolean`
+ * columns, and {@link #getString(int)} on all columns. Getters of missing values return 0, 0.0, false
+ * or null, use {@link #isNull(int)} to tell them apart from actual values.
+ *
+ * Usage:
+ * <pre>
+ *     try (Cursor cursor = resource.openCursor()) {
+ *         int population = cursor.getColumnIndex("population");
+ *         while (cursor.next()) {
+ *             total += cursor.getLong(population);
+ *         }
+ *     }
+ * </pre>
+ */
+public class Cursor implements AutoCloseable {
+    static final int BATCH_SIZE = 1024;
+
+    private final ColumnBatchIterator batches;
+    private ColumnBatch batch = null;
+    private int row = -1;
+    private long rowNumber = 0;
+    private boolean closed = false;
+
+    Cursor(ColumnBatchIterator batches) {
+        this.batches = batches;
+    }
+
+    /**
+     * Advance to the next row.
+     * @return true if there is a row, false if the cursor is past the last row
+     */
+    public boolean next() {
+        if (closed)
+            return false;
+        if ((null == batch) || (row + 1 >= batch.size())) {
+            if (!batches.hasNext()) {
+                row = (null == batch) ? -1 : batch.size();
+                return false;
+            }
+            batch = batches.next();
+            row = -1;
+        }
+        row++;
+        rowNumber++;
+        return true;
+    }
+
+    /**
+     * @return one-based number of the current row, 0 before the first call to {@link #next()}
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public int getColumnCount() {
+        return current().getColumnCount();
+    }
+
+    public String[] getHeaders() {
+        return current().getHeaders();
+    }
+
+    /**
+     * @param header the name of a column
+     * @return the index of the column, -1 if there is no column of that name
+     */
+    public int getColumnIndex(String header) {
+        return current().getColumnIndex(header);
+    }
+
+    public ColumnBatch.ColumnType getColumnType(int column) {
+        return current().getColumnType(column);
+    }
+
+    public boolean isNull(int column) {
+        return batch.isNull(column, checkRow());
+    }
+
+    public long getLong(int column) {
+        return batch.getLongs(column)[checkRow()];
+    }
+
+    public double getDouble(int column) {
+        int r = checkRow();
+        if (batch.getColumnType(column) == ColumnBatch.ColumnType.LONG)
+            return batch.getLongs(column)[r];
+        return batch.getDoubles(column)[r];
+    }
+
+    public boolean getBoolean(int column) {
+        return batch.getBooleans(column)[checkRow()];
+    }
+
+    /**
+     * @param column index of the column
+     * @return the value as a String, null if missing. Only values of string columns are returned
+     * without creating a String
+     */
+    public String getString(int column) {
+        int r = checkRow();
+        if (batch.isNull(column, r))
+            return null;
+        switch (batch.getColumnType(column)) {
+            case LONG:
+                return Long.toString(batch.getLongs(column)[r]);
+            case DOUBLE:
+                return Double.toString(batch.getDoubles(column)[r]);
+            case BOOLEAN:
+                return Boolean.toString(batch.getBooleans(column)[r]);
+            default:
+                return batch.getString(column, r);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        batch = null;
+    }
+
+    /*
+     Headers and types are only known once the first part is opened, so metadata access reads
+     the first batch if needed. The cursor stays positioned before the first row.
+     */
+    private ColumnBatch current() {
+        if ((null == batch) && !closed && batches.hasNext()) {
+            batch = batches.next();
+            row = -1;
+        }
+        if (null == batch)
+            throw new DataPackageException("The Resource has no rows");
+        return batch;
+    }
+
+    private int checkRow() {
+        if ((null == batch) || (row < 0) || (row >= batch.size()))
+            throw new DataPackageException("The cursor is not positioned on a row");
+        return row;
+    }
+}
@@ -0,0 +1,150 @@
+package io.frictionlessdata.datapackage.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.frictionlessdata.tableschema.util.JsonUtil;
+
+/**
+ * Statistics of the values of one field in one part of a Resource. They allow a {@link RowFilter}
+ * to skip parts that can't contain matching rows without reading them.
+ *
+ * Numeric fields (`integer`, `number`, `year`) have a numeric minimum and maximum, all other fields the
+ * lexicographically smallest and largest raw value. Bounds are null if unknown or if there are no values.
+ * The distinct count is an estimate (see {@link Resource#computeStatistics()}), null if unknown.
+ */
+public class FieldStatistics {
+    private static final String JSON_KEY_COUNT = "count";
+    private static final String JSON_KEY_NULL_COUNT = "nullCount";
+    private static final String JSON_KEY_MIN = "min";
+    private static final String JSON_KEY_MAX = "max";
+    private static final String JSON_KEY_MIN_VALUE = "minValue";
+    private static final String JSON_KEY_MAX_VALUE = "maxValue";
+    private static final String JSON_KEY_DISTINCT = "distinct";
+
+    private long valueCount;
+    private long nullCount;
+    private Double min;
+    private Double max;
+    private String minValue;
+    private String maxValue;
+    private Long distinctCount;
+
+    public FieldStatistics() {
+    }
+
+    /**
+     * @param valueCount number of non-missing values
+     * @param nullCount number of missing values
+     * @param min smallest numeric value, null if the field is not numeric
+     * @param max largest numeric value, null if the field is not numeric
+     * @param minValue lexicographically smallest raw value, null if the field is numeric
+     * @param maxValue lexicographically largest raw value, null if the field is numeric
+     */
+    public FieldStatistics(long valueCount, long nullCount, Double min, Double max, String minValue, String maxValue) {
+        this.valueCount = valueCount;
+        this.nullCount = nullCount;
+        this.min = min;
+        this.max = max;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * @param valueCount number of non-missing values
+     * @param nullCount number of missing values
+     * @param min smallest numeric value, null if the field is not numeric
+     * @param max largest numeric value, null if the field is not numeric
+     * @param minValue lexicographically smallest raw value, null if the field is numeric
+     * @param maxValue lexicographically largest raw value, null if the field is numeric
+     * @param distinctCount estimated number of distinct values, null if unknown
+     */
+    public FieldStatistics(long valueCount, long nullCount, Double min, Double max, String minValue, String maxValue,
+                           Long distinctCount) {
+        this(valueCount, nullCount, min, max, minValue, maxValue);
+        this.distinctCount = distinctCount;
+    }
+
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public String getMinValue() {
+        return minValue;
+    }
+
+    public String getMaxValue() {
+        return maxValue;
+    }
+
+    public Long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * @return number of rows, the values and the missing values
+     */
+    public long getRowCount() {
+        return valueCount + nullCount;
+    }
+
+    ObjectNode getJsonNode() {
+        ObjectNode json = JsonUtil.getInstance().createNode();
+        json.put(JSON_KEY_COUNT, valueCount);
+        json.put(JSON_KEY_NULL_COUNT, nullCount);
+        if (null != min)
+            json.put(JSON_KEY_MIN, min);
+        if (null != max)
+            json.put(JSON_KEY_MAX, max);
+        if (null != minValue)
+            json.put(JSON_KEY_MIN_VALUE, minValue);
+        if (null != maxValue)
+            json.put(JSON_KEY_MAX_VALUE, maxValue);
+        if (null != distinctCount)
+            json.put(JSON_KEY_DISTINCT, distinctCount);
+        return json;
+    }
+
+    static FieldStatistics fromJson(JsonNode json) {
+        return new FieldStatistics(
+                json.path(JSON_KEY_COUNT).asLong(),
+                json.path(JSON_KEY_NULL_COUNT).asLong(),
+                json.has(JSON_KEY_MIN) ? json.get(JSON_KEY_MIN).asDouble() : null,
+                json.has(JSON_KEY_MAX) ? json.get(JSON_KEY_MAX).asDouble() : null,
+                json.has(JSON_KEY_MIN_VALUE) ? json.get(JSON_KEY_MIN_VALUE).asText() : null,
+                json.has(JSON_KEY_MAX_VALUE) ? json.get(JSON_KEY_MAX_VALUE).asText() : null,
+                json.has(JSON_KEY_DISTINCT) ? json.get(JSON_KEY_DISTINCT).asLong() : null);
+    }
+
+    /**
+     * @param value a number
+     * @return false if `value` is certainly outside the numeric bounds
+     */
+    boolean mightContain(double value) {
+        if (valueCount == 0)
+            return false;
+        return ((null == min) || (value >= min)) && ((null == max) || (value <= max));
+    }
+
+    /**
+     * @param value a raw string value
+     * @return false if `value` is certainly outside the lexicographic bounds
+     */
+    boolean mightContain(String value) {
+        if (valueCount == 0)
+            return false;
+        return ((null == minValue) || (value.compareTo(minValue) >= 0))
+                && ((null == maxValue) || (value.compareTo(maxValue) <= 0));
+    }
+}
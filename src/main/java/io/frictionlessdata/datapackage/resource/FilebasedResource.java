@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.google.common.io.ByteStreams;
+import io.frictionlessdata.datapackage.ArchiveSession;
+import io.frictionlessdata.datapackage.Dialect;
 import io.frictionlessdata.datapackage.exceptions.DataPackageException;
 import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
 import io.frictionlessdata.tableschema.Table;
@@ -11,17 +13,35 @@ import io.frictionlessdata.tableschema.tabledatasource.TableDataSource;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @JsonInclude(value = Include.NON_EMPTY, content = Include.NON_EMPTY )
-public class FilebasedResource<C> extends AbstractReferencebasedResource<File,C> {
+public class FilebasedResource<C> extends AbstractReferencebasedResource<File,C> implements Closeable {
     private File basePath;
     private boolean isInArchive;
+    private ArchiveSession archive;
+    private boolean ownArchive = false;
+    private Resource copiedFrom;
+    private final Map<Path, RowOffsetIndex> rowIndexes = new ConcurrentHashMap<>();
 
+    /**
+     * Create a file-based Resource holding the data of `fromResource`, eg. to convert a URL-based Resource
+     * to files when writing a Package. The data is not copied into memory: it is read from `fromResource`
+     * when it is accessed, and streamed row by row into the data files on writing.
+     *
+     * @param fromResource the Resource to take the data from
+     * @param paths the data files to write to
+     * @throws Exception if the Resource cannot be created
+     */
     public FilebasedResource(Resource fromResource, Collection<File> paths) throws Exception {
         super(fromResource.getName(), paths);
         if (null == paths) {
@@ -32,10 +52,7 @@ public class FilebasedResource<C> extends AbstractReferencebasedResource<File,C>
         this.setSerializationFormat(sniffFormat(paths));
         schema = fromResource.getSchema();
         dialect = fromResource.getDialect();
-        List<String[]> data = fromResource.getData(false, false, false, false);
-        Table table = new Table(data, fromResource.getHeaders(), fromResource.getSchema());
-        tables = new ArrayList<>();
-        tables.add(table);
+        copiedFrom = fromResource;
         serializeToFile = true;
     }
 
@@ -98,14 +115,56 @@ public class FilebasedResource<C> extends AbstractReferencebasedResource<File,C>
     byte[] getRawData(File input)  throws IOException {
         if (this.isInArchive) {
             String fileName = input.getPath().replaceAll("\\\\", "/");
-            return getZipFileContentAsString (basePath.toPath(), fileName).getBytes();
+            return getArchive().getContentAsByteArray(fileName);
         } else {
             File file = new File(this.basePath, input.getPath());
-            try (InputStream inputStream = Files.newInputStream(file.toPath())) {
-                return getRawData(inputStream);
+            return getFileContentAsByteArray(file.toPath());
+        }
+    }
+
+    /**
+     * Returns read-only views over the data files of this Resource, in the order of the `path` entries.
+     * Local files are memory-mapped, so their content is not copied to the heap and the mapped pages
+     * can be shared between threads (each thread should work on its own {@link ByteBuffer#duplicate()}).
+     *
+     * A ByteBuffer can hold at most Integer.MAX_VALUE bytes, so larger files are mapped as consecutive
+     * chunks. Data files inside a ZIP archive can't be mapped, they are read into heap buffers.
+     *
+     * @return read-only buffers over the data, in order
+     * @throws IOException if a file cannot be opened or mapped
+     */
+    @JsonIgnore
+    public List<ByteBuffer> getRawBuffer() throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (File file : paths) {
+            if (this.isInArchive) {
+                buffers.add(ByteBuffer.wrap(getRawData(file)).asReadOnlyBuffer());
+                continue;
+            }
+            Path securePath = Resource.toSecure(file.toPath(), basePath.toPath().toAbsolutePath());
+            try (FileChannel channel = FileChannel.open(securePath, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long position = 0;
+                do {
+                    long chunkSize = Math.min(Integer.MAX_VALUE, size - position);
+                    // the mapping stays valid after the channel is closed
+                    buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize));
+                    position += chunkSize;
+                } while (position < size);
             }
         }
+        return buffers;
+    }
 
+    @Override
+    InputStream openRawStream(File input) throws IOException {
+        if (this.isInArchive) {
+            String fileName = input.getPath().replaceAll("\\\\", "/");
+            return getArchive().getInputStream(fileName);
+        } else {
+            File file = new File(this.basePath, input.getPath());
+            return Files.newInputStream(file.toPath());
+        }
     }
 
     @Override
@@ -122,43 +181,237 @@ public class FilebasedResource<C> extends AbstractReferencebasedResource<File,C>
 
     @Override
     List<Table> readData () throws Exception{
-        List<Table> tables;
+        List<Table> tables = new ArrayList<>();
+        if (copiedFrom instanceof AbstractResource) {
+            // open the parts of the source without making it hold all of its Tables
+            for (Callable<Table> part : ((AbstractResource<?, ?>) copiedFrom).getTableParts()) {
+                tables.add(part.call());
+            }
+            return tables;
+        } else if (null != copiedFrom) {
+            return new ArrayList<>(copiedFrom.getTables());
+        }
+        for (File file : paths) {
+            tables.add(createPartTable(file));
+        }
+        return tables;
+    }
+
+    @Override
+    List<Callable<Table>> getTableParts() throws Exception {
+        if ((null == tables) && (copiedFrom instanceof AbstractResource)) {
+            return ((AbstractResource<?, ?>) copiedFrom).getTableParts();
+        }
+        return super.getTableParts();
+    }
+
+    @Override
+    Table createPartTable(File file) throws Exception {
         if (this.isInArchive) {
-            tables = readfromZipFile();
+            return readfromZipFile(file);
         } else {
-            tables = readfromOrdinaryFile();
+            return readfromOrdinaryFile(file);
         }
-        return tables;
     }
 
-    private List<Table> readfromZipFile() throws IOException {
-        List<Table> tables = new ArrayList<>();
-        for (File file : paths) {
-            String fileName = file.getPath().replaceAll("\\\\", "/");
-            String content = getZipFileContentAsString (basePath.toPath(), fileName);
-            Table table = Table.fromSource(content, schema, getCsvFormat());
-            tables.add(table);
+    /*
+     * Entries are extracted to temporary files by the archive, so the Tables stream their rows from
+     * disk like for ordinary files instead of parsing the whole entry from a String. Each entry is
+     * only extracted once, the files are deleted when the archive is closed.
+     */
+    private Table readfromZipFile(File file) throws IOException {
+        File extracted = extractFromZipFile(file);
+        return Table.fromSource(new File(extracted.getName()), extracted.getParentFile(), schema, getCsvFormat());
+    }
+
+    private File extractFromZipFile(File file) throws IOException {
+        Charset charset = (null != encoding) ? Charset.forName(encoding) : null;
+        String fileName = file.getPath().replaceAll("\\\\", "/");
+        return getArchive().extractToFile(fileName, charset);
+    }
+
+    /*
+     * The local file holding the CSV data of a part: the data file itself, or the temporary file
+     * an entry of the archive is extracted to.
+     */
+    private Path getLocalFile(File file) throws IOException {
+        if (this.isInArchive) {
+            return extractFromZipFile(file).toPath();
         }
-        return tables;
+        return Resource.toSecure(file.toPath(), basePath.toPath());
     }
-    private List<Table> readfromOrdinaryFile() throws IOException {
-        List<Table> tables = new ArrayList<>();
+
+    /*
+     * Without the shared archive of a Package, the Resource opens the archive on first access and
+     * keeps it until it is closed.
+     */
+    private synchronized ArchiveSession getArchive() {
+        if (null == archive) {
+            archive = new ArchiveSession(basePath.toPath());
+            ownArchive = true;
+        }
+        return archive;
+    }
+
+    private Table readfromOrdinaryFile(File file) throws IOException {
+        /* from the spec: "SECURITY: / (absolute path) and ../ (relative parent path)
+           are forbidden to avoid security vulnerabilities when implementing data
+           package software."
+
+           https://frictionlessdata.io/specs/data-resource/index.html#url-or-path
+         */
+        Path securePath = Resource.toSecure(file.toPath(), basePath.toPath());
+        Path relativePath = basePath.toPath().relativize(securePath);
+        return createTable(relativePath.toFile());
+    }
+
+    /*
+     * Local CSV files are split at record boundaries, so a parallel Stream can parse a single large
+     * file on all cores. Files in archives are split once they are extracted, Tables that are already
+     * read are split per part.
+     */
+    @Override
+    <R> Spliterator<R> spliterator(PartIterator.RowReader<R> reader, RowFilter filter,
+                                   CsvSplitSpliterator.RowNumbering<R> numbering) throws Exception {
+        Charset charset = TableDataSource.getDefaultEncoding();
+        if (!isLocalCsv(charset)) {
+            return super.spliterator(reader, filter, numbering);
+        }
+        List<Path> files = new ArrayList<>();
+        for (File file : pruneParts(new ArrayList<>(paths), filter)) {
+            files.add(getLocalFile(file));
+        }
+        return new CsvSplitSpliterator<>(files, dialect, schema, getCsvFormat(), charset, reader, numbering,
+                CsvSplitSpliterator.DEFAULT_BLOCK_SIZE, CsvSplitSpliterator.DEFAULT_MIN_SPLIT_SIZE);
+    }
+
+    /*
+     * Local CSV files, and the files entries of archives are extracted to, are read through their row
+     * index, so only the rows near the requested ones are parsed. Tables that are already read are read
+     * row by row.
+     */
+    @Override
+    public List<Object[]> readRows(long fromRow, int count) throws Exception {
+        Charset charset = TableDataSource.getDefaultEncoding();
+        if (!isLocalCsv(charset)) {
+            return super.readRows(fromRow, count);
+        }
+        checkRowRange(fromRow, count);
+        List<Object[]> rows = new ArrayList<>();
+        long row = fromRow;
         for (File file : paths) {
-                /* from the spec: "SECURITY: / (absolute path) and ../ (relative parent path)
-                   are forbidden to avoid security vulnerabilities when implementing data
-                   package software."
+            if (rows.size() == count)
+                break;
+            Path path = getLocalFile(file);
+            RowOffsetIndex index = getRowIndex(path);
+            if (row >= index.getRowCount()) {
+                row -= index.getRowCount();
+                continue;
+            }
+            long toRow = Math.min(row + (count - rows.size()), index.getRowCount()) - 1;
+            byte[] content = index.readRows(path, getRecordScanner(), row, toRow);
+            Table table = Table.fromSource(new String(content, charset), schema, getCsvFormat());
+            Iterator<Object[]> iter = (Iterator) table.iterator(false, false, true, false);
+            for (long i = row; (i <= toRow) && iter.hasNext(); i++) {
+                rows.add(iter.next());
+            }
+            row = 0;
+        }
+        return rows;
+    }
 
-                   https://frictionlessdata.io/specs/data-resource/index.html#url-or-path
-                 */
-            Path securePath = Resource.toSecure(file.toPath(), basePath.toPath());
-            Path relativePath = basePath.toPath().relativize(securePath);
-            Table table = createTable(relativePath.toFile());
-            tables.add(table);
+    /*
+     * Indexes are kept as long as their file doesn't change. A stored index next to the file is
+     * preferred over scanning the file.
+     */
+    private RowOffsetIndex getRowIndex(Path file) throws IOException {
+        Dialect lDialect = (null != dialect) ? dialect : Dialect.DEFAULT;
+        CsvRecordScanner scanner = getRecordScanner();
+        RowOffsetIndex index = rowIndexes.get(file);
+        if ((null != index) && index.isValidFor(file, scanner, lDialect.isHasHeaderRow()))
+            return index;
+        index = RowOffsetIndex.read(file, scanner, lDialect.isHasHeaderRow());
+        if (null == index) {
+            index = RowOffsetIndex.build(file, scanner, lDialect.isHasHeaderRow(), RowOffsetIndex.DEFAULT_INTERVAL);
         }
-        return tables;
+        rowIndexes.put(file, index);
+        return index;
+    }
+
+    @Override
+    List<Path> getRandomAccessFiles() throws IOException {
+        if (!isLocalCsv(TableDataSource.getDefaultEncoding()))
+            return null;
+        List<Path> files = new ArrayList<>();
+        for (File file : paths) {
+            files.add(getLocalFile(file));
+        }
+        return files;
+    }
+
+    /*
+     * Files extracted from an archive are deleted with the archive, indexes are not stored next to them.
+     */
+    @Override
+    boolean canStoreIndexes() {
+        return !this.isInArchive;
+    }
+
+    @Override
+    long getRowSignature() {
+        Dialect lDialect = (null != dialect) ? dialect : Dialect.DEFAULT;
+        return getRecordScanner().signature() * 31 + (lDialect.isHasHeaderRow() ? 1 : 0);
+    }
+
+    /*
+     * Data can be read from the CSV files directly, or from the files they are extracted to from an
+     * archive, and not from Tables read before or from the Resource this one is copied from.
+     */
+    private boolean isLocalCsv(Charset charset) {
+        return (null == tables) && (null == copiedFrom)
+                && TableDataSource.Format.FORMAT_CSV.getLabel().equals(getSerializationFormat())
+                && CsvSplitSpliterator.isSplittable(charset);
+    }
+
+    private CsvRecordScanner getRecordScanner() {
+        return new CsvRecordScanner(dialect, getCsvFormat().getIgnoreEmptyLines());
     }
 
     public void setIsInArchive(boolean isInArchive) {
         this.isInArchive = isInArchive;
     }
+
+    /**
+     * Set the archive of the ZIP-based Package this Resource lives in. Data is read through the
+     * archive instead of opening the ZIP file for every data file.
+     * @param archive the archive, or null if the Resource is not read from an archive
+     */
+    public synchronized void setArchive(ArchiveSession archive) {
+        this.archive = archive;
+        this.ownArchive = false;
+        this.isInArchive = (null != archive);
+    }
+
+    /**
+     * Close the archive this Resource opened on its own to read its data from a ZIP file, and delete the
+     * files extracted from it. Reading the data afterwards opens the archive again. Does nothing if the
+     * Resource reads through the archive of its Package (that one is closed by {@link io.frictionlessdata.datapackage.Package#close()})
+     * or does not live in an archive.
+     *
+     * @throws IOException if closing the archive fails
+     */
+    @Override
+    public void close() throws IOException {
+        ArchiveSession toClose;
+        synchronized (this) {
+            if (!ownArchive)
+                return;
+            toClose = archive;
+            archive = null;
+            ownArchive = false;
+            // the Tables read so far might point to the deleted files
+            tables = null;
+        }
+        toClose.close();
+    }
 }
@@ -0,0 +1,66 @@
+package io.frictionlessdata.datapackage.resource;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values in a stream in constant memory.
+ * With 2^12 registers of one byte each, the standard error of the estimate is about 1.6%.
+ * Sketches of parts can be merged to estimate the distinct count of a whole Resource.
+ */
+final class HyperLogLog {
+    private static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // the guard bit limits the rank if all remaining bits are zero
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+                zeros++;
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        // small cardinalities are estimated more precisely by linear counting
+        if ((estimate <= 2.5 * REGISTER_COUNT) && (zeros > 0)) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /*
+     64 bit FNV-1a over the chars, followed by the MurmurHash3 finalizer so that all bits are mixed
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
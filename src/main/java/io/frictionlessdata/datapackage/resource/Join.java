@@ -0,0 +1,401 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.field.Field;
+import io.frictionlessdata.tableschema.schema.Schema;
+import io.frictionlessdata.tableschema.util.JsonUtil;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Inner join of the rows of two Resources on key fields. A joined row holds the values of all fields of the
+ * left Resource followed by those of the right Resource, see {@link #getFieldNames()}. Rows with a missing
+ * key value don't join.
+ *
+ * Two strategies are available:
+ * <ul>
+ *     <li>{@link Strategy#HASH}, the default: the rows of the smaller Resource are held in a hash table by
+ *     key, and the rows of the larger Resource are streamed past it. The smaller Resource is the one with
+ *     fewer rows according to collected statistics (see {@link Resource#getStatistics()}), or else with
+ *     fewer `bytes`, or else the right one. Joined rows come in the order of the streamed Resource.</li>
+ *     <li>{@link Strategy#SORT_MERGE}: both Resources are streamed at once, which requires them to be sorted
+ *     by ascending key. Only the rows of one key are held in memory. Joined rows come in key order.</li>
+ * </ul>
+ *
+ * Key values are compared by value, String values are cast to the type of the key field of the other side
+ * first, so eg. "01" joins with the integer 1, and numbers of different types are equal if their values
+ * are, so eg. 1.0 joins with 1. Both strategies join the same rows, whichever side the hash table holds.
+ */
+public class Join {
+
+    public enum Strategy {
+        HASH,
+        SORT_MERGE
+    }
+
+    private final Resource<?, ?> left;
+    private final List<String> leftFields;
+    private final Resource<?, ?> right;
+    private final List<String> rightFields;
+    private Strategy strategy = Strategy.HASH;
+
+    /**
+     * @param left the left Resource
+     * @param leftFields the key fields of the left Resource
+     * @param right the right Resource
+     * @param rightFields the key fields of the right Resource, in the order of `leftFields`
+     */
+    public Join(Resource<?, ?> left, List<String> leftFields, Resource<?, ?> right, List<String> rightFields) {
+        if (leftFields.isEmpty() || (leftFields.size() != rightFields.size()))
+            throw new DataPackageException("A join needs the same, non-zero number of key fields on both sides, not "
+                    + leftFields + " and " + rightFields);
+        this.left = left;
+        this.leftFields = new ArrayList<>(leftFields);
+        this.right = right;
+        this.rightFields = new ArrayList<>(rightFields);
+    }
+
+    /**
+     * Join two Resources on a foreign key declared in the Schema of one of them, referencing the other.
+     *
+     * @param left the left Resource
+     * @param right the right Resource
+     * @return the join
+     * @throws DataPackageException if neither Schema declares a foreign key referencing the other Resource
+     */
+    public static Join onForeignKey(Resource<?, ?> left, Resource<?, ?> right) {
+        for (RelationEngine.ForeignKeyDef fk : RelationEngine.ForeignKeyDef.parse(left.getSchema())) {
+            if (references(fk, left, right))
+                return new Join(left, fk.fields, right, fk.referencedFields);
+        }
+        for (RelationEngine.ForeignKeyDef fk : RelationEngine.ForeignKeyDef.parse(right.getSchema())) {
+            if (references(fk, right, left))
+                return new Join(left, fk.referencedFields, right, fk.fields);
+        }
+        throw new DataPackageException("No foreign key between Resources " + left.getName()
+                + " and " + right.getName());
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @param strategy how to join, use {@link Strategy#SORT_MERGE} only if both Resources are sorted by key
+     */
+    public void setStrategy(Strategy strategy) {
+        this.strategy = (null != strategy) ? strategy : Strategy.HASH;
+    }
+
+    /**
+     * Names of the fields of joined rows: the fields of the left Resource, then those of the right Resource.
+     * Names of the right Resource that are already taken are prefixed with its name and a dot.
+     *
+     * @return the field names
+     * @throws Exception if reading the headers fails
+     */
+    public List<String> getFieldNames() throws Exception {
+        List<String> names = new ArrayList<>(getFieldNames(left));
+        for (String name : getFieldNames(right)) {
+            names.add(names.contains(name) ? right.getName() + "." + name : name);
+        }
+        return names;
+    }
+
+    /**
+     * @return the joined rows
+     * @throws DataPackageException with {@link Strategy#SORT_MERGE}, when a Resource turns out not to be sorted
+     * @throws Exception if reading the data fails
+     */
+    public Iterator<Object[]> iterator() throws Exception {
+        return (strategy == Strategy.SORT_MERGE) ? new MergeIterator() : hashJoin();
+    }
+
+    /**
+     * Joined rows as beans, with the values of the fields in {@link #getFieldNames()} set on the
+     * bean properties of the same name.
+     *
+     * @param beanType the bean class
+     * @param <B> the bean type
+     * @return the joined rows as beans
+     * @throws Exception if reading the data fails
+     */
+    public <B> Iterator<B> beanIterator(Class<B> beanType) throws Exception {
+        List<String> names = getFieldNames();
+        Iterator<Object[]> rows = iterator();
+        return new Iterator<B>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public B next() {
+                Object[] row = rows.next();
+                Map<String, Object> values = new LinkedHashMap<>();
+                for (int i = 0; i < names.size(); i++) {
+                    values.put(names.get(i), (i < row.length) ? row[i] : null);
+                }
+                return JsonUtil.getInstance().convertValue(values, beanType);
+            }
+        };
+    }
+
+    private Iterator<Object[]> hashJoin() throws Exception {
+        boolean buildLeft = isSmaller(left, right);
+        Resource<?, ?> build = buildLeft ? left : right;
+        Resource<?, ?> probe = buildLeft ? right : left;
+        int[] buildKey = getKeyColumns(build, buildLeft ? leftFields : rightFields);
+        int[] probeKey = getKeyColumns(probe, buildLeft ? rightFields : leftFields);
+        Field<?>[] buildTypes = KeyIndex.getFields(build.getSchema(), buildLeft ? leftFields : rightFields);
+        Field<?>[] probeTypes = KeyIndex.getFields(probe.getSchema(), buildLeft ? rightFields : leftFields);
+
+        Map<List<String>, List<Object[]>> table = new HashMap<>();
+        Iterator<Object[]> buildRows = build.objectArrayIterator();
+        while (buildRows.hasNext()) {
+            Object[] row = buildRows.next();
+            Object[] key = pick(row, buildKey);
+            if (!PartitionedRelationCheck.hasMissingValue(key))
+                table.computeIfAbsent(toHashKey(key, probeTypes), (k) -> new ArrayList<>(1)).add(row);
+        }
+        Iterator<Object[]> probeRows = probe.objectArrayIterator();
+        return new JoinIterator() {
+            @Override
+            void fill() {
+                while (pending.isEmpty() && probeRows.hasNext()) {
+                    Object[] row = probeRows.next();
+                    Object[] key = pick(row, probeKey);
+                    if (PartitionedRelationCheck.hasMissingValue(key))
+                        continue;
+                    List<Object[]> matches = table.get(toHashKey(key, buildTypes));
+                    if (null == matches)
+                        continue;
+                    for (Object[] match : matches) {
+                        pending.add(buildLeft ? combine(match, row) : combine(row, match));
+                    }
+                }
+            }
+        };
+    }
+
+    private static boolean references(RelationEngine.ForeignKeyDef fk, Resource<?, ?> from, Resource<?, ?> to) {
+        if (fk.resourceName.isEmpty())
+            return from == to;
+        return fk.resourceName.equalsIgnoreCase(to.getName());
+    }
+
+    /*
+     Sizes compare by collected row counts if both sides have them, else by declared bytes.
+     */
+    private static boolean isSmaller(Resource<?, ?> a, Resource<?, ?> b) {
+        Long rowsA = getRowCount(a);
+        Long rowsB = getRowCount(b);
+        if ((null != rowsA) && (null != rowsB))
+            return rowsA < rowsB;
+        Integer bytesA = a.getBytes();
+        Integer bytesB = b.getBytes();
+        if ((null != bytesA) && (null != bytesB))
+            return bytesA < bytesB;
+        return false;
+    }
+
+    private static Long getRowCount(Resource<?, ?> resource) {
+        Map<String, FieldStatistics> statistics = resource.getStatistics();
+        if ((null == statistics) || statistics.isEmpty())
+            return null;
+        return statistics.values().iterator().next().getRowCount();
+    }
+
+    /*
+     Rows of the object array iterators hold the values in the order of the Schema fields,
+     or of the headers if there is no Schema.
+     */
+    private static List<String> getFieldNames(Resource<?, ?> resource) throws Exception {
+        Schema schema = resource.getSchema();
+        if (null == schema)
+            return Arrays.asList(resource.getHeaders());
+        List<String> names = new ArrayList<>();
+        for (Field<?> field : schema.getFields()) {
+            names.add(field.getName());
+        }
+        return names;
+    }
+
+    private static int[] getKeyColumns(Resource<?, ?> resource, List<String> keyFields) throws Exception {
+        List<String> names = getFieldNames(resource);
+        int[] columns = new int[keyFields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(keyFields.get(i));
+            if (columns[i] < 0)
+                throw new DataPackageException("Join key field " + keyFields.get(i) + " is not in Resource "
+                        + resource.getName());
+        }
+        return columns;
+    }
+
+    private static Object[] pick(Object[] row, int[] columns) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = (columns[i] < row.length) ? row[columns[i]] : null;
+        }
+        return values;
+    }
+
+    private static Object[] combine(Object[] leftRow, Object[] rightRow) {
+        Object[] row = Arrays.copyOf(leftRow, leftRow.length + rightRow.length);
+        System.arraycopy(rightRow, 0, row, leftRow.length, rightRow.length);
+        return row;
+    }
+
+    private abstract static class JoinIterator implements Iterator<Object[]> {
+        final Deque<Object[]> pending = new ArrayDeque<>();
+
+        /*
+         Adds joined rows to `pending`, leaves it empty only at the end.
+         */
+        abstract void fill();
+
+        @Override
+        public boolean hasNext() {
+            if (pending.isEmpty())
+                fill();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return pending.poll();
+        }
+    }
+
+    /*
+     Both sides are read in key order. The right rows of the current key are buffered,
+     then joined with all left rows of that key.
+     */
+    private final class MergeIterator extends JoinIterator {
+        private final Side leftSide;
+        private final Side rightSide;
+
+        private MergeIterator() throws Exception {
+            Field<?>[] leftTypes = KeyIndex.getFields(left.getSchema(), leftFields);
+            Field<?>[] rightTypes = KeyIndex.getFields(right.getSchema(), rightFields);
+            // each side casts String keys to the types of the other side, so both compare as the same types
+            leftSide = new Side(left, leftFields, rightTypes);
+            rightSide = new Side(right, rightFields, leftTypes);
+        }
+
+        @Override
+        void fill() {
+            while (pending.isEmpty() && (null != leftSide.row) && (null != rightSide.row)) {
+                int c = compareKeys(leftSide.key, rightSide.key);
+                if (c < 0) {
+                    leftSide.advance();
+                } else if (c > 0) {
+                    rightSide.advance();
+                } else {
+                    Object[] groupKey = rightSide.key;
+                    List<Object[]> group = new ArrayList<>();
+                    while ((null != rightSide.row) && (compareKeys(rightSide.key, groupKey) == 0)) {
+                        group.add(rightSide.row);
+                        rightSide.advance();
+                    }
+                    while ((null != leftSide.row) && (compareKeys(leftSide.key, groupKey) == 0)) {
+                        for (Object[] match : group) {
+                            pending.add(combine(leftSide.row, match));
+                        }
+                        leftSide.advance();
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Side {
+        private final Resource<?, ?> resource;
+        private final List<String> keyFields;
+        private final Iterator<Object[]> rows;
+        private final int[] keyColumns;
+        private final Field<?>[] otherTypes;
+        private long rowNumber = 0;
+        private Object[] row;
+        private Object[] key;
+
+        private Side(Resource<?, ?> resource, List<String> keyFields, Field<?>[] otherTypes) throws Exception {
+            this.resource = resource;
+            this.keyFields = keyFields;
+            this.rows = resource.objectArrayIterator();
+            this.keyColumns = getKeyColumns(resource, keyFields);
+            this.otherTypes = otherTypes;
+            advance();
+        }
+
+        /*
+         Moves to the next row with a complete key, and checks that keys don't decrease.
+         */
+        private void advance() {
+            Object[] previous = key;
+            row = null;
+            key = null;
+            while (rows.hasNext()) {
+                Object[] next = rows.next();
+                rowNumber++;
+                Object[] nextKey = pick(next, keyColumns);
+                if (PartitionedRelationCheck.hasMissingValue(nextKey))
+                    continue;
+                for (int i = 0; i < nextKey.length; i++) {
+                    nextKey[i] = castTo(nextKey[i], otherTypes[i]);
+                }
+                if ((null != previous) && (compareKeys(previous, nextKey) > 0))
+                    throw new DataPackageException("Resource " + resource.getName() + " is not sorted by "
+                            + keyFields + " at row " + rowNumber + ", it can't be joined by sort-merge");
+                row = next;
+                key = nextKey;
+                return;
+            }
+        }
+    }
+
+    private static Object castTo(Object value, Field<?> field) {
+        if ((value instanceof String) && (null != field) && !"string".equals(field.getType())) {
+            try {
+                return field.castValue((String) value);
+            } catch (Exception ex) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    /*
+     Keys of both sides are cast to the types of the other side, like in the sort-merge join. Numbers
+     then get one String form per value, so that the hash keys are equal iff compareKeys() is 0.
+     */
+    private static List<String> toHashKey(Object[] key, Field<?>[] otherTypes) {
+        List<String> strings = new ArrayList<>(key.length);
+        for (int i = 0; i < key.length; i++) {
+            Object value = castTo(key[i], otherTypes[i]);
+            String string = String.valueOf(value);
+            if (value instanceof Number) {
+                try {
+                    string = new BigDecimal(string).stripTrailingZeros().toPlainString();
+                } catch (NumberFormatException ex) {
+                    // NaN and infinities keep their String forms
+                }
+            }
+            strings.add(string);
+        }
+        return strings;
+    }
+
+    private static int compareKeys(Object[] a, Object[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = KeyIndex.compareValues(a[i], b[i]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,465 @@
+package io.frictionlessdata.datapackage.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
+import io.frictionlessdata.tableschema.field.Field;
+import io.frictionlessdata.tableschema.schema.Schema;
+import io.frictionlessdata.tableschema.util.JsonUtil;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Index from the values of key fields of a Resource to the number of the row holding them, built in one pass
+ * over the rows. It indexes the primary key of a Resource, and the fields referenced by foreign keys
+ * (see {@link RelationEngine}). Keys of a single `integer` field are held in an open-addressing table of
+ * primitive longs, without an object per key. Other keys are held in a HashMap, by the String forms of their
+ * cast values.
+ *
+ * An index of the primary key of local data files can be stored next to the first data file, in a file named like the data
+ * file with the suffix {@link #FILE_SUFFIX}. It records the size and modification time of all data files,
+ * and a stored index is ignored once any of them changes.
+ */
+final class KeyIndex {
+    static final String FILE_SUFFIX = ".pk.idx";
+
+    // "DPPK", datapackage primary key index
+    private static final int MAGIC = 0x4450504b;
+    private static final int VERSION = 1;
+
+    private final List<String> keyFields;
+    private final Field<?>[] fields;
+    private final boolean primaryKey;
+    private final LongKeyMap longKeys;
+    private final Map<List<String>, Long> keys = new HashMap<>();
+    private long[] stamps = new long[0];
+    private long signature = 0;
+
+    /*
+     Without a Schema, all key values are Strings.
+     */
+    private KeyIndex(List<String> keyFields, Schema schema, boolean primaryKey) {
+        this.keyFields = keyFields;
+        this.primaryKey = primaryKey;
+        this.fields = new Field<?>[keyFields.size()];
+        if (null != schema) {
+            for (Field<?> field : schema.getFields()) {
+                int i = keyFields.indexOf(field.getName());
+                if (i >= 0)
+                    fields[i] = field;
+            }
+            for (int i = 0; i < fields.length; i++) {
+                if (null == fields[i])
+                    throw new DataPackageException("Key field " + keyFields.get(i) + " is not in the Schema");
+            }
+        }
+        this.longKeys = ((fields.length == 1) && (null != fields[0]) && "integer".equals(fields[0].getType()))
+                ? new LongKeyMap()
+                : null;
+    }
+
+    /**
+     * @param schema a Schema, may be null
+     * @return the names of the primary key fields, empty if the Schema declares no primary key
+     */
+    static List<String> getPrimaryKey(Schema schema) {
+        List<String> keyFields = new ArrayList<>();
+        if (null == schema)
+            return keyFields;
+        JsonNode primaryKey = JsonUtil.getInstance().readValue(schema.getJson()).get("primaryKey");
+        if (null == primaryKey)
+            return keyFields;
+        if (primaryKey.isArray()) {
+            primaryKey.forEach((field) -> keyFields.add(field.asText()));
+        } else if (!primaryKey.isNull()) {
+            keyFields.add(primaryKey.asText());
+        }
+        return keyFields;
+    }
+
+    /**
+     * Build the index in one pass over the rows.
+     *
+     * @param schema the Schema of the Resource, must declare a primary key
+     * @param keyRows for each row, the values of the primary key fields in the order of the primary key
+     * @return the index
+     * @throws DataPackageValidationException if a key is missing or not unique
+     */
+    static KeyIndex build(Schema schema, Iterator<Object[]> keyRows) {
+        List<String> keyFields = getPrimaryKey(schema);
+        if (keyFields.isEmpty())
+            throw new DataPackageException("The Schema does not declare a primary key");
+        KeyIndex index = new KeyIndex(keyFields, schema, true);
+        long row = 0;
+        while (keyRows.hasNext()) {
+            index.add(keyRows.next(), row++);
+        }
+        return index;
+    }
+
+    /**
+     * Build an index of arbitrary key fields in one pass over the rows. Keys need not be unique, a key
+     * maps to the first row holding it. Rows with a missing key value are not indexed.
+     *
+     * @param keyFields the names of the key fields
+     * @param schema the Schema of the Resource, may be null
+     * @param keyRows for each row, the values of the key fields in the order of `keyFields`
+     * @param maxKeys the maximum number of distinct keys to hold
+     * @return the index, or null if there are more than `maxKeys` distinct keys
+     */
+    static KeyIndex build(List<String> keyFields, Schema schema, Iterator<Object[]> keyRows, long maxKeys) {
+        KeyIndex index = new KeyIndex(new ArrayList<>(keyFields), schema, false);
+        long row = 0;
+        while (keyRows.hasNext()) {
+            index.add(keyRows.next(), row++);
+            if (index.size() > maxKeys)
+                return null;
+        }
+        return index;
+    }
+
+    /**
+     * @return the number of distinct keys
+     */
+    long size() {
+        return ((null != longKeys) ? longKeys.size : 0) + keys.size();
+    }
+
+    List<String> getKeyFields() {
+        return Collections.unmodifiableList(keyFields);
+    }
+
+    /**
+     * @param key the values of the key fields. Strings are cast according to the field type
+     * @return the number of the row with that key, -1 if there is none
+     */
+    long find(Object... key) {
+        if (key.length != fields.length)
+            throw new DataPackageException("The key has " + fields.length + " fields, not " + key.length);
+        Object[] values = new Object[key.length];
+        for (int i = 0; i < key.length; i++) {
+            values[i] = ((key[i] instanceof String) && (null != fields[i]) && !"string".equals(fields[i].getType()))
+                    ? cast(fields[i], (String) key[i])
+                    : key[i];
+        }
+        if (null != longKeys) {
+            Long value = asLong(values[0]);
+            // values of other types, eg. from a `year` field referencing an `integer` field
+            if ((null == value) && (null != values[0]))
+                value = asLong(cast(fields[0], String.valueOf(values[0])));
+            if (null != value)
+                return longKeys.get(value);
+        }
+        Long row = keys.get(toStrings(values));
+        return (null != row) ? row : -1;
+    }
+
+    private void add(Object[] key, long row) {
+        for (int i = 0; i < key.length; i++) {
+            if ((null == key[i]) && !primaryKey)
+                return;
+            if (null == key[i])
+                throw new DataPackageValidationException("Row " + (row + 1) + " has no value for primary key field "
+                        + keyFields.get(i));
+        }
+        long previous;
+        Long value = (null != longKeys) ? asLong(key[0]) : null;
+        if (null != value) {
+            previous = longKeys.put(value, row);
+        } else {
+            Long existing = keys.putIfAbsent(toStrings(key), row);
+            previous = (null != existing) ? existing : -1;
+        }
+        if ((previous >= 0) && primaryKey)
+            throw new DataPackageValidationException("Rows " + (previous + 1) + " and " + (row + 1)
+                    + " have the same primary key " + Arrays.toString(key));
+    }
+
+    private static Object cast(Field<?> field, String value) {
+        try {
+            return field.castValue(value);
+        } catch (Exception ex) {
+            throw new DataPackageException("Cannot cast key value '" + value + "' of field "
+                    + field.getName() + " to " + field.getType(), ex);
+        }
+    }
+
+    private static Long asLong(Object value) {
+        if ((value instanceof Long) || (value instanceof Integer) || (value instanceof Short) || (value instanceof Byte))
+            return ((Number) value).longValue();
+        if ((value instanceof BigInteger) && (((BigInteger) value).bitLength() < 64))
+            return ((BigInteger) value).longValue();
+        return null;
+    }
+
+    /**
+     * Compare two cast values: numbers by value, values of the same Comparable type by their natural
+     * order, others by their String forms.
+     *
+     * @param a a value, not null
+     * @param b another value, not null
+     * @return a negative number, zero, or a positive number as `a` is less than, equal to, or greater than `b`
+     */
+    @SuppressWarnings("unchecked")
+    static int compareValues(Object a, Object b) {
+        if ((a instanceof Number) && (b instanceof Number))
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        if ((a instanceof Comparable) && (a.getClass() == b.getClass()))
+            return ((Comparable<Object>) a).compareTo(b);
+        return String.valueOf(a).compareTo(String.valueOf(b));
+    }
+
+    static List<String> toStrings(Object[] values) {
+        List<String> strings = new ArrayList<>(values.length);
+        for (Object value : values) {
+            strings.add(String.valueOf(value));
+        }
+        return strings;
+    }
+
+    /**
+     * @param schema a Schema, may be null
+     * @param fieldNames names of fields
+     * @return the fields of the Schema in the order of `fieldNames`, null for fields that are not in the Schema
+     */
+    static Field<?>[] getFields(Schema schema, List<String> fieldNames) {
+        Field<?>[] fields = new Field<?>[fieldNames.size()];
+        if (null != schema) {
+            for (Field<?> field : schema.getFields()) {
+                int i = fieldNames.indexOf(field.getName());
+                if (i >= 0)
+                    fields[i] = field;
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Convert key values to the String forms used to compare them with the keys of other fields. String
+     * values are first cast to the type of the other field, so that eg. "01" matches the integer 1.
+     *
+     * @param values the key values
+     * @param otherFields the fields the values are compared with, null entries for fields without a type
+     * @return the String forms, or null if a value can't be cast, it can't match then
+     */
+    static List<String> normalize(Object[] values, Field<?>[] otherFields) {
+        List<String> key = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            Field<?> field = otherFields[i];
+            if ((value instanceof String) && (null != field) && !"string".equals(field.getType())) {
+                try {
+                    value = field.castValue((String) value);
+                } catch (Exception ex) {
+                    return null;
+                }
+            }
+            key.add(String.valueOf(value));
+        }
+        return key;
+    }
+
+    /**
+     * Read the index stored next to the first data file.
+     *
+     * @param files the data files of the Resource
+     * @param schema the Schema of the Resource
+     * @param signature identifies how rows are counted in the data files
+     * @return the index, or null if there is none, if it is outdated or if it has another primary key
+     * @throws IOException if reading the index fails
+     */
+    static KeyIndex read(List<Path> files, Schema schema, long signature) throws IOException {
+        List<String> keyFields = getPrimaryKey(schema);
+        if (files.isEmpty() || keyFields.isEmpty())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(getIndexFile(files.get(0)))))) {
+            if ((in.readInt() != MAGIC) || (in.readInt() != VERSION) || (in.readLong() != signature))
+                return null;
+            long[] stamps = new long[in.readInt()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = in.readLong();
+            }
+            if (!Arrays.equals(stamps, stamps(files)))
+                return null;
+            int keyFieldCount = in.readInt();
+            List<String> storedKeyFields = new ArrayList<>();
+            for (int i = 0; i < keyFieldCount; i++) {
+                storedKeyFields.add(in.readUTF());
+            }
+            if (!storedKeyFields.equals(keyFields))
+                return null;
+            KeyIndex index = new KeyIndex(keyFields, schema, true);
+            long longKeyCount = in.readLong();
+            if ((longKeyCount > 0) && (null == index.longKeys))
+                return null;
+            for (long i = 0; i < longKeyCount; i++) {
+                index.longKeys.put(in.readLong(), in.readLong());
+            }
+            long keyCount = in.readLong();
+            for (long i = 0; i < keyCount; i++) {
+                List<String> key = new ArrayList<>(keyFieldCount);
+                for (int j = 0; j < keyFieldCount; j++) {
+                    key.add(in.readUTF());
+                }
+                index.keys.put(key, in.readLong());
+            }
+            index.stamps = stamps;
+            index.signature = signature;
+            return index;
+        } catch (EOFException | NoSuchFileException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Store the index next to the first data file.
+     *
+     * @param files the data files the index was built from
+     * @param signature identifies how rows are counted in the data files
+     * @throws IOException if writing fails
+     */
+    void write(List<Path> files, long signature) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(getIndexFile(files.get(0)))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(signature);
+            out.writeInt(stamps.length);
+            for (long stamp : stamps) {
+                out.writeLong(stamp);
+            }
+            out.writeInt(keyFields.size());
+            for (String keyField : keyFields) {
+                out.writeUTF(keyField);
+            }
+            if (null != longKeys) {
+                out.writeLong(longKeys.size);
+                for (int i = 0; i < longKeys.keys.length; i++) {
+                    if (longKeys.rows[i] >= 0) {
+                        out.writeLong(longKeys.keys[i]);
+                        out.writeLong(longKeys.rows[i]);
+                    }
+                }
+            } else {
+                out.writeLong(0);
+            }
+            out.writeLong(keys.size());
+            for (Map.Entry<List<String>, Long> entry : keys.entrySet()) {
+                for (String value : entry.getKey()) {
+                    out.writeUTF(value);
+                }
+                out.writeLong(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Remember the state of the data files the index is built from.
+     * @param files the data files
+     * @param signature identifies how rows are counted in the data files
+     * @throws IOException if the file attributes can't be read
+     */
+    void stamp(List<Path> files, long signature) throws IOException {
+        this.stamps = stamps(files);
+        this.signature = signature;
+    }
+
+    /**
+     * @param files the data files
+     * @param signature identifies how rows are counted in the data files
+     * @return false if a data file changed since the index was built
+     * @throws IOException if the file attributes can't be read
+     */
+    boolean isValidFor(List<Path> files, long signature) throws IOException {
+        return (this.signature == signature) && Arrays.equals(stamps, stamps(files));
+    }
+
+    static Path getIndexFile(Path file) {
+        return file.resolveSibling(file.getFileName().toString() + FILE_SUFFIX);
+    }
+
+    private static long[] stamps(List<Path> files) throws IOException {
+        long[] stamps = new long[files.size() * 2];
+        for (int i = 0; i < files.size(); i++) {
+            stamps[2 * i] = Files.size(files.get(i));
+            stamps[2 * i + 1] = Files.getLastModifiedTime(files.get(i)).toMillis();
+        }
+        return stamps;
+    }
+
+    /*
+     Open-addressing hash table from long keys to row numbers with linear probing. Row numbers
+     are never negative, so a negative row marks an empty slot.
+     */
+    private static final class LongKeyMap {
+        private long[] keys = new long[16];
+        private long[] rows = newRows(16);
+        private int size = 0;
+
+        private static long[] newRows(int capacity) {
+            long[] rows = new long[capacity];
+            Arrays.fill(rows, -1);
+            return rows;
+        }
+
+        private static int slot(long key, int mask) {
+            // MurmurHash3 finalizer, so that sequential keys spread over the table
+            long h = key;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return (int) h & mask;
+        }
+
+        /**
+         * @return the row already stored for `key`, which is kept, or -1 if `row` was stored
+         */
+        private long put(long key, long row) {
+            if (2 * (size + 1) > keys.length)
+                resize(keys.length * 2);
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (rows[i] >= 0) {
+                if (keys[i] == key)
+                    return rows[i];
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            rows[i] = row;
+            size++;
+            return -1;
+        }
+
+        private long get(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (rows[i] >= 0) {
+                if (keys[i] == key)
+                    return rows[i];
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldRows = rows;
+            keys = new long[capacity];
+            rows = newRows(capacity);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldRows[i] >= 0)
+                    put(oldKeys[i], oldRows[i]);
+            }
+        }
+    }
+}
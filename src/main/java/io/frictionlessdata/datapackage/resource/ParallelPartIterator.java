@@ -0,0 +1,267 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.Table;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterator over the rows of a multi-part Resource that parses parts concurrently on an {@link Executor}.
+ *
+ * At most `partsInFlight` parts are read ahead of the consumer, each buffering a bounded number of rows,
+ * so memory stays bounded regardless of the number and size of parts. In ordered mode, rows are returned
+ * in the order of the parts, each part having its own buffer. In unordered mode, all parts feed one
+ * shared buffer and rows are returned as soon as any part produced them.
+ *
+ * A part is read by whoever claims it first: a task on the Executor or the consuming thread. If the
+ * consumer needs a part that no task has started yet (eg. because all threads of the Executor are busy
+ * or it runs tasks on the calling thread), it reads the part itself, so iteration can never deadlock
+ * on a saturated Executor.
+ *
+ * Call {@link #close()} when abandoning the iteration early, so that the tasks stop reading.
+ *
+ * @param <R> the row type, eg. String[], Object[] or a Map
+ */
+public class ParallelPartIterator<R> implements Iterator<R>, AutoCloseable {
+    static final int DEFAULT_BUFFERED_ROWS = 1024;
+
+    private static final Object END_OF_PART = new Object();
+    private static final Object NO_ROW = new Object();
+    private static final long POLL_MILLIS = 50;
+
+    private final List<Callable<Table>> parts;
+    private final PartIterator.RowReader<R> reader;
+    private final Executor executor;
+    private final boolean ordered;
+    private final int partsInFlight;
+    private final int bufferedRows;
+    private final Thread owner;
+    private final BlockingQueue<Object> sharedBuffer;
+    private final PartTask[] tasks;
+    private final Deque<PartTask> pending = new ArrayDeque<>();
+    private volatile boolean closed = false;
+
+    private int submitted = 0;
+    private int finished = 0;
+    private Iterator<R> inline = null;
+    private Object next = null;
+
+    /**
+     * @param parts sources of the Tables of all parts, in order
+     * @param reader opens the row iterator for a Table
+     * @param executor Executor to parse parts on
+     * @param ordered true: return rows in the order of the parts, false: return rows as they are read
+     * @param partsInFlight how many parts to read ahead concurrently, at least 1
+     * @param bufferedRows how many rows to buffer per part (ordered) or for all parts (unordered)
+     */
+    ParallelPartIterator(List<Callable<Table>> parts, PartIterator.RowReader<R> reader, Executor executor,
+                         boolean ordered, int partsInFlight, int bufferedRows) {
+        this.parts = parts;
+        this.reader = reader;
+        this.executor = executor;
+        this.ordered = ordered;
+        this.partsInFlight = Math.max(1, partsInFlight);
+        this.bufferedRows = Math.max(1, bufferedRows);
+        this.owner = Thread.currentThread();
+        this.sharedBuffer = ordered ? null : new ArrayBlockingQueue<>(this.bufferedRows);
+        this.tasks = new ParallelPartIterator.PartTask[parts.size()];
+        submit();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (null == next) {
+            next = fetch();
+        }
+        return next != NO_ROW;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public R next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Object row = next;
+        next = null;
+        return (R) row;
+    }
+
+    /**
+     * Stop reading. Tasks still running stop at their next row, buffered rows are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        next = NO_ROW;
+        inline = null;
+        for (PartTask task : tasks) {
+            if (null != task) {
+                task.claimed.set(true);
+                if (null != task.buffer)
+                    task.buffer.clear();
+            }
+        }
+        if (null != sharedBuffer)
+            sharedBuffer.clear();
+    }
+
+    private Object fetch() {
+        try {
+            return ordered ? fetchOrdered() : fetchUnordered();
+        } catch (InterruptedException ex) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new DataPackageException("Interrupted while reading the Resource", ex);
+        } catch (RuntimeException | Error ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    private Object fetchOrdered() throws InterruptedException {
+        while (!closed) {
+            if (null != inline) {
+                if (inline.hasNext())
+                    return inline.next();
+                inline = null;
+                partFinished();
+                continue;
+            }
+            if (finished >= parts.size())
+                return NO_ROW;
+            PartTask task = tasks[finished];
+            if (task.claimed.compareAndSet(false, true)) {
+                inline = PartIterator.open(parts, task.index, reader);
+                continue;
+            }
+            Object row = task.buffer.take();
+            if (row == END_OF_PART) {
+                partFinished();
+                continue;
+            }
+            return checked(row);
+        }
+        return NO_ROW;
+    }
+
+    private Object fetchUnordered() throws InterruptedException {
+        while (!closed) {
+            if (null != inline) {
+                if (inline.hasNext())
+                    return inline.next();
+                inline = null;
+                partFinished();
+                continue;
+            }
+            if (finished >= parts.size())
+                return NO_ROW;
+            Object row = sharedBuffer.poll();
+            if (null == row) {
+                // nothing buffered, read a part nobody started yet instead of waiting
+                PartTask unstarted = claimPending();
+                if (null != unstarted) {
+                    inline = PartIterator.open(parts, unstarted.index, reader);
+                    continue;
+                }
+                row = sharedBuffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (null == row)
+                    continue;
+            }
+            if (row == END_OF_PART) {
+                partFinished();
+                continue;
+            }
+            return checked(row);
+        }
+        return NO_ROW;
+    }
+
+    private Object checked(Object row) {
+        if (row instanceof Failure) {
+            Throwable cause = ((Failure) row).cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new DataPackageException(cause);
+        }
+        return row;
+    }
+
+    private void partFinished() {
+        if (ordered) {
+            tasks[finished] = null;
+        }
+        finished++;
+        submit();
+    }
+
+    private PartTask claimPending() {
+        while (!pending.isEmpty()) {
+            PartTask task = pending.poll();
+            if (task.claimed.compareAndSet(false, true))
+                return task;
+        }
+        return null;
+    }
+
+    private void submit() {
+        while ((submitted < parts.size()) && (submitted - finished < partsInFlight)) {
+            PartTask task = new PartTask(submitted++);
+            tasks[task.index] = task;
+            if (!ordered)
+                pending.add(task);
+            executor.execute(task);
+        }
+    }
+
+    private final class PartTask implements Runnable {
+        private final int index;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private final BlockingQueue<Object> buffer;
+
+        private PartTask(int index) {
+            this.index = index;
+            this.buffer = ordered ? new ArrayBlockingQueue<>(bufferedRows) : sharedBuffer;
+        }
+
+        @Override
+        public void run() {
+            // an Executor running tasks on the consuming thread would block it on a full buffer
+            if ((Thread.currentThread() == owner) || !claimed.compareAndSet(false, true))
+                return;
+            try {
+                Iterator<R> rows = PartIterator.open(parts, index, reader);
+                while (rows.hasNext()) {
+                    if (!put(rows.next()))
+                        return;
+                }
+                put(END_OF_PART);
+            } catch (Throwable t) {
+                put(new Failure(t));
+            }
+        }
+
+        private boolean put(Object row) {
+            try {
+                while (!closed) {
+                    if (buffer.offer(row, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                        return true;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
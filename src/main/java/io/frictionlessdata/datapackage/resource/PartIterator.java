@@ -0,0 +1,110 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.Table;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+
+/**
+ * Iterator over the rows of a Resource that consists of more than one part (eg. a `path` property
+ * holding multiple files or URLs). Unlike chaining one iterator per part, parts are opened lazily:
+ * part N+1 is only opened when part N is exhausted, and part N is released then. Memory and
+ * file handles therefore stay constant regardless of the number of parts.
+ *
+ * The part the last returned row belongs to can be queried via {@link #getPartIndex()}, and
+ * the rest of a part can be skipped with {@link #skipPart()}.
+ *
+ * @param <R> the row type, eg. String[], Object[] or a Map
+ */
+public class PartIterator<R> implements Iterator<R> {
+
+    /**
+     * Opens an iterator over the rows of one part.
+     * @param <R> the row type
+     */
+    @FunctionalInterface
+    public interface RowReader<R> {
+        Iterator<R> read(Table table) throws Exception;
+    }
+
+    private final List<Callable<Table>> parts;
+    private final RowReader<R> reader;
+    private int nextPart = 0;
+    private int partIndex = -1;
+    private Iterator<R> current = null;
+
+    PartIterator(List<Callable<Table>> parts, RowReader<R> reader) {
+        this.parts = parts;
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ((null == current) || !current.hasNext()) {
+            release();
+            if (nextPart >= parts.size())
+                return false;
+            current = open(nextPart++);
+        }
+        return true;
+    }
+
+    @Override
+    public R next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        partIndex = nextPart - 1;
+        return current.next();
+    }
+
+    /**
+     * @return the number of parts of the Resource
+     */
+    public int getPartCount() {
+        return parts.size();
+    }
+
+    /**
+     * @return zero-based index of the part the row last returned by {@link #next()} belongs to,
+     * -1 if no row has been returned yet
+     */
+    public int getPartIndex() {
+        return partIndex;
+    }
+
+    /**
+     * Skip the remaining rows of the part that is currently read and release it. The next call to
+     * {@link #next()} returns the first row of the next non-empty part.
+     */
+    public void skipPart() {
+        release();
+    }
+
+    private Iterator<R> open(int index) {
+        return open(parts, index, reader);
+    }
+
+    static <R> Iterator<R> open(List<Callable<Table>> parts, int index, RowReader<R> reader) {
+        try {
+            return reader.read(parts.get(index).call());
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new DataPackageException("Cannot read part " + index + " of the Resource", ex);
+        }
+    }
+
+    private void release() {
+        if (current instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) current).close();
+            } catch (Exception ex) {
+                throw new DataPackageException(ex);
+            }
+        }
+        current = null;
+    }
+}
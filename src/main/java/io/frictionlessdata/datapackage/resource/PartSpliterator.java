@@ -0,0 +1,66 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.tableschema.Table;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the rows of a multi-part Resource. It splits along part boundaries, so in a
+ * parallel Stream each part is parsed by one thread, and parts are only opened when a thread
+ * starts reading them. Encounter order is the order of the parts and their rows.
+ *
+ * @param <R> the row type, eg. String[], Object[] or a Map
+ */
+class PartSpliterator<R> implements Spliterator<R> {
+    private final List<Callable<Table>> parts;
+    private final PartIterator.RowReader<R> reader;
+    private int from;
+    private final int to;
+    private PartIterator<R> rows = null;
+
+    PartSpliterator(List<Callable<Table>> parts, PartIterator.RowReader<R> reader) {
+        this(parts, reader, 0, parts.size());
+    }
+
+    private PartSpliterator(List<Callable<Table>> parts, PartIterator.RowReader<R> reader, int from, int to) {
+        this.parts = parts;
+        this.reader = reader;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+        if (null == rows) {
+            rows = new PartIterator<>(parts.subList(from, to), reader);
+        }
+        if (!rows.hasNext())
+            return false;
+        action.accept(rows.next());
+        return true;
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+        // once reading started, the remaining parts belong to this Spliterator
+        if ((null != rows) || (to - from < 2))
+            return null;
+        int mid = (from + to) >>> 1;
+        Spliterator<R> prefix = new PartSpliterator<>(parts, reader, from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,326 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.RowValidationException;
+import io.frictionlessdata.tableschema.field.Field;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Checks a foreign key against a referenced Resource that has too many keys to index in memory, the way
+ * a Grace hash join works: the referenced keys and the foreign key values of the referencing rows are
+ * both hash-partitioned to temporary files, so all occurrences of a key end up in the same partition.
+ * Each partition is then checked on its own, with only its referenced keys in memory. A partition that
+ * still holds more than the allowed number of keys is partitioned again with another hash.
+ *
+ * Keys are compared by the String forms of their values. Values of the referencing Resource that are
+ * Strings are first cast to the type of the referenced field, as in {@link KeyIndex#find(Object...)}.
+ * The partition files only hold these String forms, the values of violating rows are read again from
+ * the referencing Resource in one pass, so they are reported as they are in the data.
+ */
+final class PartitionedRelationCheck {
+    static final int FAN_OUT = 64;
+    // keys that still don't fit after this many rounds have equal hash codes, they are loaded anyway
+    static final int MAX_DEPTH = 4;
+
+    private final long maxKeysInMemory;
+    private final Path spillDirectory;
+
+    /**
+     * @param maxKeysInMemory the maximum number of referenced keys held in memory at once
+     * @param spillDirectory the directory for temporary files, null for the default temporary directory
+     */
+    PartitionedRelationCheck(long maxKeysInMemory, Path spillDirectory) {
+        this.maxKeysInMemory = Math.max(1, maxKeysInMemory);
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Check a foreign key of all rows of a Resource.
+     *
+     * @param resource the referencing Resource
+     * @param fields the foreign key fields
+     * @param referenced the referenced Resource
+     * @param referencedFields the referenced fields
+     * @param maxViolations the maximum number of violations to return
+     * @return the violations with the lowest row numbers, at most `maxViolations`, in row order
+     * @throws Exception if reading the data or the temporary files fails
+     */
+    List<RowValidationException> check(Resource resource, List<String> fields, Resource referenced,
+                                       List<String> referencedFields, int maxViolations) throws Exception {
+        Violations violations = new Violations(resource.getName(), fields,
+                " not found in fields " + referencedFields + " of Resource " + referenced.getName(), maxViolations);
+        Field<?>[] referencedTypes = KeyIndex.getFields(referenced.getSchema(), referencedFields);
+        Path dir = (null == spillDirectory)
+                ? Files.createTempDirectory("datapackage-fk")
+                : Files.createTempDirectory(spillDirectory, "datapackage-fk");
+        try {
+            Partitions keys = new Partitions(dir.resolve("keys"), fields.size(), 0);
+            try {
+                Iterator<Object[]> iter = referenced.objectArrayIterator(referencedFields);
+                while (iter.hasNext()) {
+                    Object[] key = iter.next();
+                    if (!hasMissingValue(key))
+                        keys.write(-1, KeyIndex.toStrings(key));
+                }
+            } finally {
+                keys.close();
+            }
+            Partitions rows = new Partitions(dir.resolve("rows"), fields.size(), 0);
+            try {
+                Iterator<Object[]> iter = resource.objectArrayIterator(fields);
+                long rowNumber = 0;
+                while (iter.hasNext()) {
+                    Object[] values = iter.next();
+                    rowNumber++;
+                    if (hasMissingValue(values))
+                        continue;
+                    List<String> key = KeyIndex.normalize(values, referencedTypes);
+                    if (null == key) {
+                        violations.add(rowNumber, values);
+                    } else {
+                        rows.write(rowNumber, key);
+                    }
+                }
+            } finally {
+                rows.close();
+            }
+            for (int p = 0; p < FAN_OUT; p++) {
+                checkPartition(keys, rows, p, 0, violations);
+            }
+            violations.readValues(resource);
+        } finally {
+            delete(dir);
+        }
+        return violations.sorted();
+    }
+
+    /**
+     * Find a referenced row by scanning the referenced Resource, for keys that are not indexed in memory.
+     *
+     * @param referenced the referenced Resource
+     * @param referencedFields the referenced fields
+     * @param values the foreign key values
+     * @return the number of the first referenced row with these values, -1 if there is none
+     * @throws Exception if reading the data fails
+     */
+    static long findRow(Resource referenced, List<String> referencedFields, Object... values) throws Exception {
+        List<String> key = KeyIndex.normalize(values, KeyIndex.getFields(referenced.getSchema(), referencedFields));
+        if (null == key)
+            return -1;
+        Iterator<Object[]> iter = referenced.objectArrayIterator(referencedFields);
+        long row = 0;
+        while (iter.hasNext()) {
+            if (key.equals(KeyIndex.toStrings(iter.next())))
+                return row;
+            row++;
+        }
+        return -1;
+    }
+
+    private void checkPartition(Partitions keys, Partitions rows, int partition, int depth, Violations violations)
+            throws IOException {
+        if (rows.counts[partition] == 0)
+            return;
+        Set<List<String>> keySet = new HashSet<>();
+        boolean overflow = false;
+        try (DataInputStream in = keys.open(partition)) {
+            for (long i = 0; (i < keys.counts[partition]) && !overflow; i++) {
+                in.readLong();
+                keySet.add(keys.readKey(in));
+                overflow = (keySet.size() > maxKeysInMemory) && (depth < MAX_DEPTH);
+            }
+        }
+        if (overflow) {
+            keySet = null;
+            Partitions subKeys = keys.split(partition, depth + 1);
+            Partitions subRows = rows.split(partition, depth + 1);
+            for (int p = 0; p < FAN_OUT; p++) {
+                checkPartition(subKeys, subRows, p, depth + 1, violations);
+            }
+            return;
+        }
+        try (DataInputStream in = rows.open(partition)) {
+            for (long i = 0; i < rows.counts[partition]; i++) {
+                long rowNumber = in.readLong();
+                List<String> key = rows.readKey(in);
+                if (!keySet.contains(key))
+                    violations.add(rowNumber, null);
+            }
+        }
+    }
+
+    static boolean hasMissingValue(Object[] values) {
+        for (Object value : values) {
+            if (null == value)
+                return true;
+        }
+        return false;
+    }
+
+    static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((p) -> p.toFile().delete());
+        }
+    }
+
+    /*
+     FAN_OUT files of records, each a row number (-1 for referenced keys) followed by the key values.
+     Also used by the ValidationEngine for uniqueness checks that don't fit in memory.
+     */
+    static final class Partitions {
+        private final Path dir;
+        private final int keySize;
+        private final int depth;
+        final long[] counts = new long[FAN_OUT];
+        private DataOutputStream[] outs = new DataOutputStream[FAN_OUT];
+
+        Partitions(Path dir, int keySize, int depth) throws IOException {
+            this.dir = Files.createDirectories(dir);
+            this.keySize = keySize;
+            this.depth = depth;
+        }
+
+        void write(long rowNumber, List<String> key) throws IOException {
+            int p = partition(key, depth);
+            if (null == outs[p])
+                outs[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file(p))));
+            outs[p].writeLong(rowNumber);
+            for (String value : key) {
+                // writeUTF is limited to 65535 bytes
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                outs[p].writeInt(bytes.length);
+                outs[p].write(bytes);
+            }
+            counts[p]++;
+        }
+
+        List<String> readKey(DataInputStream in) throws IOException {
+            List<String> key = new ArrayList<>(keySize);
+            for (int i = 0; i < keySize; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                key.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return key;
+        }
+
+        DataInputStream open(int partition) throws IOException {
+            if (counts[partition] == 0)
+                return new DataInputStream(new ByteArrayInputStream(new byte[0]));
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(file(partition))));
+        }
+
+        /*
+         Partition the records of one partition again, with the hash of the next round, and delete its file.
+         */
+        Partitions split(int partition, int newDepth) throws IOException {
+            Partitions sub = new Partitions(dir.resolve(partition + "-" + newDepth), keySize, newDepth);
+            try (DataInputStream in = open(partition)) {
+                for (long i = 0; i < counts[partition]; i++) {
+                    long rowNumber = in.readLong();
+                    sub.write(rowNumber, readKey(in));
+                }
+            } finally {
+                sub.close();
+            }
+            Files.deleteIfExists(file(partition));
+            counts[partition] = 0;
+            return sub;
+        }
+
+        void close() throws IOException {
+            IOException failure = null;
+            for (DataOutputStream out : outs) {
+                try {
+                    if (null != out)
+                        out.close();
+                } catch (IOException ex) {
+                    failure = ex;
+                }
+            }
+            outs = new DataOutputStream[FAN_OUT];
+            if (null != failure)
+                throw failure;
+        }
+
+        private Path file(int partition) {
+            return dir.resolve(partition + ".part");
+        }
+
+        private static int partition(List<String> key, int depth) {
+            // MurmurHash3 finalizer, salted per round so a partition splits again
+            long h = key.hashCode() + depth * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return (int) ((h >>> 1) % FAN_OUT);
+        }
+    }
+
+    /*
+     Partitions are checked out of row order, keeps the violations with the lowest row numbers. Violations
+     found in the partition files have no values until readValues() reads them from the Resource.
+     */
+    private static final class Violations {
+        private final String resourceName;
+        private final List<String> fields;
+        private final String reference;
+        private final int max;
+        // row number to values, the highest row number first
+        private final TreeMap<Long, Object[]> lowest = new TreeMap<>(Comparator.reverseOrder());
+
+        private Violations(String resourceName, List<String> fields, String reference, int max) {
+            this.resourceName = resourceName;
+            this.fields = fields;
+            this.reference = reference;
+            this.max = max;
+        }
+
+        private void add(long rowNumber, Object[] values) {
+            if (max <= 0)
+                return;
+            if ((lowest.size() == max) && (lowest.firstKey() < rowNumber))
+                return;
+            lowest.put(rowNumber, values);
+            if (lowest.size() > max)
+                lowest.pollFirstEntry();
+        }
+
+        private void readValues(Resource resource) throws Exception {
+            long last = -1;
+            for (Map.Entry<Long, Object[]> entry : lowest.entrySet()) {
+                if (null == entry.getValue()) {
+                    last = entry.getKey();
+                    break;
+                }
+            }
+            if (last < 0)
+                return;
+            Iterator<Object[]> iter = resource.objectArrayIterator(fields);
+            for (long rowNumber = 1; (rowNumber <= last) && iter.hasNext(); rowNumber++) {
+                Object[] values = iter.next();
+                if (lowest.containsKey(rowNumber) && (null == lowest.get(rowNumber)))
+                    lowest.put(rowNumber, values);
+            }
+        }
+
+        private List<RowValidationException> sorted() {
+            List<RowValidationException> sorted = new ArrayList<>(lowest.size());
+            for (Map.Entry<Long, Object[]> entry : lowest.descendingMap().entrySet()) {
+                long rowNumber = entry.getKey();
+                Object[] values = entry.getValue();
+                sorted.add(new RowValidationException("Row " + rowNumber + " of Resource " + resourceName
+                        + ": foreign key " + fields + " value " + Arrays.toString(values) + reference,
+                        resourceName, rowNumber, fields, values));
+            }
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.Table;
+import io.frictionlessdata.tableschema.field.Field;
+import io.frictionlessdata.tableschema.schema.Schema;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Selection of the fields and rows of a Resource to read. Rows are read as raw strings, a {@link RowFilter}
+ * is evaluated on the raw values where possible, and only the values of the selected fields of matching
+ * rows are cast according to the Schema. The cost of casting therefore does not grow with the number of
+ * fields or rows that are not needed. Rows contain only the selected fields, in the order of the selection.
+ *
+ * Columns are looked up by header for every part, so parts may order their columns differently.
+ */
+final class Projection {
+    private final List<String> fieldNames;
+    private final Map<String, Field<?>> fieldsByName = new HashMap<>();
+    private final Set<String> customNotationFields;
+    private final String nullSequence;
+
+    /**
+     * @param fieldNames names of the fields to read, in the order they should appear in rows. If null,
+     *                   all fields are read, in the order of the data
+     * @param schema the Schema to cast values with. If null, values are returned as Strings
+     * @param nullSequence a value that denotes a missing value besides the empty string, may be null
+     */
+    Projection(List<String> fieldNames, Schema schema, String nullSequence) {
+        if ((null != fieldNames) && fieldNames.isEmpty())
+            throw new DataPackageException("A projection needs at least one field");
+        this.fieldNames = (null != fieldNames) ? new ArrayList<>(fieldNames) : null;
+        this.nullSequence = ((null != nullSequence) && !nullSequence.isEmpty()) ? nullSequence : null;
+        this.customNotationFields = ColumnBatchIterator.getCustomNotationFields(schema);
+        if (null != schema) {
+            for (Field<?> field : schema.getFields()) {
+                fieldsByName.put(field.getName(), field);
+            }
+            if (null != fieldNames) {
+                for (String fieldName : fieldNames) {
+                    if (!fieldsByName.containsKey(fieldName))
+                        throw new DataPackageException("Schema has no field named " + fieldName);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the selected field names, null if all fields are selected
+     */
+    List<String> getFieldNames() {
+        return (null != fieldNames) ? Collections.unmodifiableList(fieldNames) : null;
+    }
+
+    /**
+     * @param headers the headers of a Table
+     * @return for each selected field, its column index in `headers`
+     */
+    int[] resolve(String[] headers) {
+        if (null == fieldNames) {
+            int[] columns = new int[(null != headers) ? headers.length : 0];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = i;
+            }
+            return columns;
+        }
+        Map<String, Integer> columnsByName = columnsByName(headers);
+        int[] columns = new int[fieldNames.size()];
+        for (int i = 0; i < columns.length; i++) {
+            Integer column = columnsByName.get(fieldNames.get(i));
+            if (null == column)
+                throw new DataPackageException("Data has no column named " + fieldNames.get(i));
+            columns[i] = column;
+        }
+        return columns;
+    }
+
+    /**
+     * @return RowReader returning projected rows with cast values
+     */
+    PartIterator.RowReader<Object[]> reader() {
+        return reader(null);
+    }
+
+    /**
+     * @param filter the filter rows must match, null for all rows
+     * @return RowReader returning projected rows of matching rows with cast values
+     */
+    PartIterator.RowReader<Object[]> reader(RowFilter filter) {
+        return (table) -> new ProjectingIterator(table, filter);
+    }
+
+    static Map<String, Integer> columnsByName(String[] headers) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int j = 0; (null != headers) && (j < headers.length); j++) {
+            columns.putIfAbsent(headers[j], j);
+        }
+        return columns;
+    }
+
+    private static Object cast(Field<?> field, String fieldName, String value) {
+        // the tableschema default for missing values is the empty string
+        if ((null == value) || value.isEmpty())
+            return null;
+        if (null == field)
+            return value;
+        try {
+            return field.castValue(value);
+        } catch (Exception ex) {
+            throw new DataPackageException("Cannot cast value '" + value + "' of field "
+                    + fieldName + " to " + field.getType(), ex);
+        }
+    }
+
+    private final class ProjectingIterator implements Iterator<Object[]> {
+        private final Iterator<String[]> rows;
+        private final int[] columns;
+        private final String[] names;
+        private final Field<?>[] fields;
+        private final Predicate<String[]> filter;
+        private String[] next = null;
+
+        private ProjectingIterator(Table table, RowFilter rowFilter) throws Exception {
+            String[] headers = table.getHeaders();
+            this.columns = resolve(headers);
+            this.names = new String[columns.length];
+            this.fields = new Field<?>[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                names[i] = (null != fieldNames) ? fieldNames.get(i) : headers[i];
+                // columns without a field in the Schema are returned as Strings
+                fields[i] = fieldsByName.get(names[i]);
+            }
+            this.filter = (null != rowFilter)
+                    ? rowFilter.bind(columnsByName(headers), fieldsByName, customNotationFields)
+                    : null;
+            this.rows = table.stringArrayIterator(false);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((null == next) && rows.hasNext()) {
+                String[] row = rows.next();
+                if (null != nullSequence) {
+                    // filters and casts treat the empty string as missing, so they see the null sequence as such
+                    for (int j = 0; j < row.length; j++) {
+                        if (nullSequence.equals(row[j])) {
+                            row[j] = "";
+                        }
+                    }
+                }
+                if ((null == filter) || filter.test(row)) {
+                    next = row;
+                }
+            }
+            return null != next;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            String[] row = next;
+            next = null;
+            Object[] projected = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                String value = (columns[i] < row.length) ? row[columns[i]] : null;
+                projected[i] = cast(fields[i], names[i], value);
+            }
+            return projected;
+        }
+    }
+}
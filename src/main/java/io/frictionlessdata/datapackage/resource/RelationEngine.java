@@ -0,0 +1,323 @@
+package io.frictionlessdata.datapackage.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
+import io.frictionlessdata.datapackage.exceptions.RowValidationException;
+import io.frictionlessdata.tableschema.schema.Schema;
+import io.frictionlessdata.tableschema.util.JsonUtil;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolves and validates the foreign keys of Resources. For each referenced Resource and list of referenced
+ * fields, an index from the referenced values to their row is built once, in one pass over the referenced
+ * Resource, and cached. Checking the foreign keys of a Resource is then one pass over its rows with a hash
+ * lookup per row and foreign key, instead of a scan of the referenced Resource per row.
+ *
+ * A {@link io.frictionlessdata.datapackage.Package} owns one engine for its Resources and drops the indexes
+ * of a Resource when it is replaced or removed. Indexes are not rebuilt when the data of a Resource changes
+ * otherwise, call {@link #invalidate(String)} in that case.
+ *
+ * A referenced Resource with more keys than {@link #setMaxKeysInMemory(long)} allows is not indexed in memory.
+ * Its foreign keys are checked by hash-partitioning the referenced keys and the referencing rows to temporary
+ * files, and checking one partition at a time (see {@link PartitionedRelationCheck}).
+ *
+ * Foreign keys are read from the "foreignKeys" property of the Schema. As in the spec, a reference to the
+ * empty resource name "" is a reference to the Resource itself, and foreign keys with a missing value are
+ * not checked. References to other Data Packages are not followed.
+ */
+public class RelationEngine {
+    private final Function<String, Resource> resolver;
+    private final Map<List<String>, CachedIndex> indexes = new ConcurrentHashMap<>();
+    private volatile long maxKeysInMemory = Long.MAX_VALUE;
+    private volatile Path spillDirectory = null;
+
+    /**
+     * @param resolver finds a Resource by name, returns null if there is none
+     */
+    public RelationEngine(Function<String, Resource> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Set the maximum number of distinct keys of a referenced Resource that are indexed in memory. Foreign keys
+     * referencing more keys are checked in partitions that hold at most that many keys each, spilling to
+     * temporary files. Drops the cached indexes.
+     *
+     * @param maxKeysInMemory the maximum number of keys, the default is unlimited
+     */
+    public void setMaxKeysInMemory(long maxKeysInMemory) {
+        if (maxKeysInMemory < 1)
+            throw new DataPackageException("The maximum number of keys in memory must be positive");
+        this.maxKeysInMemory = maxKeysInMemory;
+        clear();
+    }
+
+    public long getMaxKeysInMemory() {
+        return maxKeysInMemory;
+    }
+
+    /**
+     * Set the directory for the temporary files of foreign key checks that don't fit in memory.
+     * @param spillDirectory the directory, null for the default temporary directory
+     */
+    public void setSpillDirectory(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Check the foreign keys of all rows of a Resource.
+     *
+     * @param resource the referencing Resource
+     * @throws RowValidationException for the first row with a foreign key that has no match
+     * @throws DataPackageValidationException if a referenced Resource or field doesn't exist
+     * @throws Exception if reading the data fails
+     */
+    public void checkRelations(Resource resource) throws Exception {
+        List<RowValidationException> violations = findViolations(resource, 1);
+        if (!violations.isEmpty())
+            throw violations.get(0);
+    }
+
+    /**
+     * Check the foreign keys of all rows of a Resource, and collect the rows that violate them.
+     *
+     * @param resource the referencing Resource
+     * @param maxViolations stop reading rows after this many violations
+     * @return the violations, at most `maxViolations`, in row order
+     * @throws DataPackageValidationException if a referenced Resource or field doesn't exist
+     * @throws Exception if reading the data fails
+     */
+    public List<RowValidationException> findViolations(Resource resource, int maxViolations) throws Exception {
+        List<RowValidationException> violations = new ArrayList<>();
+        List<ForeignKeyDef> foreignKeys = ForeignKeyDef.parse(resource.getSchema());
+        if (foreignKeys.isEmpty())
+            return violations;
+        // resolve all references before reading rows, so a missing Resource fails fast
+        KeyIndex[] referencedIndexes = new KeyIndex[foreignKeys.size()];
+        List<String> columns = new ArrayList<>();
+        int[][] positions = new int[foreignKeys.size()][];
+        List<ForeignKeyDef> spilled = new ArrayList<>();
+        for (int k = 0; k < foreignKeys.size(); k++) {
+            ForeignKeyDef fk = foreignKeys.get(k);
+            referencedIndexes[k] = getIndex(resolve(resource, fk), fk.referencedFields);
+            positions[k] = new int[fk.fields.size()];
+            if (null == referencedIndexes[k]) {
+                spilled.add(fk);
+                continue;
+            }
+            for (int i = 0; i < fk.fields.size(); i++) {
+                String field = fk.fields.get(i);
+                if (!columns.contains(field))
+                    columns.add(field);
+                positions[k][i] = columns.indexOf(field);
+            }
+        }
+        Iterator<Object[]> rows = columns.isEmpty()
+                ? Collections.emptyIterator()
+                : resource.objectArrayIterator(columns);
+        long rowNumber = 0;
+        while (rows.hasNext() && (violations.size() < maxViolations)) {
+            Object[] row = rows.next();
+            rowNumber++;
+            for (int k = 0; (k < foreignKeys.size()) && (violations.size() < maxViolations); k++) {
+                if (null == referencedIndexes[k])
+                    continue;
+                Object[] key = new Object[positions[k].length];
+                boolean missing = false;
+                for (int i = 0; i < key.length; i++) {
+                    key[i] = row[positions[k][i]];
+                    missing |= (null == key[i]);
+                }
+                if (!missing && (find(referencedIndexes[k], key) < 0)) {
+                    ForeignKeyDef fk = foreignKeys.get(k);
+                    violations.add(new RowValidationException("Row " + rowNumber + " of Resource "
+                            + resource.getName() + ": foreign key " + fk.fields + " value " + Arrays.toString(key)
+                            + " not found in fields " + fk.referencedFields + " of Resource "
+                            + resolve(resource, fk).getName(), resource.getName(), rowNumber, fk.fields, key));
+                }
+            }
+        }
+        if (spilled.isEmpty())
+            return violations;
+        // each check finds the first violations of its foreign key, merge them in row order
+        PartitionedRelationCheck check = new PartitionedRelationCheck(maxKeysInMemory, spillDirectory);
+        for (ForeignKeyDef fk : spilled) {
+            violations.addAll(check.check(resource, fk.fields, resolve(resource, fk), fk.referencedFields,
+                    maxViolations));
+        }
+        violations.sort(Comparator.comparingLong(RowValidationException::getRowNumber));
+        return new ArrayList<>(violations.subList(0, Math.min(maxViolations, violations.size())));
+    }
+
+    /**
+     * Find the row referenced by a foreign key value.
+     *
+     * @param resource the referencing Resource
+     * @param fields the fields of the foreign key, as in the Schema of `resource`
+     * @param values the values of the foreign key fields
+     * @return the referenced row, or null if there is none
+     * @throws DataPackageException if `resource` has no foreign key on `fields`
+     * @throws Exception if reading the data fails
+     */
+    public Object[] resolve(Resource resource, List<String> fields, Object... values) throws Exception {
+        for (ForeignKeyDef fk : ForeignKeyDef.parse(resource.getSchema())) {
+            if (fk.fields.equals(fields)) {
+                Resource referenced = resolve(resource, fk);
+                KeyIndex index = getIndex(referenced, fk.referencedFields);
+                long row = (null != index)
+                        ? find(index, values)
+                        : PartitionedRelationCheck.findRow(referenced, fk.referencedFields, values);
+                if (row < 0)
+                    return null;
+                List<Object[]> rows = referenced.readRows(row, 1);
+                return rows.isEmpty() ? null : rows.get(0);
+            }
+        }
+        throw new DataPackageException("Resource " + resource.getName() + " has no foreign key on " + fields);
+    }
+
+    /**
+     * Drop the cached indexes of a Resource, eg. after its data changed.
+     * @param resourceName name of the Resource
+     */
+    public void invalidate(String resourceName) {
+        String cacheName = cacheName(resourceName);
+        indexes.keySet().removeIf((key) -> key.get(0).equals(cacheName));
+    }
+
+    /**
+     * Drop all cached indexes.
+     */
+    public void clear() {
+        indexes.clear();
+    }
+
+    private Resource resolve(Resource resource, ForeignKeyDef fk) {
+        if (fk.resourceName.isEmpty())
+            return resource;
+        Resource referenced = resolver.apply(fk.resourceName);
+        if (null == referenced)
+            throw new DataPackageValidationException("Resource " + fk.resourceName
+                    + " referenced by a foreign key of Resource " + resource.getName() + " does not exist");
+        return referenced;
+    }
+
+    /*
+     Returns null if the referenced Resource has too many keys to index in memory.
+     */
+    private KeyIndex getIndex(Resource referenced, List<String> fields) throws Exception {
+        List<String> cacheKey = new ArrayList<>();
+        cacheKey.add(cacheName(referenced.getName()));
+        cacheKey.addAll(fields);
+        // a Resource replaced under the same name gets a new index
+        CachedIndex cached = indexes.compute(cacheKey, (k, v) ->
+                ((null != v) && (v.resource == referenced)) ? v : new CachedIndex(referenced));
+        return cached.get(fields, maxKeysInMemory);
+    }
+
+    /*
+     A value that can't be cast to the type of the referenced field can't match.
+     */
+    private static long find(KeyIndex index, Object[] key) {
+        try {
+            return index.find(key);
+        } catch (DataPackageException ex) {
+            return -1;
+        }
+    }
+
+    private static String cacheName(String resourceName) {
+        return (null == resourceName) ? "" : resourceName.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class CachedIndex {
+        private final Resource resource;
+        private KeyIndex index = null;
+        private boolean tooLarge = false;
+
+        private CachedIndex(Resource resource) {
+            this.resource = resource;
+        }
+
+        // built once, concurrent checks referencing the same fields wait for it
+        private synchronized KeyIndex get(List<String> fields, long maxKeys) throws Exception {
+            if ((null == index) && !tooLarge) {
+                Schema schema = resource.getSchema();
+                if (null != schema) {
+                    for (String field : fields) {
+                        if (schema.getFields().stream().noneMatch((f) -> field.equals(f.getName())))
+                            throw new DataPackageValidationException("Field " + field
+                                    + " referenced by a foreign key is not in the Schema of Resource "
+                                    + resource.getName());
+                    }
+                }
+                index = KeyIndex.build(fields, schema, resource.objectArrayIterator(fields), maxKeys);
+                tooLarge = (null == index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * A foreign key as declared in a Schema.
+     */
+    static final class ForeignKeyDef {
+        final List<String> fields;
+        final String resourceName;
+        final List<String> referencedFields;
+
+        private ForeignKeyDef(List<String> fields, String resourceName, List<String> referencedFields) {
+            this.fields = fields;
+            this.resourceName = resourceName;
+            this.referencedFields = referencedFields;
+        }
+
+        /**
+         * @param schema a Schema, may be null
+         * @return the foreign keys of the Schema that reference Resources of the same Data Package
+         * @throws DataPackageValidationException if a foreign key and its reference have different field counts
+         */
+        static List<ForeignKeyDef> parse(Schema schema) {
+            List<ForeignKeyDef> foreignKeys = new ArrayList<>();
+            if (null == schema)
+                return foreignKeys;
+            JsonNode fkNodes = JsonUtil.getInstance().readValue(schema.getJson()).get("foreignKeys");
+            if ((null == fkNodes) || !fkNodes.isArray())
+                return foreignKeys;
+            for (JsonNode fkNode : fkNodes) {
+                JsonNode reference = fkNode.get("reference");
+                if ((null == reference) || (reference.hasNonNull("datapackage")))
+                    continue;
+                List<String> fields = asList(fkNode.get("fields"));
+                List<String> referencedFields = asList(reference.get("fields"));
+                if (fields.size() != referencedFields.size())
+                    throw new DataPackageValidationException("Foreign key " + fields
+                            + " and its reference " + referencedFields + " have different numbers of fields");
+                String resourceName = reference.hasNonNull("resource") ? reference.get("resource").asText() : "";
+                foreignKeys.add(new ForeignKeyDef(fields, resourceName, referencedFields));
+            }
+            return foreignKeys;
+        }
+
+        private static List<String> asList(JsonNode node) {
+            List<String> values = new ArrayList<>();
+            if (null == node)
+                return values;
+            if (node.isArray()) {
+                node.forEach((value) -> values.add(value.asText()));
+            } else if (!node.isNull()) {
+                values.add(node.asText());
+            }
+            return values;
+        }
+    }
+}
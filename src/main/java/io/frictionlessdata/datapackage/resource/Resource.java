@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
+import io.frictionlessdata.datapackage.ArchiveSession;
 import io.frictionlessdata.datapackage.Dialect;
 import io.frictionlessdata.datapackage.JSONBase;
 import io.frictionlessdata.datapackage.exceptions.DataPackageException;
@@ -19,6 +20,7 @@ import org.apache.commons.lang3.StringUtils;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -26,6 +28,8 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import static io.frictionlessdata.datapackage.Validator.isValidUrl;
 
@@ -50,6 +54,12 @@ public interface Resource<T,C> {
 
     String getJson();
 
+    /**
+     * Get the JSON representation of the Resource as a tree, without going through a String.
+     * @return a new ObjectNode representing the properties of the Resource, callers may modify it
+     */
+    ObjectNode getJsonNode();
+
     /**
      * Read all data from a Resource, unmapped and not transformed. This is useful for non-tabular resources
      *
@@ -59,6 +69,16 @@ public interface Resource<T,C> {
      */
     public Object getRawData() throws IOException;
 
+    /**
+     * Open a stream over the data of a Resource, unmapped and not transformed. Unlike {@link #getRawData()},
+     * this never holds the full content in memory. If the Resource consists of more than one file or URL,
+     * the stream returns their content one after the other, each being opened when the previous one is exhausted.
+     *
+     * @return stream over the contents of the resource files or URLs or the inline data. Callers must close it.
+     * @throws IOException if opening the data fails
+     */
+    InputStream openRawStream() throws IOException;
+
     /**
      * Read all data from a Resource, each row as String arrays. This can be used for smaller datapackages,
      * but for huge or unknown sizes, reading via iterator  is preferred, as this method loads all data into RAM.
@@ -158,6 +178,17 @@ public interface Resource<T,C> {
      */
     void writeData(Writer out) throws Exception;
 
+    /**
+     * Write a sparse row index next to each CSV data file written by {@link #writeData(Path)}, in a file
+     * named like the data file with the suffix `.idx`. The index records the byte offset of every 1024th
+     * row and lets {@link #readRows(long, int)} seek to a row instead of parsing all rows before it.
+     * Resources that are not written as CSV files don't write an index.
+     *
+     * @param outputDir the directory the data was written to
+     * @throws IOException if reading the data files or writing the index fails
+     */
+    void writeRowIndex(Path outputDir) throws IOException;
+
     /**
      * Write the Resource {@link Schema} to `outputDir`.
      *
@@ -183,6 +214,30 @@ public interface Resource<T,C> {
      */
     Iterator<Object[]> objectArrayIterator(boolean extended, boolean relations) throws Exception;
 
+    /**
+     * Returns an Iterator that returns rows as object-arrays holding only the values of the fields named in
+     * `fieldNames`, in that order. Only these values are cast according to the Schema, the values of
+     * all other fields are skipped. Without a Schema, values are returned as Strings. Relations are not followed.
+     *
+     * @param fieldNames the names of the fields to read
+     * @return Iterator returning projected table rows as Object Arrays
+     * @throws Exception if parsing the data fails
+     * @throws DataPackageException if a field does not exist
+     */
+    Iterator<Object[]> objectArrayIterator(List<String> fieldNames) throws Exception;
+
+    /**
+     * Returns an Iterator that returns the rows matching `filter` as object-arrays, holding only the values of
+     * the fields named in `fieldNames`, in that order. The filter is evaluated on the raw values before
+     * casting where possible (see {@link RowFilter}), and parts whose statistics rule out a match are skipped.
+     *
+     * @param fieldNames the names of the fields to read, null for all fields
+     * @param filter the filter rows must match, null for all rows
+     * @return Iterator returning matching table rows as Object Arrays
+     * @throws Exception if parsing the data fails
+     */
+    Iterator<Object[]> objectArrayIterator(List<String> fieldNames, RowFilter filter) throws Exception;
+
     /**
      * Returns an Iterator that returns rows as a Map&lt;key,val&gt; where key is the header name, and val is the data.
      * It can be configured to follow relations
@@ -221,6 +276,214 @@ public interface Resource<T,C> {
      */
     public Iterator<String[]> stringArrayIterator(boolean relations) throws Exception;
 
+    /**
+     * Returns a sequential Stream over the rows as object-arrays, with values cast according to the Schema.
+     * Parts of a multi-part Resource are opened one after the other while the Stream is consumed.
+     *
+     * @return Stream of table rows as Object Arrays
+     * @throws Exception if reading the data fails
+     */
+    Stream<Object[]> stream() throws Exception;
+
+    /**
+     * Returns a parallel Stream over the rows as object-arrays, with values cast according to the Schema.
+     * Local CSV files are split at record boundaries, so even a single large file is parsed by several
+     * threads of the common ForkJoinPool. Other Resources split along part boundaries, each part is then
+     * parsed by one thread. The encounter order is the order of the parts and their rows,
+     * call {@link Stream#unordered()} if it does not matter.
+     *
+     * @return parallel Stream of table rows as Object Arrays
+     * @throws Exception if reading the data fails
+     */
+    Stream<Object[]> parallelStream() throws Exception;
+
+    /**
+     * Returns a Stream over the rows as object-arrays whose parts are parsed concurrently on `executor`.
+     * The number of parts read ahead and the rows buffered per part are bounded, so memory does not
+     * grow with the size of the Resource.
+     *
+     * If `ordered` is true, rows are returned in the order of the parts and their rows. Otherwise,
+     * rows are returned as soon as any part produced them, which gives the best throughput.
+     *
+     * The Stream should be closed (eg. via try-with-resources) if it is not consumed completely,
+     * so the parts still being read are abandoned.
+     *
+     * @param executor the Executor to parse parts on
+     * @param ordered whether to keep the row order
+     * @return Stream of table rows as Object Arrays
+     * @throws Exception if reading the data fails
+     */
+    Stream<Object[]> parallelStream(Executor executor, boolean ordered) throws Exception;
+
+    /**
+     * Returns a Stream over the rows as object-arrays. Values in each column are parsed and converted ("cast")
+     * to Java objects based on the Field definitions of the Schema.
+     *
+     * The Stream is sequential, call {@link Stream#parallel()} to parse on all cores. Local CSV files
+     * are then split at record boundaries, so even a single large file is parsed in parallel. Row numbers
+     * of extended rows are the same as from {@link #objectArrayIterator(boolean, boolean)}. With `relations`,
+     * each part is read as a whole.
+     *
+     * @param extended true: return rows as extended arrays holding the row number as well
+     * @param relations Whether references to other data sources get resolved
+     * @return Stream of table rows as Object Arrays
+     * @throws Exception if reading the data fails
+     */
+    Stream<Object[]> objectArrayStream(boolean extended, boolean relations) throws Exception;
+
+    /**
+     * Returns a Stream over the rows as object-arrays holding only the values of the fields named in
+     * `fieldNames`, in that order. See {@link #objectArrayIterator(List)} on projection and
+     * {@link #objectArrayStream(boolean, boolean)} on parallel parsing.
+     *
+     * @param fieldNames the names of the fields to read
+     * @return Stream of projected table rows as Object Arrays
+     * @throws Exception if reading the data fails
+     */
+    Stream<Object[]> objectArrayStream(List<String> fieldNames) throws Exception;
+
+    /**
+     * Returns a Stream over the rows matching `filter`, see {@link #objectArrayIterator(List, RowFilter)}.
+     *
+     * @param fieldNames the names of the fields to read, null for all fields
+     * @param filter the filter rows must match, null for all rows
+     * @return Stream of matching table rows as Object Arrays
+     * @throws Exception if reading the data fails
+     */
+    Stream<Object[]> objectArrayStream(List<String> fieldNames, RowFilter filter) throws Exception;
+
+    /**
+     * Returns a Stream over the rows as String arrays. It disregards the Schema set on the table.
+     * See {@link #objectArrayStream(boolean, boolean)} on parallel parsing.
+     *
+     * @param relations Whether references to other data sources get resolved
+     * @return Stream of table rows as String Arrays
+     * @throws Exception if reading the data fails
+     */
+    Stream<String[]> stringArrayStream(boolean relations) throws Exception;
+
+    /**
+     * Returns a Stream over the rows as a Map&lt;key,val&gt; where key is the header name, and val is the data.
+     * See {@link #objectArrayStream(boolean, boolean)} on parallel parsing.
+     *
+     * @param relations Whether references to other data sources get resolved
+     * @return Stream of table rows as Maps
+     * @throws Exception if reading the data fails
+     */
+    Stream<Map<String, Object>> mappingStream(boolean relations) throws Exception;
+
+    /**
+     * Returns a Stream over the rows as instances of `beanType`, ignoring the Schema of the Resource
+     * like {@link #beanIterator(Class, boolean)}.
+     * See {@link #objectArrayStream(boolean, boolean)} on parallel parsing.
+     *
+     * @param beanType the Bean class to convert rows to
+     * @param relations follow relations to other data source
+     * @return Stream of table rows as beans
+     * @throws Exception if reading the data fails
+     */
+    Stream<C> beanStream(Class<C> beanType, boolean relations) throws Exception;
+
+    /**
+     * Returns an Iterator that reads the rows in batches of `batchSize` rows into column vectors, typed
+     * according to the Schema: `long[]` for integers, `double[]` for numbers, `boolean[]` for booleans,
+     * and dictionary-encoded strings for all other types. This avoids creating objects per value and
+     * row, which makes it the fastest way to scan numeric data.
+     *
+     * The Iterator returns the same {@link ColumnBatch} instance for every batch, its content is
+     * only valid until the next call to `next()`. Relations are not followed.
+     *
+     * @param batchSize the maximum number of rows per batch
+     * @return Iterator over batches of rows
+     * @throws Exception if reading the data fails
+     */
+    Iterator<ColumnBatch> columnBatchIterator(int batchSize) throws Exception;
+
+    /**
+     * Like {@link #columnBatchIterator(int)}, but only the fields named in `fieldNames` are parsed into
+     * vectors, in that order.
+     *
+     * @param batchSize the maximum number of rows per batch
+     * @param fieldNames the names of the fields to read
+     * @return Iterator over batches of rows
+     * @throws Exception if reading the data fails
+     */
+    Iterator<ColumnBatch> columnBatchIterator(int batchSize, List<String> fieldNames) throws Exception;
+
+    /**
+     * Opens a Cursor over the rows. Unlike the Iterators, a Cursor does not create a row object per row,
+     * but exposes the values of the current row via typed getters over reused buffers, according to the
+     * Schema field types. Values equal to the null sequence of the Dialect are missing.
+     *
+     * @return Cursor positioned before the first row
+     * @throws Exception if reading the data fails
+     */
+    Cursor openCursor() throws Exception;
+
+    /**
+     * Scans the data once and computes the statistics of each field: the number of values and of missing
+     * values, the minimum and maximum, and an estimate of the number of distinct values. Statistics are
+     * kept for every part and for the whole Resource, and written to the descriptor under the `statistics`
+     * property, so a Resource read from that descriptor has them without scanning its data again.
+     *
+     * Statistics are not updated if the data changes, call this method again to recompute them.
+     *
+     * @return the statistics of the whole Resource, by field name
+     * @throws Exception if reading the data fails
+     */
+    Map<String, FieldStatistics> computeStatistics() throws Exception;
+
+    /**
+     * @return the statistics of the whole Resource by field name, null if they have not been computed
+     * or read from the descriptor
+     */
+    Map<String, FieldStatistics> getStatistics();
+
+    /**
+     * Read `count` rows starting at row `fromRow`, the first row after the header being row 0. Rows of
+     * multi-part Resources are numbered across all parts. Fewer rows are returned if the data ends before.
+     *
+     * For local CSV files, the rows are located with a sparse row index (see {@link #writeRowIndex(Path)}),
+     * so only the rows near the requested ones are parsed. A stored index is used if it is still up to date
+     * with its data file, otherwise the index is built with one scan of the file and kept in memory as long
+     * as the file doesn't change. Other Resources read all rows before `fromRow`.
+     *
+     * @param fromRow number of the first row to read
+     * @param count the number of rows to read
+     * @return the rows, with values cast according to the Schema
+     * @throws Exception if reading the data fails
+     */
+    List<Object[]> readRows(long fromRow, int count) throws Exception;
+
+    /**
+     * Find the row with the given primary key, as declared by the `primaryKey` of the Schema. The first
+     * lookup builds an index from key to row in one pass over the data (see {@link #createPrimaryKeyIndex(boolean)}),
+     * later lookups use the index. For local CSV files, also in ZIP archives, the index only holds the row
+     * numbers, and rows are read with {@link #readRows(long, int)}. Other Resources keep their rows in memory
+     * with the index, up to {@link AbstractResource#setMaxLookupRows(int)} rows, and read all rows before the
+     * key for every lookup if they have more.
+     *
+     * @param key the values of the primary key fields, in the order of the primary key. Strings are
+     *            cast according to the field types, so `lookup("42")` finds the row with integer key 42
+     * @return the row, with values cast according to the Schema, or null if no row has the key
+     * @throws DataPackageException if the Schema has no primary key
+     * @throws DataPackageValidationException if a primary key is missing or not unique in the data
+     * @throws Exception if reading the data fails
+     */
+    Object[] lookup(Object... key) throws Exception;
+
+    /**
+     * Build the primary key index used by {@link #lookup(Object...)}. For local CSV files, the index can
+     * be stored next to the first data file, with the suffix `.pk.idx`. A stored index is used instead of
+     * scanning the data as long as the data files don't change.
+     *
+     * @param store true to store the index next to the data files, if the Resource has local CSV files
+     * @throws DataPackageException if the Schema has no primary key
+     * @throws DataPackageValidationException if a primary key is missing or not unique in the data
+     * @throws Exception if reading the data or writing the index fails
+     */
+    void createPrimaryKeyIndex(boolean store) throws Exception;
+
 
     String[] getHeaders() throws Exception;
 
@@ -250,6 +513,8 @@ public interface Resource<T,C> {
     String getName();
 
     /**
+     * Set the name. A Package indexes its Resources by the name they had when they were added, so
+     * remove a Resource from its Package before renaming it and add it again afterwards.
      * @param name the name to set
      */
     void setName(String name);
@@ -386,6 +651,14 @@ public interface Resource<T,C> {
 
     String getSerializationFormat();
 
+    /**
+     * Validate the foreign keys of the Schema and check that the foreign key values of every row
+     * exist in the referenced Resource. Rows with a missing foreign key value are not checked.
+     *
+     * @throws io.frictionlessdata.datapackage.exceptions.RowValidationException for the first row with a foreign
+     * key value that has no match
+     * @throws Exception if reading the data fails
+     */
     void checkRelations() throws Exception;
 
     /**
@@ -401,12 +674,38 @@ public interface Resource<T,C> {
      * @throws Exception if other operation fails.
      */
     static AbstractResource build(ObjectNode resourceJson, Object basePath, boolean isArchivePackage) throws IOException, DataPackageException, Exception {
+        if (!isArchivePackage)
+            return build(resourceJson, basePath, (ArchiveSession) null);
+        AbstractResource resource;
+        try (ArchiveSession archive = new ArchiveSession((Path) basePath)) {
+            resource = build(resourceJson, basePath, archive);
+        }
+        // the temporary archive session is gone, let the Resource open the archive on its own
+        if (resource instanceof FilebasedResource) {
+            ((FilebasedResource)resource).setArchive(null);
+            ((FilebasedResource)resource).setIsInArchive(true);
+        }
+        return resource;
+    }
+
+    /**
+     * Recreate a Resource object from a JSON descriptor, a base path to resolve relative file paths against
+     * and the archive of a ZIP-based Package the Resource lives in. Schema, Dialect and data files
+     * are read through the archive, which must stay open as long as data is read from the Resource.
+     *
+     * @param resourceJson JSON descriptor containing properties like `name, `data` or `path`
+     * @param basePath File system path used to resolve relative path entries if `path` contains entries
+     * @param archive open archive of a ZIP-based Package, null if we are not reading from a ZIP archive.
+     * @return fully inflated Resource object. Subclass depends on the data found
+     * @throws Exception if reading or parsing fails.
+     */
+    static AbstractResource build(ObjectNode resourceJson, Object basePath, ArchiveSession archive) throws Exception {
         String name = textValueOrNull(resourceJson, JSONBase.JSON_KEY_NAME);
         Object path = resourceJson.get(JSONBase.JSON_KEY_PATH);
         Object data = resourceJson.get(JSONBase.JSON_KEY_DATA);
         String format = textValueOrNull(resourceJson, JSONBase.JSON_KEY_FORMAT);
-        Dialect dialect = JSONBase.buildDialect (resourceJson, basePath, isArchivePackage);
-        Schema schema = JSONBase.buildSchema(resourceJson, basePath, isArchivePackage);
+        Dialect dialect = JSONBase.buildDialect (resourceJson, basePath, archive);
+        Schema schema = JSONBase.buildSchema(resourceJson, basePath, archive);
         String encoding = textValueOrNull(resourceJson, JSONBase.JSON_KEY_ENCODING);
         Charset charset = TableDataSource.getDefaultEncoding();
         if (StringUtils.isNotEmpty(encoding)) {
@@ -420,7 +719,7 @@ public interface Resource<T,C> {
             Collection paths = fromJSON(path, basePath);
             resource = build(name, paths, basePath, charset);
             if (resource instanceof FilebasedResource) {
-                ((FilebasedResource)resource).setIsInArchive(isArchivePackage);
+                ((FilebasedResource)resource).setArchive(archive);
             }
             // inlined data
         } else if (data != null){
@@ -443,6 +742,7 @@ public interface Resource<T,C> {
         }
         resource.setDialect(dialect);
         JSONBase.setFromJson(resourceJson, resource, schema);
+        resource.setStatisticsFromJson(resourceJson.get(JSONBase.JSON_KEY_STATISTICS));
         return resource;
     }
 
@@ -0,0 +1,384 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageException;
+import io.frictionlessdata.tableschema.field.Field;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Filter on the rows of a Resource, built from conditions on Schema field names:
+ * <pre>
+ *     RowFilter filter = RowFilter.and(
+ *          RowFilter.eq("city", "london"),
+ *          RowFilter.ge("population", 1000000));
+ *     Iterator&lt;Object[]&gt; iter = resource.objectArrayIterator(null, filter);
+ * </pre>
+ *
+ * Conditions are evaluated on the raw string values before any value is cast: comparisons with a String
+ * compare the raw values, and comparisons with a Number parse the raw value as a number. Only comparisons
+ * with other types (eg. dates) and {@link #where(String, Predicate)} cast the value of their field. Rows that
+ * don't match are skipped before the fields of the row are cast.
+ *
+ * If statistics are known for the parts of a Resource (see {@link FieldStatistics}), parts whose value
+ * ranges rule out a match are not read at all.
+ *
+ * Missing values never match a comparison, use {@link #isNull(String)} to match them.
+ */
+public abstract class RowFilter {
+
+    RowFilter() {
+    }
+
+    public static RowFilter eq(String fieldName, Object value) {
+        return new Comparison(fieldName, Operator.EQ, value);
+    }
+
+    public static RowFilter ne(String fieldName, Object value) {
+        return new Comparison(fieldName, Operator.NE, value);
+    }
+
+    public static RowFilter lt(String fieldName, Object value) {
+        return new Comparison(fieldName, Operator.LT, value);
+    }
+
+    public static RowFilter le(String fieldName, Object value) {
+        return new Comparison(fieldName, Operator.LE, value);
+    }
+
+    public static RowFilter gt(String fieldName, Object value) {
+        return new Comparison(fieldName, Operator.GT, value);
+    }
+
+    public static RowFilter ge(String fieldName, Object value) {
+        return new Comparison(fieldName, Operator.GE, value);
+    }
+
+    public static RowFilter in(String fieldName, Collection<?> values) {
+        List<RowFilter> conditions = new ArrayList<>();
+        for (Object value : values) {
+            conditions.add(eq(fieldName, value));
+        }
+        return new Or(conditions);
+    }
+
+    public static RowFilter isNull(String fieldName) {
+        return new IsNull(fieldName);
+    }
+
+    /**
+     * Condition on the cast value of a field. The value is null if missing.
+     * @param fieldName name of the field
+     * @param predicate test on the cast value
+     * @return the condition
+     */
+    public static RowFilter where(String fieldName, Predicate<Object> predicate) {
+        return new Where(fieldName, predicate);
+    }
+
+    public static RowFilter and(RowFilter... conditions) {
+        return new And(Arrays.asList(conditions));
+    }
+
+    public static RowFilter or(RowFilter... conditions) {
+        return new Or(Arrays.asList(conditions));
+    }
+
+    public static RowFilter not(RowFilter condition) {
+        return new Not(condition);
+    }
+
+    /**
+     * Create the test on raw rows of a Table.
+     * @param columns column index by header of the Table
+     * @param fields the fields of the Schema by name, empty if there is no Schema
+     * @param castOnly names of the fields whose values must be cast by the Field instead of being
+     *                 parsed in plain notation, see {@link ColumnBatchIterator#getCustomNotationFields}
+     * @return predicate on the raw values of a row
+     */
+    abstract Predicate<String[]> bind(Map<String, Integer> columns, Map<String, Field<?>> fields,
+                                      Set<String> castOnly);
+
+    /**
+     * @param statistics statistics of the fields of a part, by field name
+     * @return false if no row of the part can match, true if some might
+     */
+    abstract boolean mightMatch(Map<String, FieldStatistics> statistics);
+
+    enum Operator {
+        EQ, NE, LT, LE, GT, GE;
+
+        boolean test(int comparison) {
+            switch (this) {
+                case EQ: return comparison == 0;
+                case NE: return comparison != 0;
+                case LT: return comparison < 0;
+                case LE: return comparison <= 0;
+                case GT: return comparison > 0;
+                default: return comparison >= 0;
+            }
+        }
+    }
+
+    private static int column(Map<String, Integer> columns, String fieldName) {
+        Integer column = columns.get(fieldName);
+        if (null == column)
+            throw new DataPackageException("Data has no column named " + fieldName);
+        return column;
+    }
+
+    private static String rawValue(String[] row, int column) {
+        String value = (column < row.length) ? row[column] : null;
+        // the tableschema default for missing values is the empty string
+        return ((null == value) || value.isEmpty()) ? null : value;
+    }
+
+    private static Object cast(Field<?> field, String fieldName, String value) {
+        if ((null == value) || (null == field))
+            return value;
+        try {
+            return field.castValue(value);
+        } catch (Exception ex) {
+            throw new DataPackageException("Cannot cast value '" + value + "' of field "
+                    + fieldName + " to " + field.getType(), ex);
+        }
+    }
+
+    private static final class Comparison extends RowFilter {
+        private final String fieldName;
+        private final Operator operator;
+        private final Object value;
+
+        private Comparison(String fieldName, Operator operator, Object value) {
+            if (null == value)
+                throw new DataPackageException("Cannot compare with null, use RowFilter.isNull()");
+            this.fieldName = fieldName;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        Predicate<String[]> bind(Map<String, Integer> columns, Map<String, Field<?>> fields,
+                              Set<String> castOnly) {
+            int column = column(columns, fieldName);
+            Field<?> field = fields.get(fieldName);
+            boolean plainNotation = !castOnly.contains(fieldName);
+            if (value instanceof String) {
+                String expected = (String) value;
+                return (row) -> {
+                    String raw = rawValue(row, column);
+                    return (null != raw) && operator.test(raw.compareTo(expected));
+                };
+            }
+            if (value instanceof Number) {
+                Number expected = (Number) value;
+                boolean integral = (expected instanceof Long) || (expected instanceof Integer)
+                        || (expected instanceof Short) || (expected instanceof Byte)
+                        || ((expected instanceof BigInteger) && (((BigInteger) expected).bitLength() < 64));
+                long expectedLong = expected.longValue();
+                double expectedDouble = expected.doubleValue();
+                return (row) -> {
+                    String raw = rawValue(row, column);
+                    if (null == raw)
+                        return false;
+                    if (integral) {
+                        long parsed = ColumnBatchIterator.parseLong(raw);
+                        if (parsed != ColumnBatchIterator.NOT_A_LONG)
+                            return operator.test(Long.compare(parsed, expectedLong));
+                    }
+                    double parsed;
+                    if (plainNotation && ColumnBatchIterator.isPlainNumber(raw)) {
+                        parsed = Double.parseDouble(raw);
+                    } else {
+                        // eg. numbers with group chars, let the field parse them
+                        Object cast = cast(field, fieldName, raw);
+                        if (!(cast instanceof Number))
+                            return false;
+                        parsed = ((Number) cast).doubleValue();
+                    }
+                    return operator.test(Double.compare(parsed, expectedDouble));
+                };
+            }
+            return (row) -> {
+                Object cast = cast(field, fieldName, rawValue(row, column));
+                if (null == cast)
+                    return false;
+                if ((operator == Operator.EQ) || (operator == Operator.NE))
+                    return operator.test(cast.equals(value) ? 0 : 1);
+                return operator.test(compare(cast, value));
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compare(Object cast, Object expected) {
+            if (!(cast instanceof Comparable))
+                throw new DataPackageException("Values of field " + fieldName + " are not comparable");
+            return ((Comparable<Object>) cast).compareTo(expected);
+        }
+
+        @Override
+        boolean mightMatch(Map<String, FieldStatistics> statistics) {
+            FieldStatistics stats = statistics.get(fieldName);
+            if ((null == stats) || (operator == Operator.NE))
+                return true;
+            if (stats.getValueCount() == 0)
+                return false;
+            if (value instanceof Number) {
+                double v = ((Number) value).doubleValue();
+                Double min = stats.getMin();
+                Double max = stats.getMax();
+                switch (operator) {
+                    case EQ: return stats.mightContain(v);
+                    case LT: return (null == min) || (min < v);
+                    case LE: return (null == min) || (min <= v);
+                    case GT: return (null == max) || (max > v);
+                    default: return (null == max) || (max >= v);
+                }
+            }
+            if (value instanceof String) {
+                String v = (String) value;
+                String min = stats.getMinValue();
+                String max = stats.getMaxValue();
+                switch (operator) {
+                    case EQ: return stats.mightContain(v);
+                    case LT: return (null == min) || (min.compareTo(v) < 0);
+                    case LE: return (null == min) || (min.compareTo(v) <= 0);
+                    case GT: return (null == max) || (max.compareTo(v) > 0);
+                    default: return (null == max) || (max.compareTo(v) >= 0);
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class IsNull extends RowFilter {
+        private final String fieldName;
+
+        private IsNull(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        @Override
+        Predicate<String[]> bind(Map<String, Integer> columns, Map<String, Field<?>> fields,
+                              Set<String> castOnly) {
+            int column = column(columns, fieldName);
+            return (row) -> null == rawValue(row, column);
+        }
+
+        @Override
+        boolean mightMatch(Map<String, FieldStatistics> statistics) {
+            FieldStatistics stats = statistics.get(fieldName);
+            return (null == stats) || (stats.getNullCount() > 0);
+        }
+    }
+
+    private static final class Where extends RowFilter {
+        private final String fieldName;
+        private final Predicate<Object> predicate;
+
+        private Where(String fieldName, Predicate<Object> predicate) {
+            this.fieldName = fieldName;
+            this.predicate = predicate;
+        }
+
+        @Override
+        Predicate<String[]> bind(Map<String, Integer> columns, Map<String, Field<?>> fields,
+                              Set<String> castOnly) {
+            int column = column(columns, fieldName);
+            Field<?> field = fields.get(fieldName);
+            return (row) -> predicate.test(cast(field, fieldName, rawValue(row, column)));
+        }
+
+        @Override
+        boolean mightMatch(Map<String, FieldStatistics> statistics) {
+            return true;
+        }
+    }
+
+    private static final class And extends RowFilter {
+        private final List<RowFilter> conditions;
+
+        private And(List<RowFilter> conditions) {
+            this.conditions = new ArrayList<>(conditions);
+        }
+
+        @Override
+        Predicate<String[]> bind(Map<String, Integer> columns, Map<String, Field<?>> fields,
+                              Set<String> castOnly) {
+            List<Predicate<String[]>> bound = new ArrayList<>();
+            for (RowFilter condition : conditions) {
+                bound.add(condition.bind(columns, fields, castOnly));
+            }
+            return (row) -> {
+                for (Predicate<String[]> predicate : bound) {
+                    if (!predicate.test(row))
+                        return false;
+                }
+                return true;
+            };
+        }
+
+        @Override
+        boolean mightMatch(Map<String, FieldStatistics> statistics) {
+            for (RowFilter condition : conditions) {
+                if (!condition.mightMatch(statistics))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends RowFilter {
+        private final List<RowFilter> conditions;
+
+        private Or(List<RowFilter> conditions) {
+            this.conditions = new ArrayList<>(conditions);
+        }
+
+        @Override
+        Predicate<String[]> bind(Map<String, Integer> columns, Map<String, Field<?>> fields,
+                              Set<String> castOnly) {
+            List<Predicate<String[]>> bound = new ArrayList<>();
+            for (RowFilter condition : conditions) {
+                bound.add(condition.bind(columns, fields, castOnly));
+            }
+            return (row) -> {
+                for (Predicate<String[]> predicate : bound) {
+                    if (predicate.test(row))
+                        return true;
+                }
+                return false;
+            };
+        }
+
+        @Override
+        boolean mightMatch(Map<String, FieldStatistics> statistics) {
+            for (RowFilter condition : conditions) {
+                if (condition.mightMatch(statistics))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Not extends RowFilter {
+        private final RowFilter condition;
+
+        private Not(RowFilter condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        Predicate<String[]> bind(Map<String, Integer> columns, Map<String, Field<?>> fields,
+                              Set<String> castOnly) {
+            return condition.bind(columns, fields, castOnly).negate();
+        }
+
+        @Override
+        boolean mightMatch(Map<String, FieldStatistics> statistics) {
+            // statistics can't rule out that some row does not match
+            return true;
+        }
+    }
+}
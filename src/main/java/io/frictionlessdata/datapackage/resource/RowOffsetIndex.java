@@ -0,0 +1,273 @@
+package io.frictionlessdata.datapackage.resource;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sparse index of the rows of a local CSV file: the byte offset of every K-th row, so reading a row
+ * starts at most K rows before it instead of at the start of the file, and only the records between
+ * are scanned. Records are found with a
+ * {@link CsvRecordScanner}, so line breaks in quoted values, comments and skipped empty lines don't
+ * count as rows. Rows are numbered from 0, the header row is not counted.
+ *
+ * An index can be stored next to its data file, in a file named like the data file with the suffix
+ * {@link #FILE_SUFFIX}. It records the size and modification time of the data file it was built from,
+ * and a stored index is ignored once either changes.
+ */
+final class RowOffsetIndex {
+    static final int DEFAULT_INTERVAL = 1024;
+    static final String FILE_SUFFIX = ".idx";
+
+    // "DPRI", datapackage row index
+    private static final int MAGIC = 0x44505249;
+    private static final int VERSION = 1;
+
+    private final long fileSize;
+    private final long lastModified;
+    private final long signature;
+    private final int interval;
+    private final long headerEnd;
+    private final long rowCount;
+    private final long[] offsets;
+
+    private RowOffsetIndex(long fileSize, long lastModified, long signature, int interval,
+                           long headerEnd, long rowCount, long[] offsets) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.signature = signature;
+        this.interval = interval;
+        this.headerEnd = headerEnd;
+        this.rowCount = rowCount;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Build the index of a file by scanning it once.
+     *
+     * @param file the CSV file
+     * @param scanner finds the records of the file
+     * @param hasHeaderRow whether the first row is the header
+     * @param interval the number of rows between indexed offsets
+     * @return the index
+     * @throws IOException if reading the file fails
+     */
+    static RowOffsetIndex build(Path file, CsvRecordScanner scanner, boolean hasHeaderRow, int interval)
+            throws IOException {
+        int lInterval = Math.max(1, interval);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Builder builder = new Builder(hasHeaderRow, lInterval);
+            scanner.scan(channel, 0, size, builder);
+            int blocks = (int) ((builder.rowCount + lInterval - 1) / lInterval);
+            return new RowOffsetIndex(size, lastModified, signature(scanner, hasHeaderRow), lInterval,
+                    builder.headerEnd, builder.rowCount, Arrays.copyOf(builder.offsets, blocks));
+        }
+    }
+
+    /**
+     * Read the index stored next to a data file.
+     *
+     * @param file the CSV file
+     * @param scanner finds the records of the file
+     * @param hasHeaderRow whether the first row is the header
+     * @return the index, or null if there is none or if it is outdated
+     * @throws IOException if reading the index fails
+     */
+    static RowOffsetIndex read(Path file, CsvRecordScanner scanner, boolean hasHeaderRow) throws IOException {
+        Path indexFile = getIndexFile(file);
+        RowOffsetIndex index;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if ((in.readInt() != MAGIC) || (in.readInt() != VERSION))
+                return null;
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+            long signature = in.readLong();
+            int interval = in.readInt();
+            long headerEnd = in.readLong();
+            long rowCount = in.readLong();
+            int blocks = in.readInt();
+            if ((interval < 1) || (blocks < 0) || (blocks != (rowCount + interval - 1) / interval))
+                return null;
+            long[] offsets = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = in.readLong();
+            }
+            index = new RowOffsetIndex(fileSize, lastModified, signature, interval, headerEnd, rowCount, offsets);
+        } catch (EOFException | NoSuchFileException ex) {
+            return null;
+        }
+        return index.isValidFor(file, scanner, hasHeaderRow) ? index : null;
+    }
+
+    /**
+     * Store the index next to its data file.
+     * @param file the CSV file the index was built from
+     * @throws IOException if writing fails
+     */
+    void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(getIndexFile(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+            out.writeLong(signature);
+            out.writeInt(interval);
+            out.writeLong(headerEnd);
+            out.writeLong(rowCount);
+            out.writeInt(offsets.length);
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+        }
+    }
+
+    static Path getIndexFile(Path file) {
+        return file.resolveSibling(file.getFileName().toString() + FILE_SUFFIX);
+    }
+
+    /**
+     * @param file the CSV file
+     * @param scanner finds the records of the file
+     * @param hasHeaderRow whether the first row is the header
+     * @return false if the file changed since the index was built, or the index was built for another Dialect
+     * @throws IOException if the file attributes can't be read
+     */
+    boolean isValidFor(Path file, CsvRecordScanner scanner, boolean hasHeaderRow) throws IOException {
+        return (Files.size(file) == fileSize)
+                && (Files.getLastModifiedTime(file).toMillis() == lastModified)
+                && (signature(scanner, hasHeaderRow) == signature);
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return offset of the first byte after the header row, 0 if there is none
+     */
+    long getHeaderEnd() {
+        return headerEnd;
+    }
+
+    /**
+     * Read the bytes of the header row and of the rows from `fromRow` to `toRow`. Reading seeks to the
+     * nearest indexed row at or before `fromRow` and scans (without parsing) the records from there to the
+     * start of `fromRow`, so only the requested rows need to be parsed.
+     *
+     * @param file the CSV file
+     * @param scanner finds the records of the file
+     * @param fromRow the first row to read
+     * @param toRow the last row to read, smaller than the row count
+     * @return the bytes of the header and the rows
+     * @throws IOException if reading fails
+     */
+    byte[] readRows(Path file, CsvRecordScanner scanner, long fromRow, long toRow) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long blockStart = offsets[(int) (fromRow / interval)];
+            RangeFinder range = new RangeFinder(fromRow - fromRow % interval, fromRow, toRow, blockStart);
+            scanner.scan(channel, blockStart, fileSize, range);
+            long end = (range.end < 0) ? fileSize : range.end;
+            if (end - range.start + headerEnd > Integer.MAX_VALUE)
+                throw new IOException("Too many rows to read at once from " + file);
+            byte[] content = new byte[(int) (headerEnd + end - range.start)];
+            read(channel, 0, content, 0, (int) headerEnd);
+            read(channel, range.start, content, (int) headerEnd, (int) (end - range.start));
+            return content;
+        }
+    }
+
+    private static void read(FileChannel channel, long position, byte[] target, int offset, int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(target, offset, length);
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, pos);
+            if (n < 0)
+                throw new EOFException("Data file is shorter than its index");
+            pos += n;
+        }
+    }
+
+    private static long signature(CsvRecordScanner scanner, boolean hasHeaderRow) {
+        return scanner.signature() * 31 + (hasHeaderRow ? 1 : 0);
+    }
+
+    /*
+     A row starts where the record before it ends, so comments and skipped empty lines before
+     an indexed row are parsed (and skipped) again when reading from its offset.
+     */
+    private static final class Builder implements CsvRecordScanner.RecordHandler {
+        private final int interval;
+        private boolean inHeader;
+        private long headerEnd = 0;
+        private long recordStart = 0;
+        private long rowCount = 0;
+        private long[] offsets = new long[16];
+
+        private Builder(boolean hasHeaderRow, int interval) {
+            this.inHeader = hasHeaderRow;
+            this.interval = interval;
+        }
+
+        @Override
+        public boolean onRecord(long end, boolean isRow) {
+            if (isRow && inHeader) {
+                inHeader = false;
+                headerEnd = end;
+            } else if (isRow) {
+                if (rowCount % interval == 0) {
+                    int block = (int) (rowCount / interval);
+                    if (block == offsets.length)
+                        offsets = Arrays.copyOf(offsets, block * 2);
+                    offsets[block] = recordStart;
+                }
+                rowCount++;
+            }
+            recordStart = end;
+            return true;
+        }
+    }
+
+    /*
+     Finds the byte range of the rows from `fromRow` to `toRow`, scanning from the start of an indexed row.
+     */
+    private static final class RangeFinder implements CsvRecordScanner.RecordHandler {
+        private final long fromRow;
+        private final long toRow;
+        private long row;
+        private long recordStart;
+        private long start;
+        private long end = -1;
+
+        private RangeFinder(long firstRow, long fromRow, long toRow, long offset) {
+            this.row = firstRow;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.recordStart = offset;
+            this.start = offset;
+        }
+
+        @Override
+        public boolean onRecord(long recordEnd, boolean isRow) {
+            if (isRow) {
+                if (row == fromRow)
+                    start = recordStart;
+                if (row == toRow) {
+                    end = recordEnd;
+                    return false;
+                }
+                row++;
+            }
+            recordStart = recordEnd;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.tableschema.Table;
+import io.frictionlessdata.tableschema.field.Field;
+import io.frictionlessdata.tableschema.schema.Schema;
+
+import java.util.*;
+
+/**
+ * Computes the {@link FieldStatistics} of a Resource in a single pass over the raw values of its parts.
+ * The statistics of each part are kept, and merged into statistics of the whole Resource.
+ *
+ * Values are treated like a {@link RowFilter} treats them, so statistics never rule out a part that
+ * has matching rows: empty values are missing, numeric fields (`integer`, `number`, `year`) have
+ * numeric bounds, values of numeric fields that are not numbers are left out of the bounds, and all
+ * other fields have lexicographic bounds of the raw values.
+ */
+final class StatisticsCollector {
+    private final Map<String, Field<?>> fieldsByName = new HashMap<>();
+    private final Set<String> customNotationFields;
+    private final List<Map<String, FieldStatistics>> partStatistics = new ArrayList<>();
+    private final Map<String, Accumulator> totals = new LinkedHashMap<>();
+
+    /**
+     * @param schema the Schema of the Resource, null if there is none. Without a Schema,
+     *               all columns get lexicographic bounds
+     */
+    StatisticsCollector(Schema schema) {
+        customNotationFields = ColumnBatchIterator.getCustomNotationFields(schema);
+        if (null != schema) {
+            for (Field<?> field : schema.getFields()) {
+                fieldsByName.put(field.getName(), field);
+            }
+        }
+    }
+
+    /**
+     * Scan the next part of the Resource.
+     * @param table the Table of the part
+     * @throws Exception if reading the data fails
+     */
+    void collect(Table table) throws Exception {
+        String[] headers = table.getHeaders();
+        Accumulator[] accumulators = new Accumulator[(null != headers) ? headers.length : 0];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new Accumulator(headers[i], fieldsByName.get(headers[i]),
+                    !customNotationFields.contains(headers[i]));
+        }
+        Iterator<String[]> rows = table.stringArrayIterator(false);
+        while (rows.hasNext()) {
+            String[] row = rows.next();
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].add((i < row.length) ? row[i] : null);
+            }
+        }
+
+        Map<String, FieldStatistics> statistics = new LinkedHashMap<>();
+        for (Accumulator accumulator : accumulators) {
+            // of duplicate headers, only the first column is looked up by name
+            if (statistics.containsKey(accumulator.name))
+                continue;
+            statistics.put(accumulator.name, accumulator.toStatistics());
+            Accumulator total = totals.get(accumulator.name);
+            if (null == total) {
+                totals.put(accumulator.name, accumulator);
+            } else {
+                total.merge(accumulator);
+            }
+        }
+        partStatistics.add(statistics);
+    }
+
+    /**
+     * @return per part scanned so far, the statistics by field name
+     */
+    List<Map<String, FieldStatistics>> getPartStatistics() {
+        return partStatistics;
+    }
+
+    /**
+     * @return the statistics of all parts scanned so far, by field name
+     */
+    Map<String, FieldStatistics> getStatistics() {
+        Map<String, FieldStatistics> statistics = new LinkedHashMap<>();
+        for (Accumulator total : totals.values()) {
+            statistics.put(total.name, total.toStatistics());
+        }
+        return statistics;
+    }
+
+    private static final class Accumulator {
+        private final String name;
+        private final Field<?> field;
+        private final boolean numeric;
+        private final boolean plainNotation;
+        private final HyperLogLog distinct = new HyperLogLog();
+        private long valueCount = 0;
+        private long nullCount = 0;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private String minValue = null;
+        private String maxValue = null;
+
+        private Accumulator(String name, Field<?> field, boolean plainNotation) {
+            this.name = name;
+            this.field = field;
+            this.plainNotation = plainNotation;
+            this.numeric = (null != field) && isNumeric(field.getType());
+        }
+
+        private static boolean isNumeric(String type) {
+            return "integer".equals(type) || "number".equals(type) || "year".equals(type);
+        }
+
+        private void add(String value) {
+            if ((null == value) || value.isEmpty()) {
+                nullCount++;
+                return;
+            }
+            valueCount++;
+            distinct.add(value);
+            if (numeric) {
+                Double number = parse(value);
+                if (null != number) {
+                    min = Math.min(min, number);
+                    max = Math.max(max, number);
+                }
+            } else {
+                if ((null == minValue) || (value.compareTo(minValue) < 0))
+                    minValue = value;
+                if ((null == maxValue) || (value.compareTo(maxValue) > 0))
+                    maxValue = value;
+            }
+        }
+
+        private Double parse(String value) {
+            if (plainNotation && ColumnBatchIterator.isPlainNumber(value))
+                return Double.parseDouble(value);
+            // eg. numbers with group chars, let the field parse them
+            try {
+                Object cast = field.castValue(value);
+                return (cast instanceof Number) ? ((Number) cast).doubleValue() : null;
+            } catch (Exception ex) {
+                return null;
+            }
+        }
+
+        private void merge(Accumulator other) {
+            valueCount += other.valueCount;
+            nullCount += other.nullCount;
+            distinct.merge(other.distinct);
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            if ((null == minValue) || ((null != other.minValue) && (other.minValue.compareTo(minValue) < 0)))
+                minValue = other.minValue;
+            if ((null == maxValue) || ((null != other.maxValue) && (other.maxValue.compareTo(maxValue) > 0)))
+                maxValue = other.maxValue;
+        }
+
+        private FieldStatistics toStatistics() {
+            boolean hasBounds = min <= max;
+            return new FieldStatistics(valueCount, nullCount,
+                    hasBounds ? min : null,
+                    hasBounds ? max : null,
+                    minValue, maxValue,
+                    distinct.estimate());
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,13 +28,25 @@ public class URLbasedResource<C> extends AbstractReferencebasedResource<URL, C>
         return Table.fromSource(reference, schema, getCsvFormat());
     }
 
+    @Override
+    Table createPartTable(URL reference) throws Exception {
+        return createTable(reference);
+    }
+
     @Override
     byte[] getRawData(URL input)  throws IOException {
-        try (InputStream inputStream = input.openStream()) {
-            return getRawData(inputStream);
+        URLConnection connection = input.openConnection();
+        try (InputStream inputStream = connection.getInputStream()) {
+            long size = connection.getContentLengthLong();
+            return getContentAsByteArray(inputStream, (size > 0) ? size : getDeclaredSize());
         }
     }
 
+    @Override
+    InputStream openRawStream(URL input) throws IOException {
+        return input.openStream();
+    }
+
     @Override
     String getStringRepresentation(URL reference) {
         return reference.toExternalForm();
@@ -45,7 +58,7 @@ public class URLbasedResource<C> extends AbstractReferencebasedResource<URL, C>
         // If the path of a data file has been set.
         if (super.paths != null){
             for (URL url : paths) {
-                Table table = createTable(url);
+                Table table = createPartTable(url);
                 tables.add(table);
             }
         }
@@ -0,0 +1,678 @@
+package io.frictionlessdata.datapackage.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
+import io.frictionlessdata.datapackage.exceptions.RowValidationException;
+import io.frictionlessdata.tableschema.Table;
+import io.frictionlessdata.tableschema.field.Field;
+import io.frictionlessdata.tableschema.schema.Schema;
+import io.frictionlessdata.tableschema.util.JsonUtil;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Validates the data of Resources against their Schemas in one streaming pass over the raw values: every
+ * value is cast to the type of its field and checked against the constraints of the field (`required`,
+ * `unique`, `minimum`, `maximum`, `minLength`, `maxLength`, `pattern`, `enum`), and primary keys must be
+ * complete and unique. Foreign keys are checked afterwards with the {@link RelationEngine} of the Resource.
+ *
+ * Each part of each Resource is validated as a task on the executor, so Resources and parts are validated
+ * in parallel. Without an executor, all parts are validated in order on the calling thread.
+ *
+ * Errors don't stop validation. Up to {@link #getMaxErrors()} errors are collected per Resource, then
+ * validation of that Resource stops. Once all Resources together have {@link #getAbortThreshold()} errors,
+ * validation stops altogether. When parts are validated in parallel, the rows of a part that follow a part
+ * that stopped early can't be numbered, and their errors are dropped.
+ *
+ * Constraints are read from the "constraints" of the fields in the Schema, values in the "missingValues" of the
+ * Schema (default: the empty string) are missing.
+ *
+ * Unique values and primary keys are held in memory up to the {@link RelationEngine#getMaxKeysInMemory()} of
+ * the Resource. Beyond that, they are written to hash partitions in its
+ * {@link RelationEngine#getSpillDirectory()}, which are checked one by one after all parts are validated.
+ */
+public class ValidationEngine {
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    // row numbers of uniqueness checks hold the part in the high bits
+    private static final int PART_SHIFT = 40;
+
+    private final Executor executor;
+    private int maxErrors = DEFAULT_MAX_ERRORS;
+    private int abortThreshold = Integer.MAX_VALUE;
+
+    /**
+     * @param executor runs the validation of each part, null to validate on the calling thread
+     */
+    public ValidationEngine(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * @param maxErrors the number of errors after which validation of a Resource stops
+     */
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = Math.max(1, maxErrors);
+    }
+
+    public int getAbortThreshold() {
+        return abortThreshold;
+    }
+
+    /**
+     * @param abortThreshold the number of errors of all Resources together after which validation stops
+     */
+    public void setAbortThreshold(int abortThreshold) {
+        this.abortThreshold = Math.max(1, abortThreshold);
+    }
+
+    /**
+     * Validate the data of one Resource.
+     *
+     * @param resource the Resource
+     * @return the errors found
+     * @throws InterruptedException if the thread is interrupted while waiting for the executor
+     */
+    public ValidationReport validate(Resource<?, ?> resource) throws InterruptedException {
+        return validate(Collections.singletonList(resource));
+    }
+
+    /**
+     * Validate the data of Resources.
+     *
+     * @param resources the Resources
+     * @return the errors found, by Resource
+     * @throws InterruptedException if the thread is interrupted while waiting for the executor
+     */
+    public ValidationReport validate(Collection<? extends Resource> resources) throws InterruptedException {
+        AtomicInteger totalErrors = new AtomicInteger();
+        List<Run> runs = new ArrayList<>();
+        for (Resource<?, ?> resource : resources) {
+            runs.add(new Run(resource, totalErrors));
+        }
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Run run : runs) {
+            for (int part = 0; part < run.parts.size(); part++) {
+                int p = part;
+                tasks.add(submit(() -> run.validatePart(p)));
+            }
+        }
+        awaitAll(tasks);
+        tasks.clear();
+        for (Run run : runs) {
+            tasks.add(submit(run::checkUniqueKeys));
+            tasks.add(submit(run::checkRelations));
+        }
+        awaitAll(tasks);
+
+        Map<String, List<DataPackageValidationException>> errors = new LinkedHashMap<>();
+        for (Run run : runs) {
+            errors.computeIfAbsent(run.name, (k) -> new ArrayList<>()).addAll(run.getErrors());
+        }
+        return new ValidationReport(errors, totalErrors.get() >= abortThreshold);
+    }
+
+    private Future<?> submit(Runnable task) {
+        FutureTask<?> future = new FutureTask<>(task, null);
+        if (null == executor) {
+            future.run();
+        } else {
+            executor.execute(future);
+        }
+        return future;
+    }
+
+    private static void awaitAll(List<Future<?>> tasks) throws InterruptedException {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException ex) {
+                // tasks record their errors, anything else is a bug
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    private static final class PartRows {
+        private final String[] headers;
+        private final Iterator<String[]> rows;
+
+        private PartRows(String[] headers, Iterator<String[]> rows) {
+            this.headers = headers;
+            this.rows = rows;
+        }
+    }
+
+    /*
+     An error in a row, numbered within its part until all parts are done.
+     */
+    private static final class Problem {
+        private final int part;
+        private final long row;
+        private final List<String> fields;
+        private final Object[] values;
+        private final String message;
+
+        private Problem(int part, long row, List<String> fields, Object[] values, String message) {
+            this.part = part;
+            this.row = row;
+            this.fields = fields;
+            this.values = values;
+            this.message = message;
+        }
+    }
+
+    /*
+     The validation of one Resource, shared by the tasks of its parts.
+     */
+    private final class Run {
+        private final Resource<?, ?> resource;
+        private final String name;
+        private final AtomicInteger totalErrors;
+        private final AtomicInteger errorCount = new AtomicInteger();
+        private final List<Callable<PartRows>> parts = new ArrayList<>();
+        private final Queue<Problem> problems = new ConcurrentLinkedQueue<>();
+        private final Queue<DataPackageValidationException> resourceErrors = new ConcurrentLinkedQueue<>();
+        private final List<RowValidationException> relationErrors = new ArrayList<>();
+        private final List<FieldRule> rules = new ArrayList<>();
+        private final List<UniqueRule> uniqueRules = new ArrayList<>();
+        private final Set<String> missingValues = new HashSet<>();
+        private long maxKeysInMemory = Long.MAX_VALUE;
+        private Path spillDirectory = null;
+        private long[] partRows;
+        private boolean[] partComplete;
+
+        private Run(Resource<?, ?> resource, AtomicInteger totalErrors) {
+            this.resource = resource;
+            this.name = resource.getName();
+            this.totalErrors = totalErrors;
+            if (resource instanceof AbstractResource) {
+                RelationEngine engine = ((AbstractResource<?, ?>) resource).getRelationEngine();
+                maxKeysInMemory = engine.getMaxKeysInMemory();
+                spillDirectory = engine.getSpillDirectory();
+            }
+            try {
+                readSchema(resource.getSchema());
+                if (resource instanceof AbstractResource) {
+                    for (Callable<Table> part : ((AbstractResource<?, ?>) resource).getTableParts()) {
+                        parts.add(() -> {
+                            Table table = part.call();
+                            return new PartRows(table.getHeaders(), table.stringArrayIterator(false));
+                        });
+                    }
+                } else {
+                    parts.add(() -> new PartRows(resource.getHeaders(), resource.stringArrayIterator(false)));
+                }
+            } catch (Exception ex) {
+                parts.clear();
+                addResourceError(new DataPackageValidationException("Resource " + name
+                        + " can't be validated: " + ex.getMessage(), ex));
+            }
+            partRows = new long[parts.size()];
+            partComplete = new boolean[parts.size()];
+        }
+
+        private void readSchema(Schema schema) {
+            missingValues.add("");
+            if (null == schema)
+                return;
+            JsonNode schemaNode = JsonUtil.getInstance().readValue(schema.getJson());
+            JsonNode missing = schemaNode.get("missingValues");
+            if ((null != missing) && missing.isArray()) {
+                missingValues.clear();
+                missing.forEach((value) -> missingValues.add(value.asText()));
+            }
+            Map<String, JsonNode> fieldNodes = new HashMap<>();
+            JsonNode fields = schemaNode.get("fields");
+            if ((null != fields) && fields.isArray()) {
+                fields.forEach((node) -> fieldNodes.put(node.path("name").asText(), node));
+            }
+            List<String> primaryKey = KeyIndex.getPrimaryKey(schema);
+            for (Field<?> field : schema.getFields()) {
+                FieldRule rule = new FieldRule(field, fieldNodes.get(field.getName()),
+                        primaryKey.contains(field.getName()));
+                rules.add(rule);
+                if (rule.unique && !primaryKey.equals(Collections.singletonList(field.getName())))
+                    uniqueRules.add(new UniqueRule(new int[]{rules.size() - 1}, false));
+            }
+            if (!primaryKey.isEmpty()) {
+                int[] columns = new int[primaryKey.size()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = indexOf(primaryKey.get(i));
+                    if (columns[i] < 0)
+                        throw new DataPackageValidationException("Primary key field " + primaryKey.get(i)
+                                + " is not in the Schema");
+                }
+                uniqueRules.add(new UniqueRule(columns, true));
+            }
+        }
+
+        private int indexOf(String fieldName) {
+            for (int i = 0; i < rules.size(); i++) {
+                if (rules.get(i).name.equals(fieldName))
+                    return i;
+            }
+            return -1;
+        }
+
+        private boolean isStopped() {
+            return (errorCount.get() >= maxErrors) || (totalErrors.get() >= abortThreshold);
+        }
+
+        private void addProblem(Problem problem) {
+            problems.add(problem);
+            errorCount.incrementAndGet();
+            totalErrors.incrementAndGet();
+        }
+
+        private void addResourceError(DataPackageValidationException error) {
+            resourceErrors.add(error);
+            errorCount.incrementAndGet();
+            totalErrors.incrementAndGet();
+        }
+
+        private void validatePart(int part) {
+            if (isStopped())
+                return;
+            long row = 0;
+            try {
+                PartRows source = parts.get(part).call();
+                int[] columns = new int[rules.size()];
+                for (int f = 0; f < columns.length; f++) {
+                    columns[f] = (null == source.headers)
+                            ? f
+                            : Arrays.asList(source.headers).indexOf(rules.get(f).name);
+                    if (columns[f] < 0)
+                        addResourceError(new DataPackageValidationException("Field " + rules.get(f).name
+                                + " of Resource " + name + " is missing from the headers of part " + (part + 1)));
+                }
+                Object[] values = new Object[rules.size()];
+                boolean complete = true;
+                while (source.rows.hasNext()) {
+                    if (isStopped()) {
+                        complete = false;
+                        break;
+                    }
+                    String[] raw = source.rows.next();
+                    row++;
+                    for (int f = 0; f < values.length; f++) {
+                        String value = ((columns[f] >= 0) && (columns[f] < raw.length)) ? raw[columns[f]] : null;
+                        values[f] = checkValue(rules.get(f), value, part, row);
+                    }
+                    for (UniqueRule unique : uniqueRules) {
+                        unique.check(values, part, row);
+                    }
+                }
+                partComplete[part] = complete;
+            } catch (Exception ex) {
+                addResourceError(new DataPackageValidationException("Resource " + name + ", part " + (part + 1)
+                        + " can't be read after row " + row + ": " + ex.getMessage(), ex));
+            }
+            partRows[part] = row;
+        }
+
+        /*
+         Returns the cast value, null if the value is missing or not of the field type.
+         */
+        private Object checkValue(FieldRule rule, String value, int part, long row) {
+            if ((null == value) || missingValues.contains(value)) {
+                if (rule.required)
+                    addProblem(new Problem(part, row, rule.fieldNames, new Object[]{value}, "a value is required"));
+                return null;
+            }
+            Object cast;
+            try {
+                cast = rule.field.castValue(value);
+            } catch (Exception ex) {
+                addProblem(new Problem(part, row, rule.fieldNames, new Object[]{value},
+                        "value '" + value + "' is not of type " + rule.field.getType()));
+                return null;
+            }
+            String violation = rule.check(value, cast);
+            if (null != violation)
+                addProblem(new Problem(part, row, rule.fieldNames, new Object[]{value}, violation));
+            return cast;
+        }
+
+        private void checkUniqueKeys() {
+            for (UniqueRule unique : uniqueRules) {
+                try {
+                    unique.checkSpilled();
+                } catch (Exception ex) {
+                    addResourceError(new DataPackageValidationException("Fields " + unique.fieldNames
+                            + " of Resource " + name + " can't be checked for uniqueness: " + ex.getMessage(), ex));
+                }
+            }
+        }
+
+        private void checkRelations() {
+            if (isStopped() || !(resource instanceof AbstractResource))
+                return;
+            try {
+                List<RowValidationException> violations = ((AbstractResource<?, ?>) resource)
+                        .findRelationViolations(maxErrors - errorCount.get());
+                relationErrors.addAll(violations);
+                errorCount.addAndGet(violations.size());
+                totalErrors.addAndGet(violations.size());
+            } catch (DataPackageValidationException ex) {
+                addResourceError(ex);
+            } catch (Exception ex) {
+                addResourceError(new DataPackageValidationException(ex));
+            }
+        }
+
+        /*
+         Numbers the problems through all parts, in row order after the errors that are not in rows.
+         */
+        private List<DataPackageValidationException> getErrors() {
+            long[] offsets = new long[parts.size()];
+            long offset = 0;
+            boolean numbered = true;
+            for (int p = 0; p < offsets.length; p++) {
+                offsets[p] = numbered ? offset : -1;
+                numbered &= partComplete[p];
+                offset += partRows[p];
+            }
+            List<RowValidationException> rowErrors = new ArrayList<>(relationErrors);
+            for (Problem problem : problems) {
+                if (offsets[problem.part] < 0)
+                    continue;
+                long rowNumber = offsets[problem.part] + problem.row;
+                String location = (problem.fields.size() == 1)
+                        ? "field " + problem.fields.get(0)
+                        : "fields " + problem.fields;
+                rowErrors.add(new RowValidationException("Row " + rowNumber + " of Resource " + name + ", "
+                        + location + ": " + problem.message, name, rowNumber, problem.fields, problem.values));
+            }
+            rowErrors.sort(Comparator.comparingLong(RowValidationException::getRowNumber));
+            List<DataPackageValidationException> errors = new ArrayList<>(resourceErrors);
+            errors.addAll(rowErrors);
+            return new ArrayList<>(errors.subList(0, Math.min(maxErrors, errors.size())));
+        }
+
+        /*
+         Keys by their String forms, mapped to the earliest row holding them. Of rows with the same key,
+         all but the earliest are reported, whichever order the parts are validated in. Once there are more
+         keys than maxKeysInMemory, the keys seen so far and all further keys are written to partitions, as
+         in PartitionedRelationCheck, and each partition is checked on its own after all parts are validated.
+         */
+        private final class UniqueRule {
+            private final int[] columns;
+            private final boolean primaryKey;
+            private final List<String> fieldNames = new ArrayList<>();
+            private final ConcurrentHashMap<List<String>, Long> seen = new ConcurrentHashMap<>();
+            // checks share the read lock, spilling takes the write lock
+            private final ReadWriteLock lock = new ReentrantReadWriteLock();
+            private Path spillDir = null;
+            private PartitionedRelationCheck.Partitions spilled = null;
+
+            private UniqueRule(int[] columns, boolean primaryKey) {
+                this.columns = columns;
+                this.primaryKey = primaryKey;
+                for (int column : columns) {
+                    fieldNames.add(rules.get(column).name);
+                }
+            }
+
+            private void check(Object[] values, int part, long row) throws IOException {
+                Object[] key = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    key[i] = values[columns[i]];
+                    if (null == key[i])
+                        return;
+                }
+                List<String> strings = KeyIndex.toStrings(key);
+                long location = ((long) part << PART_SHIFT) | row;
+                PartitionedRelationCheck.Partitions partitions;
+                long duplicate = -1;
+                lock.readLock().lock();
+                try {
+                    partitions = spilled;
+                    if (null == partitions)
+                        duplicate = remember(strings, location);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                if (null != partitions) {
+                    synchronized (partitions) {
+                        partitions.write(location, strings);
+                    }
+                    return;
+                }
+                if (duplicate >= 0)
+                    addDuplicate(duplicate, strings, key);
+                if (seen.size() > maxKeysInMemory)
+                    spill();
+            }
+
+            /*
+             Returns the location of the row that duplicates an earlier one, -1 if the key is new.
+             */
+            private long remember(List<String> key, long location) {
+                long[] duplicate = {-1};
+                seen.compute(key, (k, earliest) -> {
+                    if (null == earliest)
+                        return location;
+                    duplicate[0] = Math.max(earliest, location);
+                    return Math.min(earliest, location);
+                });
+                return duplicate[0];
+            }
+
+            private void addDuplicate(long location, List<String> strings, Object[] key) {
+                Object shown = (strings.size() == 1) ? strings.get(0) : strings;
+                addProblem(new Problem((int) (location >>> PART_SHIFT), location & ((1L << PART_SHIFT) - 1),
+                        fieldNames, key, (primaryKey ? "primary key " : "value ") + shown + " is not unique"));
+            }
+
+            private void spill() throws IOException {
+                lock.writeLock().lock();
+                try {
+                    if (null != spilled)
+                        return;
+                    spillDir = (null == spillDirectory)
+                            ? Files.createTempDirectory("datapackage-unique")
+                            : Files.createTempDirectory(spillDirectory, "datapackage-unique");
+                    PartitionedRelationCheck.Partitions partitions =
+                            new PartitionedRelationCheck.Partitions(spillDir, columns.length, 0);
+                    for (Map.Entry<List<String>, Long> entry : seen.entrySet()) {
+                        partitions.write(entry.getValue(), entry.getKey());
+                    }
+                    seen.clear();
+                    spilled = partitions;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            /*
+             Finds the duplicates in the partitions, keeps those with the lowest locations, then reads the
+             rows again to report the cast key values like the check in memory does.
+             */
+            private void checkSpilled() throws Exception {
+                if (null == spilled)
+                    return;
+                try {
+                    spilled.close();
+                    if (isStopped())
+                        return;
+                    TreeMap<Long, List<String>> duplicates = new TreeMap<>();
+                    for (int p = 0; p < PartitionedRelationCheck.FAN_OUT; p++) {
+                        checkPartition(spilled, p, 0, duplicates);
+                    }
+                    Map<Long, Object[]> keys = readKeys(duplicates.keySet());
+                    for (Map.Entry<Long, List<String>> entry : duplicates.entrySet()) {
+                        addDuplicate(entry.getKey(), entry.getValue(), keys.get(entry.getKey()));
+                    }
+                } finally {
+                    PartitionedRelationCheck.delete(spillDir);
+                }
+            }
+
+            private void checkPartition(PartitionedRelationCheck.Partitions partitions, int partition, int depth,
+                                        TreeMap<Long, List<String>> duplicates) throws IOException {
+                long count = partitions.counts[partition];
+                if (count < 2)
+                    return;
+                Map<List<String>, Long> earliest = new HashMap<>();
+                boolean overflow = false;
+                try (DataInputStream in = partitions.open(partition)) {
+                    for (long i = 0; (i < count) && !overflow; i++) {
+                        long location = in.readLong();
+                        earliest.merge(partitions.readKey(in), location, Math::min);
+                        overflow = (earliest.size() > maxKeysInMemory)
+                                && (depth < PartitionedRelationCheck.MAX_DEPTH);
+                    }
+                }
+                if (overflow) {
+                    earliest = null;
+                    PartitionedRelationCheck.Partitions sub = partitions.split(partition, depth + 1);
+                    for (int p = 0; p < PartitionedRelationCheck.FAN_OUT; p++) {
+                        checkPartition(sub, p, depth + 1, duplicates);
+                    }
+                    return;
+                }
+                try (DataInputStream in = partitions.open(partition)) {
+                    for (long i = 0; i < count; i++) {
+                        long location = in.readLong();
+                        List<String> key = partitions.readKey(in);
+                        if (earliest.get(key) == location)
+                            continue;
+                        duplicates.put(location, key);
+                        if (duplicates.size() > maxErrors)
+                            duplicates.pollLastEntry();
+                    }
+                }
+            }
+
+            /*
+             Casts the key values of the rows at the locations again, in one pass over the parts holding them.
+             */
+            private Map<Long, Object[]> readKeys(Set<Long> locations) throws Exception {
+                Map<Long, Object[]> keys = new HashMap<>();
+                int currentPart = -1;
+                Iterator<String[]> rows = null;
+                int[] keyColumns = new int[columns.length];
+                long row = 0;
+                for (long location : locations) {
+                    int part = (int) (location >>> PART_SHIFT);
+                    if (part != currentPart) {
+                        PartRows source = parts.get(part).call();
+                        for (int i = 0; i < columns.length; i++) {
+                            keyColumns[i] = (null == source.headers)
+                                    ? columns[i]
+                                    : Arrays.asList(source.headers).indexOf(rules.get(columns[i]).name);
+                        }
+                        rows = source.rows;
+                        currentPart = part;
+                        row = 0;
+                    }
+                    String[] raw = null;
+                    for (; row < (location & ((1L << PART_SHIFT) - 1)); row++) {
+                        raw = rows.next();
+                    }
+                    Object[] key = new Object[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        String value = raw[keyColumns[i]];
+                        try {
+                            key[i] = rules.get(columns[i]).field.castValue(value);
+                        } catch (Exception ex) {
+                            key[i] = value;
+                        }
+                    }
+                    keys.put(location, key);
+                }
+                return keys;
+            }
+        }
+    }
+
+    /*
+     The type and constraints of a field.
+     */
+    private static final class FieldRule {
+        private final Field<?> field;
+        private final String name;
+        private final List<String> fieldNames;
+        private final boolean required;
+        private final boolean unique;
+        private final Object minimum;
+        private final Object maximum;
+        private final Integer minLength;
+        private final Integer maxLength;
+        private final Pattern pattern;
+        private final Set<String> enumValues;
+
+        private FieldRule(Field<?> field, JsonNode fieldNode, boolean inPrimaryKey) {
+            this.field = field;
+            this.name = field.getName();
+            this.fieldNames = Collections.singletonList(name);
+            JsonNode constraints = (null != fieldNode) ? fieldNode.path("constraints") : JsonUtil.getInstance().createNode();
+            this.required = inPrimaryKey || constraints.path("required").asBoolean(false);
+            this.unique = constraints.path("unique").asBoolean(false);
+            this.minimum = castConstraint(constraints.get("minimum"));
+            this.maximum = castConstraint(constraints.get("maximum"));
+            this.minLength = constraints.has("minLength") ? constraints.get("minLength").asInt() : null;
+            this.maxLength = constraints.has("maxLength") ? constraints.get("maxLength").asInt() : null;
+            this.pattern = constraints.has("pattern") ? Pattern.compile(constraints.get("pattern").asText()) : null;
+            if (constraints.has("enum") && constraints.get("enum").isArray()) {
+                enumValues = new HashSet<>();
+                constraints.get("enum").forEach((value) -> enumValues.add(String.valueOf(castConstraint(value))));
+            } else {
+                enumValues = null;
+            }
+        }
+
+        private Object castConstraint(JsonNode node) {
+            if ((null == node) || node.isNull())
+                return null;
+            try {
+                return field.castValue(node.asText());
+            } catch (Exception ex) {
+                return node.asText();
+            }
+        }
+
+        /*
+         Returns a description of the violated constraint, null if there is none.
+         */
+        private String check(String raw, Object value) {
+            if ((null != minimum) && (null != value) && (KeyIndex.compareValues(value, minimum) < 0))
+                return "value " + raw + " is less than the minimum " + minimum;
+            if ((null != maximum) && (null != value) && (KeyIndex.compareValues(value, maximum) > 0))
+                return "value " + raw + " is greater than the maximum " + maximum;
+            if ((null != minLength) || (null != maxLength)) {
+                int length = (value instanceof Collection)
+                        ? ((Collection<?>) value).size()
+                        : (value instanceof Map) ? ((Map<?, ?>) value).size() : raw.length();
+                if ((null != minLength) && (length < minLength))
+                    return "length " + length + " is less than the minimum length " + minLength;
+                if ((null != maxLength) && (length > maxLength))
+                    return "length " + length + " is greater than the maximum length " + maxLength;
+            }
+            if ((null != pattern) && !pattern.matcher(raw).matches())
+                return "value '" + raw + "' does not match the pattern " + pattern.pattern();
+            if ((null != enumValues) && !enumValues.contains(String.valueOf(value)))
+                return "value '" + raw + "' is not one of " + enumValues;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.frictionlessdata.datapackage.resource;
+
+import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
+
+import java.util.*;
+
+/**
+ * The errors found by a {@link ValidationEngine}, by Resource name. Errors in rows are
+ * {@link io.frictionlessdata.datapackage.exceptions.RowValidationException}s with the row number and
+ * the fields of the error, other errors (eg. a field missing from the headers) are
+ * {@link DataPackageValidationException}s.
+ */
+public class ValidationReport {
+    private final Map<String, List<DataPackageValidationException>> errors = new LinkedHashMap<>();
+    private final boolean aborted;
+
+    ValidationReport(Map<String, List<DataPackageValidationException>> errors, boolean aborted) {
+        errors.forEach((name, resourceErrors) -> this.errors.put(name, Collections.unmodifiableList(resourceErrors)));
+        this.aborted = aborted;
+    }
+
+    /**
+     * @return true if no errors were found
+     */
+    public boolean isValid() {
+        return errors.values().stream().allMatch(List::isEmpty);
+    }
+
+    /**
+     * @return true if validation stopped early, because the total number of errors reached the abort threshold
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * @return the names of the validated Resources
+     */
+    public Set<String> getResourceNames() {
+        return Collections.unmodifiableSet(errors.keySet());
+    }
+
+    /**
+     * @param resourceName name of a validated Resource
+     * @return the errors of the Resource in row order, empty if there are none
+     */
+    public List<DataPackageValidationException> getErrors(String resourceName) {
+        return errors.getOrDefault(resourceName, Collections.emptyList());
+    }
+
+    /**
+     * @return the errors of all Resources
+     */
+    public List<DataPackageValidationException> getErrors() {
+        List<DataPackageValidationException> all = new ArrayList<>();
+        errors.values().forEach(all::addAll);
+        return all;
+    }
+}
@@ -1,10 +1,21 @@
 package io.frictionlessdata.datapackage;
 
+import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
+import io.frictionlessdata.datapackage.exceptions.RowValidationException;
+import io.frictionlessdata.datapackage.resource.CSVDataResource;
+import io.frictionlessdata.datapackage.resource.RelationEngine;
 import io.frictionlessdata.datapackage.resource.Resource;
+import io.frictionlessdata.tableschema.schema.Schema;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
 
 public class ForeignKeysTest {
 
@@ -16,6 +27,83 @@ public class ForeignKeysTest {
         Package pkg = new Package(resourcePath, true);
         System.out.println(pkg);
         Resource teams = pkg.getResource("teams");
+        // "Munich" is not in the cities Resource
+        RowValidationException ex = Assertions.assertThrows(RowValidationException.class, teams::checkRelations);
+        Assertions.assertEquals("teams", ex.getResourceName());
+        Assertions.assertEquals(3, ex.getRowNumber());
+        Assertions.assertEquals(Collections.singletonList("city"), ex.getFieldNames());
+        Assertions.assertEquals(Collections.singletonList("Munich"), ex.getValues());
+    }
+
+    @Test
+    @DisplayName("Test resolving foreign keys between the Resources of a Package")
+    void testRelationEngine() throws Exception{
+        Path resourcePath = TestUtil.getResourcePath("/fixtures/datapackages/foreign-keys.json");
+        Package pkg = new Package(resourcePath, true);
+        Resource teams = pkg.getResource("teams");
+        List<RowValidationException> violations = pkg.getRelationEngine().findViolations(teams, 10);
+        Assertions.assertEquals(1, violations.size());
+
+        Object[] city = pkg.getRelationEngine().resolve(teams, Collections.singletonList("city"), "Madrid");
+        Assertions.assertArrayEquals(new Object[]{"Madrid", "Spain"}, city);
+        Assertions.assertNull(pkg.getRelationEngine().resolve(teams, Collections.singletonList("city"), "Munich"));
+
+        // replacing the referenced Resource drops its cached index
+        pkg.removeResource("cities");
+        pkg.addResource(new CSVDataResource("cities", "name,country\nLondon,England\nMadrid,Spain\nMunich,Germany"));
+        teams.checkRelations();
+
+        pkg.removeResource("cities");
+        Assertions.assertThrows(DataPackageValidationException.class, teams::checkRelations);
+    }
+
+    @Test
+    @DisplayName("Test checking foreign keys in partitions when the referenced keys don't fit in memory")
+    void testPartitionedRelationCheck() throws Exception{
+        Path resourcePath = TestUtil.getResourcePath("/fixtures/datapackages/foreign-keys.json");
+        Package pkg = new Package(resourcePath, true);
+        Path spillDir = Files.createTempDirectory("fk-spill");
+        pkg.getRelationEngine().setMaxKeysInMemory(1);
+        pkg.getRelationEngine().setSpillDirectory(spillDir);
+        Resource teams = pkg.getResource("teams");
+
+        RowValidationException ex = Assertions.assertThrows(RowValidationException.class, teams::checkRelations);
+        Assertions.assertEquals(3, ex.getRowNumber());
+        Assertions.assertEquals(Collections.singletonList("Munich"), ex.getValues());
+        Assertions.assertArrayEquals(new Object[]{"Madrid", "Spain"},
+                pkg.getRelationEngine().resolve(teams, Collections.singletonList("city"), "Madrid"));
+
+        pkg.removeResource("cities");
+        pkg.addResource(new CSVDataResource("cities", "name,country\nLondon,England\nMadrid,Spain\nMunich,Germany"));
         teams.checkRelations();
+        // temporary files are removed after each check
+        try (Stream<Path> files = Files.list(spillDir)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a foreign key referencing the same Resource")
+    void testSelfReference() throws Exception{
+        Resource<?,?> employees = new CSVDataResource("employees",
+                "id,name,manager\n1,Ann,\n2,Bob,1\n3,Cid,2\n4,Dan,7");
+        employees.setSchema(Schema.fromJson("{\"fields\": [" +
+                "{\"name\": \"id\", \"type\": \"integer\"}, " +
+                "{\"name\": \"name\", \"type\": \"string\"}, " +
+                "{\"name\": \"manager\", \"type\": \"integer\"}], " +
+                "\"foreignKeys\": [{\"fields\": \"manager\", \"reference\": {\"resource\": \"\", \"fields\": \"id\"}}]}",
+                true));
+        RowValidationException ex = Assertions.assertThrows(RowValidationException.class, employees::checkRelations);
+        Assertions.assertEquals(4, ex.getRowNumber());
+        Assertions.assertEquals(Arrays.asList("manager"), ex.getFieldNames());
+
+        // violations report the typed values, whether or not the referenced keys fit in memory
+        RelationEngine engine = new RelationEngine((name) -> null);
+        engine.setMaxKeysInMemory(1);
+        List<RowValidationException> spilled = engine.findViolations(employees, 10);
+        Assertions.assertEquals(1, spilled.size());
+        Assertions.assertEquals(4, spilled.get(0).getRowNumber());
+        Assertions.assertEquals(ex.getValues(), spilled.get(0).getValues());
+        Assertions.assertNotEquals(Collections.singletonList("7"), spilled.get(0).getValues());
     }
 }
@@ -15,6 +15,7 @@ import io.frictionlessdata.tableschema.util.JsonUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
@@ -22,6 +23,8 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -30,6 +33,10 @@ import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static io.frictionlessdata.datapackage.Profile.*;
 import static io.frictionlessdata.datapackage.TestUtil.getBasePath;
@@ -246,6 +253,30 @@ public class PackageTest {
                 "format properties cannot be null.", dp.getErrors().get(0).getMessage());
     }
     
+    @Test
+    @DisplayName("Build resources in parallel, keeping order and error handling")
+    public void testLoadWithExecutor() throws Exception {
+        Path pkgFile = TestUtil.getResourcePath("/fixtures/invalid_multi_data_datapackage.json");
+        String json = new String(Files.readAllBytes(pkgFile), StandardCharsets.UTF_8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Package sequential = new Package(json, getBasePath(), false);
+            Package parallel = new Package(json, getBasePath(), false, executor);
+            Assertions.assertEquals(sequential.getResourceNames(), parallel.getResourceNames());
+            Assertions.assertEquals(Arrays.asList("second-resource", "third-resource"), parallel.getResourceNames());
+            Assertions.assertEquals(1, parallel.getErrors().size());
+            Assertions.assertEquals(sequential.getErrors().get(0).getMessage(), parallel.getErrors().get(0).getMessage());
+
+            DataPackageValidationException ex = assertThrows(
+                    DataPackageValidationException.class,
+                    () -> new Package(json, getBasePath(), true, executor));
+            Assertions.assertEquals("Invalid Resource. The path property or the data and " +
+                    "format properties cannot be null.", ex.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testCreatingResourceWithInvalidPathNullValue() throws Exception {
         DataPackageException ex = assertThrows(
@@ -385,6 +416,49 @@ public class PackageTest {
         String t = new String (testData).replaceAll("[\n\r]+", "\n");
         Assertions.assertEquals(t, s);
     }
+
+    @Test
+    @DisplayName("Test streaming resource data from a non-tabular datapackage, file based")
+    public void testNonTabularPackageRawStream() throws Exception{
+        String pathName = "/fixtures/datapackages/non-tabular";
+        Path resourcePath = TestUtil.getResourcePath(pathName);
+        Package dp = new Package(resourcePath, true);
+
+        Resource<?,?> resource = dp.getResource("logo-svg");
+        byte[] rawData = (byte[])resource.getRawData();
+        byte[] streamedData;
+        try (InputStream in = resource.openRawStream();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+            streamedData = out.toByteArray();
+        }
+        Assertions.assertArrayEquals(rawData, streamedData);
+
+        // a wrong `bytes` property must not truncate the data
+        resource.setBytes(10);
+        Assertions.assertArrayEquals(rawData, (byte[])resource.getRawData());
+    }
+
+    @Test
+    @DisplayName("Test mapping resource data from a non-tabular datapackage, file based")
+    public void testNonTabularPackageRawBuffer() throws Exception{
+        String pathName = "/fixtures/datapackages/non-tabular";
+        Path resourcePath = TestUtil.getResourcePath(pathName);
+        Package dp = new Package(resourcePath, true);
+
+        FilebasedResource<?> resource = (FilebasedResource<?>)dp.getResource("logo-svg");
+        List<ByteBuffer> buffers = resource.getRawBuffer();
+        Assertions.assertEquals(1, buffers.size());
+        ByteBuffer buffer = buffers.get(0);
+        Assertions.assertTrue(buffer.isReadOnly());
+
+        byte[] mappedData = new byte[buffer.remaining()];
+        buffer.duplicate().get(mappedData);
+        Assertions.assertArrayEquals((byte[])resource.getRawData(), mappedData);
+    }
 /*
     @Test
     @DisplayName("Test getting resource data from a non-tabular datapackage, ZIP based")
@@ -526,6 +600,92 @@ public class PackageTest {
         Assertions.assertEquals("A resource with the same name already exists.", dpe.getMessage());
     }
     
+    @Test
+    @DisplayName("Added resources are validated against their own profile")
+    public void testAddResourceValidatesResourceProfile() throws Exception {
+        String pathName = "/fixtures/multi_data_datapackage.json";
+        Path sourceFileAbsPath = Paths.get(PackageTest.class.getResource(pathName).toURI());
+        String basePath = sourceFileAbsPath.getParent().toString();
+        List<File> files = new ArrayList<>();
+        for (String s : Arrays.asList("cities.csv", "cities2.csv")) {
+            files.add(new File(s));
+        }
+
+        // tabular data resources must have a schema
+        Package strictDp = this.getDataPackageFromFilePath(pathName, true);
+        Resource strictResource = Resource.build("new-resource", files, basePath, TableDataSource.getDefaultEncoding());
+        strictResource.setProfile(PROFILE_TABULAR_DATA_RESOURCE);
+        assertThrows(ValidationException.class, () -> strictDp.addResource(strictResource));
+
+        Package lenientDp = this.getDataPackageFromFilePath(pathName, false);
+        Resource lenientResource = Resource.build("new-resource", files, basePath, TableDataSource.getDefaultEncoding());
+        lenientResource.setProfile(PROFILE_TABULAR_DATA_RESOURCE);
+        lenientDp.addResource(lenientResource);
+        Assertions.assertEquals(1, lenientDp.getErrors().size());
+        Assertions.assertNotNull(lenientDp.getResource("new-resource"));
+    }
+
+    @Test
+    @DisplayName("Data resources written to a file are validated with the path of that file")
+    public void testAddResourceSerializedToFile() throws Exception {
+        Package strictDp = this.getDataPackageFromFilePath("/fixtures/multi_data_datapackage.json", true);
+        JSONDataResource<?> resource = new JSONDataResource<>("population",
+                "[{\"city\": \"london\", \"year\": 2017, \"population\": 8780000}]");
+        resource.setShouldSerializeToFile(true);
+        resource.setSerializationFormat(Resource.FORMAT_CSV);
+        strictDp.addResource(resource);
+        Assertions.assertTrue(strictDp.getErrors().isEmpty());
+        Assertions.assertNotNull(strictDp.getResource("population"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: adding and looking up resources scales linearly")
+    public void testResourceIndexScaling() throws Exception {
+        for (int count : new int[]{1_000, 10_000, 100_000}) {
+            List<Resource> resources = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                resources.add(new CSVDataResource("resource-" + i, "a,b\n1,2"));
+            }
+            long start = System.nanoTime();
+            Package dp = new Package(resources);
+            long added = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Assertions.assertSame(resources.get(i), dp.getResource("RESOURCE-" + i));
+            }
+            long looked = System.nanoTime();
+            System.out.printf("%d resources: add %d ms, lookup %d ms%n", count,
+                    (added - start) / 1_000_000, (looked - added) / 1_000_000);
+
+            Assertions.assertEquals("resource-0", dp.getResourceNames().get(0));
+            Assertions.assertEquals("resource-" + (count - 1), dp.getResourceNames().get(count - 1));
+            dp.removeResource("resource-1");
+            Assertions.assertNull(dp.getResource("resource-1"));
+            Assertions.assertEquals("resource-2", dp.getResourceNames().get(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Look up and remove resources by name")
+    public void testResourceIndex() throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            resources.add(new CSVDataResource("resource-" + i, "a,b\n1,2"));
+        }
+        Package dp = new Package(resources);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertSame(resources.get(i), dp.getResource("RESOURCE-" + i));
+        }
+        Assertions.assertNull(dp.getResource("resource-10"));
+
+        Assertions.assertEquals("resource-0", dp.getResourceNames().get(0));
+        Assertions.assertEquals("resource-9", dp.getResourceNames().get(9));
+        dp.removeResource("resource-1");
+        Assertions.assertNull(dp.getResource("resource-1"));
+        Assertions.assertEquals("resource-2", dp.getResourceNames().get(1));
+        Assertions.assertEquals(9, dp.getResources().size());
+    }
+
     @Test
     public void testAddDuplicateNameResourceWithoutStrictValidation() throws Exception{
         String pathName = "/fixtures/multi_data_datapackage.json";
@@ -559,6 +719,20 @@ public class PackageTest {
         Assertions.assertTrue(readPackageJson.equals(savedPackageJson));
     }
     
+    @Test
+    @DisplayName("Streamed descriptor is the same as the pretty-printed JSON")
+    public void testWriteJsonToWriter() throws Exception{
+        Package dp = this.getDataPackageFromFilePath(true);
+        StringWriter writer = new StringWriter();
+        dp.writeJson(writer);
+        Assertions.assertEquals(dp.getJson(), writer.toString());
+        // Resources are streamed one by one, not serialized with the Package bean
+        Assertions.assertFalse(JsonUtil.getInstance().createNode(dp).has("resources"));
+
+        Resource<?,?> resource = dp.getResources().get(0);
+        Assertions.assertEquals(createNode(resource.getJson()), resource.getJsonNode());
+    }
+
     @Test
     public void testSaveToAndReadFromZipFile() throws Exception{
         Path tempDirPath = Files.createTempDirectory("datapackage-");
@@ -611,6 +785,59 @@ public class PackageTest {
         Assertions.assertFalse(createdFile.exists());
     }
 
+    @Test
+    @DisplayName("Read data through the shared archive and release it on close")
+    public void testCloseArchivePackage() throws Exception{
+        Path tempDirPath = Files.createTempDirectory("datapackage-");
+        File createdFile = new File(tempDirPath.toFile(), "test_close_datapackage.zip");
+        Path resourcePath = TestUtil.getResourcePath("/fixtures/zip/countries-and-currencies.zip");
+        Files.copy(resourcePath, createdFile.toPath());
+
+        Package dp = new Package(createdFile.toPath(), true);
+        Assertions.assertEquals(2, dp.getResource("currencies").getData(false, false, false, false).size());
+        Assertions.assertEquals(2, dp.getResource("currencies").getData(false, false, false, false).size());
+        dp.close();
+        createdFile.delete();
+        Assertions.assertFalse(createdFile.exists());
+    }
+
+    @Test
+    @DisplayName("Read non-UTF-8 data from a ZIP file")
+    public void testReadEncodedDataFromZipFile() throws Exception{
+        Path tempDirPath = Files.createTempDirectory("datapackage-");
+        File createdFile = new File(tempDirPath.toFile(), "test_encoded_datapackage.zip");
+        String descriptor = "{\"name\":\"encoded\",\"resources\":[{\"name\":\"currencies\"," +
+                "\"path\":\"data/currencies.csv\",\"encoding\":\"ISO-8859-1\"}]}";
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(createdFile))) {
+            zos.putNextEntry(new ZipEntry("datapackage.json"));
+            zos.write(descriptor.getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("data/currencies.csv"));
+            zos.write("code,name,symbol\nGBP,Pound Sterling,\u00a3\n".getBytes(StandardCharsets.ISO_8859_1));
+            zos.closeEntry();
+        }
+
+        try (Package dp = new Package(createdFile.toPath(), true)) {
+            List<Object[]> data = dp.getResource("currencies").getData(false, false, false, false);
+            Assertions.assertEquals(1, data.size());
+            Assertions.assertArrayEquals(new String[]{"GBP", "Pound Sterling", "\u00a3"}, data.get(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Extract ZIP entries once and delete them when the archive is closed")
+    public void testArchiveExtractsEntriesOnce() throws Exception{
+        Path resourcePath = TestUtil.getResourcePath("/fixtures/zip/countries-and-currencies.zip");
+        ArchiveSession archive = new ArchiveSession(resourcePath);
+        File extracted = archive.extractToFile("data/currencies.csv", StandardCharsets.UTF_8);
+        Assertions.assertTrue(extracted.exists());
+        Assertions.assertEquals(extracted, archive.extractToFile("data/currencies.csv", StandardCharsets.UTF_8));
+
+        archive.close();
+        Assertions.assertFalse(extracted.exists());
+        Assertions.assertFalse(extracted.getParentFile().exists());
+    }
+
     // Archive file name doesn't end with ".zip"
     @Test
     @DisplayName("Read package from a ZIP file with different suffix")
@@ -675,6 +902,90 @@ public class PackageTest {
         Assertions.assertFalse(json.contains("\"imageData\""));
     }
 
+    @Test
+    @DisplayName("Write datapackage with row indexes next to the data files")
+    public void testWriteRowIndex() throws Exception{
+        List<File> files = new ArrayList<>();
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            files.add(new File (file));
+        }
+        Resource resource = new FilebasedResource("coordinates", files, getBasePath().toFile());
+        Package pkg = new Package(Collections.singletonList(resource));
+        pkg.setWriteRowIndex(true);
+        Path tempDirPath = Files.createTempDirectory("datapackage-");
+        File dir = new File (tempDirPath.toFile(), "with-index");
+        Path dirPath = Files.createDirectory(dir.toPath(), new FileAttribute[] {});
+        pkg.write(dirPath.toFile(), false);
+
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            Assertions.assertTrue(new File(dir, file + ".idx").exists());
+        }
+        Package readPackage = new Package(new File(dir, "datapackage.json").toPath(), false);
+        List<Object[]> rows = readPackage.getResource("coordinates").readRows(5, 2);
+        Assertions.assertEquals("cuidad de guatemala", rows.get(0)[0]);
+        Assertions.assertEquals("london", rows.get(1)[0]);
+    }
+
+    @Test
+    @DisplayName("Join two Resources on their foreign key, with hash and sort-merge strategies")
+    public void testJoin() throws Exception{
+        Path resourcePath = TestUtil.getResourcePath("/fixtures/datapackages/foreign-keys.json");
+        Package pkg = new Package(resourcePath, true);
+        Join join = pkg.join("teams", "cities");
+        Assertions.assertEquals(Arrays.asList("id", "name", "city", "cities.name", "country"), join.getFieldNames());
+
+        List<Object[]> hashJoined = new ArrayList<>();
+        join.iterator().forEachRemaining(hashJoined::add);
+        // Munich has no city row
+        Assertions.assertEquals(2, hashJoined.size());
+        Assertions.assertEquals("Arsenal", hashJoined.get(0)[1]);
+        Assertions.assertEquals("England", hashJoined.get(0)[4]);
+        Assertions.assertEquals("Spain", hashJoined.get(1)[4]);
+
+        // both Resources are sorted by city name
+        join.setStrategy(Join.Strategy.SORT_MERGE);
+        List<Object[]> mergeJoined = new ArrayList<>();
+        join.iterator().forEachRemaining(mergeJoined::add);
+        Assertions.assertEquals(hashJoined.size(), mergeJoined.size());
+        for (int i = 0; i < hashJoined.size(); i++) {
+            Assertions.assertArrayEquals(hashJoined.get(i), mergeJoined.get(i));
+        }
+
+        Join byName = pkg.join("teams", Collections.singletonList("name"),
+                "cities", Collections.singletonList("name"));
+        Assertions.assertFalse(byName.iterator().hasNext());
+        assertThrows(DataPackageException.class, () -> pkg.join("cities", "nonexistent"));
+    }
+
+    @Test
+    @DisplayName("Join keys of different types the same way, whichever side is hashed")
+    public void testJoinNormalizesKeys() throws Exception{
+        Resource<?,?> orders = new CSVDataResource("orders", "id,code\n1,01\n2,2\n3,x");
+        orders.setSchema(Schema.fromJson("{\"fields\": [{\"name\": \"id\", \"type\": \"integer\"}, " +
+                "{\"name\": \"code\", \"type\": \"string\"}]}", true));
+        Resource<?,?> products = new CSVDataResource("products", "code,name\n1.0,pen\n2,ink\n3,pad");
+        products.setSchema(Schema.fromJson("{\"fields\": [{\"name\": \"code\", \"type\": \"number\"}, " +
+                "{\"name\": \"name\", \"type\": \"string\"}]}", true));
+        Join join = new Join(orders, Collections.singletonList("code"), products, Collections.singletonList("code"));
+
+        // "01" joins with 1.0, and "2" with 2
+        List<Object> expected = Arrays.asList("pen", "ink");
+        orders.setBytes(10);
+        products.setBytes(100);
+        Assertions.assertEquals(expected, joinedNames(join));
+        orders.setBytes(100);
+        products.setBytes(10);
+        Assertions.assertEquals(expected, joinedNames(join));
+        join.setStrategy(Join.Strategy.SORT_MERGE);
+        Assertions.assertEquals(expected, joinedNames(join));
+    }
+
+    private static List<Object> joinedNames(Join join) throws Exception {
+        List<Object> names = new ArrayList<>();
+        join.iterator().forEachRemaining((row) -> names.add(row[3]));
+        return names;
+    }
+
     @Test
     @DisplayName("Write datapackage with an image to a ZIP file")
     public void testWriteImageToZipPackage() throws Exception{
@@ -899,6 +1210,20 @@ public class PackageTest {
         Assertions.assertNull(resObj);
     }
 
+    @Test
+    @DisplayName("Read descriptor with properties before and after the resources array")
+    public void testLoadPropertiesAroundResources() throws Exception {
+        String json = "{\"name\": \"test\", \"resources\": [" + resource1String + ", " + resource2String + "], " +
+                "\"creator\": \"Horst\", \"testprop\": {\"rate\": 83.23}}";
+        Package dp = new Package(json, getBasePath(), true);
+
+        Assertions.assertEquals(Arrays.asList("first-resource", "second-resource"), dp.getResourceNames());
+        Assertions.assertEquals("test", dp.getName());
+        Assertions.assertEquals("Horst", dp.getProperty("creator"));
+        Map testprop = (Map) dp.getProperty("testprop");
+        Assertions.assertEquals(new BigDecimal("83.23"), new BigDecimal(testprop.get("rate").toString()));
+    }
+
     @Test
     public void testBeanResource1() throws Exception {
         Package pkg = new Package(new File(getBasePath().toFile(), "datapackages/bean-iterator/datapackage.json").toPath(), true);
@@ -49,6 +49,22 @@ public class ValidatorTest {
         validator.validate(datapackageJsonString);   
     }
     
+    @Test
+    public void testValidatingRepeatedlyWithCachedProfile() throws IOException, DataPackageException{
+        JsonNode invalid = JsonUtil.getInstance().createNode("{\"invalid\" : \"json\"}");
+        JsonNode valid = JsonUtil.getInstance().createNode("{\"name\" : \"valid\", " +
+                "\"resources\" : [{\"name\" : \"first\", \"path\" : \"data/cities.csv\"}]}");
+        for (int i = 0; i < 3; i++) {
+            Validator.validate(valid, Profile.PROFILE_DATA_PACKAGE_DEFAULT);
+            try {
+                Validator.validate(invalid, Profile.PROFILE_DATA_PACKAGE_DEFAULT);
+                Assert.fail("Invalid descriptor passed validation");
+            } catch (ValidationException ex) {
+                // expected on every call, not only when the profile gets compiled
+            }
+        }
+    }
+
     @Test
     public void testValidationWithInvalidProfileId() throws Exception {
         Package dp = new Package(url, true);
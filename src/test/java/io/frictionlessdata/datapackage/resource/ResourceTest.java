@@ -2,11 +2,14 @@ package io.frictionlessdata.datapackage.resource;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.frictionlessdata.datapackage.Dialect;
 import io.frictionlessdata.datapackage.Package;
 import io.frictionlessdata.datapackage.PackageTest;
 import io.frictionlessdata.datapackage.Profile;
 import io.frictionlessdata.datapackage.exceptions.DataPackageException;
 import io.frictionlessdata.datapackage.exceptions.DataPackageValidationException;
+import io.frictionlessdata.datapackage.exceptions.RowValidationException;
+import io.frictionlessdata.tableschema.Table;
 import io.frictionlessdata.tableschema.schema.Schema;
 import io.frictionlessdata.tableschema.util.JsonUtil;
 import org.junit.jupiter.api.Assertions;
@@ -18,11 +21,22 @@ import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Year;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static io.frictionlessdata.datapackage.Profile.*;
 import static io.frictionlessdata.datapackage.TestUtil.getTestDataDirectory;
@@ -149,6 +163,596 @@ public class ResourceTest {
         }
     }
     
+    @Test
+    @DisplayName("Multi-part resources open their parts one after the other")
+    public void testIterateMultipartFilePathLazily() throws Exception{
+        List<File> files = new ArrayList<>();
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            files.add(new File (file));
+        }
+        FilebasedResource<?> resource = new FilebasedResource<>("coordinates", files, getBasePath());
+
+        PartIterator<String[]> iter = (PartIterator<String[]>) resource.stringArrayIterator();
+        Assertions.assertEquals(3, iter.getPartCount());
+        Assertions.assertEquals(-1, iter.getPartIndex());
+
+        List<Integer> partIndexes = new ArrayList<>();
+        while (iter.hasNext()) {
+            iter.next();
+            partIndexes.add(iter.getPartIndex());
+        }
+        Assertions.assertEquals(Arrays.asList(0, 0, 0, 1, 1, 1, 2, 2, 2), partIndexes);
+        // iterating must not read all tables up front
+        Assertions.assertNull(resource.tables);
+
+        iter = (PartIterator<String[]>) resource.stringArrayIterator();
+        Assertions.assertArrayEquals(new String[]{"libreville", "0.41,9.29"}, iter.next());
+        iter.skipPart();
+        Assertions.assertArrayEquals(new String[]{"barranquilla", "10.98,-74.88"}, iter.next());
+        Assertions.assertEquals(1, iter.getPartIndex());
+    }
+
+    @Test
+    @DisplayName("Test parallel reading of a multi-part Resource, ordered and unordered")
+    public void testParallelStreamMultipartFilePath() throws Exception{
+        List<File> files = new ArrayList<>();
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            files.add(new File (file));
+        }
+        FilebasedResource<?> resource = new FilebasedResource<>("coordinates", files, getBasePath());
+
+        List<String> expected = new ArrayList<>();
+        try (Stream<Object[]> rows = resource.stream()) {
+            rows.forEach((row) -> expected.add(Arrays.toString(row)));
+        }
+        Assertions.assertEquals(9, expected.size());
+        try (Stream<Object[]> rows = resource.parallelStream()) {
+            Assertions.assertEquals(expected, rows.map(Arrays::toString).collect(Collectors.toList()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            try (Stream<Object[]> rows = resource.parallelStream(executor, true)) {
+                Assertions.assertEquals(expected, rows.map(Arrays::toString).collect(Collectors.toList()));
+            }
+            try (Stream<Object[]> rows = resource.parallelStream(executor, false)) {
+                List<String> unordered = rows.map(Arrays::toString).collect(Collectors.toList());
+                Assertions.assertEquals(expected.size(), unordered.size());
+                Assertions.assertEquals(new HashSet<>(expected), new HashSet<>(unordered));
+            }
+            // abandoning the Stream early must not block
+            try (Stream<Object[]> rows = resource.parallelStream(executor, true)) {
+                Assertions.assertEquals(expected.get(0), Arrays.toString(rows.findFirst().get()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // an Executor running tasks on the calling thread must not deadlock
+        try (Stream<Object[]> rows = resource.parallelStream(Runnable::run, true)) {
+            Assertions.assertEquals(expected, rows.map(Arrays::toString).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("Test splitting a single CSV file at record boundaries for parallel parsing")
+    public void testParallelStreamSplitsSingleFile() throws Exception{
+        Path tempDir = Files.createTempDirectory("datapackage-");
+        StringBuilder csv = new StringBuilder("id,text\r\n");
+        for (int i = 0; i < 2000; i++) {
+            csv.append(i).append(',');
+            if (i % 3 == 0) {
+                // quoted values with line breaks and quotes must not be split
+                csv.append("\"multi\r\nline, \"\"quoted\"\"\"");
+            } else {
+                csv.append("plain");
+            }
+            csv.append("\r\n");
+        }
+        Files.write(tempDir.resolve("big.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        FilebasedResource<?> resource = new FilebasedResource<>("big",
+                Collections.singletonList(new File("big.csv")), tempDir.toFile());
+
+        List<String> expected = new ArrayList<>();
+        Iterator<String[]> iter = resource.stringArrayIterator(false);
+        while (iter.hasNext()) {
+            expected.add(Arrays.toString(iter.next()));
+        }
+        Assertions.assertEquals(2000, expected.size());
+
+        // small blocks and splits so the file of a few KB is cut into many ranges
+        CsvSplitSpliterator<String[]> spliterator = new CsvSplitSpliterator<>(
+                Collections.singletonList(tempDir.resolve("big.csv")), null, null, resource.getCsvFormat(),
+                StandardCharsets.UTF_8, (table) -> table.stringArrayIterator(false), null, 512, 256);
+        List<String> parallel = StreamSupport.stream(spliterator, true)
+                .map(Arrays::toString)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(expected, parallel);
+
+        // extended rows are numbered from the start of the file, not of the block they were parsed in
+        List<Object> expectedRowNumbers = new ArrayList<>();
+        Iterator<Object[]> extendedIter = resource.objectArrayIterator(true, false);
+        while (extendedIter.hasNext()) {
+            expectedRowNumbers.add(extendedIter.next()[0]);
+        }
+        CsvSplitSpliterator<Object[]> extended = new CsvSplitSpliterator<>(
+                Collections.singletonList(tempDir.resolve("big.csv")), null, null, resource.getCsvFormat(),
+                StandardCharsets.UTF_8, (table) -> (Iterator) table.iterator(false, true, true, false),
+                CsvSplitSpliterator.EXTENDED_ROWS, 512, 256);
+        List<Object> rowNumbers = StreamSupport.stream(extended, true)
+                .map((row) -> row[0])
+                .collect(Collectors.toList());
+        Assertions.assertEquals(expectedRowNumbers, rowNumbers);
+
+        try (Stream<Map<String, Object>> rows = resource.mappingStream(false)) {
+            Assertions.assertEquals(2000, rows.parallel().count());
+        }
+    }
+
+    @Test
+    @DisplayName("Test copying a multi-part Resource to a file without loading its data")
+    public void testCopyResourceToFileStreaming() throws Exception{
+        List<File> files = new ArrayList<>();
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            files.add(new File (file));
+        }
+        FilebasedResource<?> source = new FilebasedResource<>("coordinates", files, getBasePath());
+        FilebasedResource<?> copy = new FilebasedResource<>(source,
+                Collections.singletonList(new File("data/all_cities.csv")));
+        Assertions.assertNull(source.tables);
+        Assertions.assertNull(copy.tables);
+
+        Path tempDir = Files.createTempDirectory("datapackage-");
+        copy.writeData(tempDir);
+        // the data is streamed, neither Resource reads all its Tables
+        Assertions.assertNull(source.tables);
+        Assertions.assertNull(copy.tables);
+
+        List<String> lines = Files.readAllLines(tempDir.resolve("data/all_cities.csv"));
+        Assertions.assertEquals(10, lines.size());
+        Assertions.assertEquals("city,location", lines.get(0));
+        Assertions.assertEquals("libreville,\"0.41,9.29\"", lines.get(1));
+        Assertions.assertEquals("rome,\"41.89,12.51\"", lines.get(9));
+
+        // reading the Tables of the copy does not make the source hold its Tables
+        Assertions.assertEquals(3, copy.getTables().size());
+        Assertions.assertNull(source.tables);
+    }
+
+    @Test
+    @DisplayName("Test reading rows into typed column vectors")
+    public void testColumnBatchIterator() throws Exception{
+        String schemaJsonString = getFileContents("/fixtures/schema/population_schema.json");
+        Resource<?,?> resource = buildResource("/fixtures/data/population.csv");
+        resource.setSchema(Schema.fromJson(schemaJsonString, true));
+
+        Iterator<ColumnBatch> iter = resource.columnBatchIterator(2);
+        ColumnBatch batch = iter.next();
+        Assertions.assertEquals(2, batch.size());
+        Assertions.assertEquals(ColumnBatch.ColumnType.STRING, batch.getColumnType(0));
+        Assertions.assertEquals(ColumnBatch.ColumnType.LONG, batch.getColumnType(1));
+        Assertions.assertEquals(ColumnBatch.ColumnType.LONG, batch.getColumnType(2));
+        Assertions.assertEquals("london", batch.getString(0, 0));
+        Assertions.assertEquals("paris", batch.getString(0, 1));
+        Assertions.assertEquals(2017, batch.getLongs(1)[0]);
+        Assertions.assertEquals(8780000, batch.getLongs(2)[0]);
+        Assertions.assertEquals(2240000, batch.getLongs(2)[1]);
+
+        // the batch instance and its vectors are reused
+        long[] population = batch.getLongs(batch.getColumnIndex("population"));
+        Assertions.assertTrue(iter.hasNext());
+        Assertions.assertSame(batch, iter.next());
+        Assertions.assertEquals(1, batch.size());
+        Assertions.assertSame(population, batch.getLongs(2));
+        Assertions.assertEquals(2860000, population[0]);
+        Assertions.assertEquals("rome", batch.getString(0, 0));
+        Assertions.assertEquals(2, batch.getStringCodes(0)[0]);
+        Assertions.assertFalse(iter.hasNext());
+
+        Assertions.assertThrows(DataPackageException.class, () -> batch.getDoubles(2));
+    }
+
+    @Test
+    @DisplayName("Test reading numbers in the notation of their field")
+    public void testColumnBatchIteratorFieldNotation() throws Exception{
+        Resource<?,?> resource = new CSVDataResource("prices", "price\n1.000\n\"2.500,5\"\n7");
+        resource.setSchema(Schema.fromJson("{\"fields\": [{\"name\": \"price\", \"type\": \"number\", " +
+                "\"decimalChar\": \",\", \"groupChar\": \".\"}]}", true));
+
+        // "1.000" is one thousand, not one
+        ColumnBatch batch = resource.columnBatchIterator(10).next();
+        Assertions.assertEquals(3, batch.size());
+        Assertions.assertArrayEquals(new double[]{1000, 2500.5, 7}, Arrays.copyOf(batch.getDoubles(0), 3));
+        try (Stream<Object[]> rows = resource.objectArrayStream(null, RowFilter.gt("price", 100))) {
+            Assertions.assertEquals(2, rows.count());
+        }
+        FieldStatistics statistics = resource.computeStatistics().get("price");
+        Assertions.assertEquals(7.0, statistics.getMin());
+        Assertions.assertEquals(2500.5, statistics.getMax());
+
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("price", "flag")),
+                ColumnBatchIterator.getCustomNotationFields(Schema.fromJson("{\"fields\": [" +
+                "{\"name\": \"price\", \"type\": \"number\", \"bareNumber\": false}, " +
+                "{\"name\": \"amount\", \"type\": \"number\", \"decimalChar\": \".\"}, " +
+                "{\"name\": \"flag\", \"type\": \"boolean\", \"trueValues\": [\"yes\"]}, " +
+                "{\"name\": \"done\", \"type\": \"boolean\", \"falseValues\": [\"false\", \"False\", \"FALSE\", \"0\"]}]}",
+                true)));
+        Assertions.assertTrue(ColumnBatchIterator.isPlainNumber("-1.5e3"));
+        Assertions.assertFalse(ColumnBatchIterator.isPlainNumber("1d"));
+        Assertions.assertFalse(ColumnBatchIterator.isPlainNumber(" 1"));
+        Assertions.assertFalse(ColumnBatchIterator.isPlainNumber("."));
+    }
+
+    @Test
+    @DisplayName("Test reading rows with a Cursor")
+    public void testCursor() throws Exception{
+        String schemaJsonString = getFileContents("/fixtures/schema/population_schema.json");
+        Resource<?,?> resource = buildResource("/fixtures/data/population.csv");
+        resource.setSchema(Schema.fromJson(schemaJsonString, true));
+
+        List<String> cities = new ArrayList<>();
+        long total = 0;
+        try (Cursor cursor = resource.openCursor()) {
+            int city = cursor.getColumnIndex("city");
+            int population = cursor.getColumnIndex("population");
+            Assertions.assertEquals(0, cursor.getRowNumber());
+            Assertions.assertThrows(DataPackageException.class, () -> cursor.getLong(population));
+            while (cursor.next()) {
+                Assertions.assertFalse(cursor.isNull(population));
+                cities.add(cursor.getString(city));
+                total += cursor.getLong(population);
+                Assertions.assertEquals(2017, cursor.getLong(1));
+                Assertions.assertEquals("2017", cursor.getString(1));
+            }
+            Assertions.assertEquals(3, cursor.getRowNumber());
+            Assertions.assertFalse(cursor.next());
+        }
+        Assertions.assertEquals(Arrays.asList("london", "paris", "rome"), cities);
+        Assertions.assertEquals(8780000L + 2240000L + 2860000L, total);
+    }
+
+    @Test
+    @DisplayName("Test reading only selected fields")
+    public void testProjection() throws Exception{
+        String schemaJsonString = getFileContents("/fixtures/schema/population_schema.json");
+        Resource<?,?> resource = buildResource("/fixtures/data/population.csv");
+        resource.setSchema(Schema.fromJson(schemaJsonString, true));
+        List<String> fieldNames = Arrays.asList("population", "city");
+
+        Iterator<Object[]> iter = resource.objectArrayIterator(fieldNames);
+        Object[] row = iter.next();
+        Assertions.assertEquals(2, row.length);
+        Assertions.assertEquals(BigInteger.class, row[0].getClass());
+        Assertions.assertEquals(new BigInteger("8780000"), row[0]);
+        Assertions.assertEquals("london", row[1]);
+
+        try (Stream<Object[]> rows = resource.objectArrayStream(fieldNames)) {
+            Assertions.assertEquals(Arrays.asList("london", "paris", "rome"),
+                    rows.map((r) -> r[1]).collect(Collectors.toList()));
+        }
+
+        ColumnBatch batch = resource.columnBatchIterator(10, fieldNames).next();
+        Assertions.assertEquals(2, batch.getColumnCount());
+        Assertions.assertEquals(3, batch.size());
+        Assertions.assertEquals(2860000, batch.getLongs(0)[2]);
+        Assertions.assertEquals("rome", batch.getString(1, 2));
+
+        Assertions.assertThrows(DataPackageException.class,
+                () -> resource.objectArrayIterator(Collections.singletonList("area")));
+    }
+
+    @Test
+    @DisplayName("Test that selected fields honour the null sequence and report their own names")
+    public void testProjectionNullSequence() throws Exception{
+        Resource<?,?> resource = new CSVDataResource("counts", "id,name,count\n1,a,NA\n2,b,3\n3,c,x");
+        resource.setSchema(Schema.fromJson("{\"fields\": [" +
+                "{\"name\": \"id\", \"type\": \"integer\"}, " +
+                "{\"name\": \"name\", \"type\": \"string\"}, " +
+                "{\"name\": \"count\", \"type\": \"integer\"}]}", true));
+        Dialect dialect = new Dialect();
+        dialect.setNullSequence("NA");
+        resource.setDialect(dialect);
+        List<String> fieldNames = Arrays.asList("count", "id");
+
+        Iterator<Object[]> iter = resource.objectArrayIterator(fieldNames, RowFilter.isNull("count"));
+        Assertions.assertArrayEquals(new Object[]{null, BigInteger.ONE}, iter.next());
+        Assertions.assertFalse(iter.hasNext());
+
+        DataPackageException ex = Assertions.assertThrows(DataPackageException.class,
+                () -> resource.columnBatchIterator(10, fieldNames).next());
+        Assertions.assertTrue(ex.getMessage().contains("column count"), ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Test reading rows matching a filter")
+    public void testRowFilter() throws Exception{
+        String schemaJsonString = getFileContents("/fixtures/schema/population_schema.json");
+        Resource<?,?> resource = buildResource("/fixtures/data/population.csv");
+        resource.setSchema(Schema.fromJson(schemaJsonString, true));
+
+        List<Object> cities = new ArrayList<>();
+        Iterator<Object[]> iter = resource.objectArrayIterator(null, RowFilter.ge("population", 2500000));
+        while (iter.hasNext()) {
+            Object[] row = iter.next();
+            Assertions.assertEquals(3, row.length);
+            cities.add(row[0]);
+        }
+        Assertions.assertEquals(Arrays.asList("london", "rome"), cities);
+
+        RowFilter filter = RowFilter.or(
+                RowFilter.eq("city", "paris"),
+                RowFilter.and(RowFilter.lt("population", 3000000), RowFilter.not(RowFilter.isNull("year"))));
+        try (Stream<Object[]> rows = resource.objectArrayStream(Collections.singletonList("city"), filter)) {
+            Assertions.assertEquals(Arrays.asList("paris", "rome"),
+                    rows.map((r) -> r[0]).collect(Collectors.toList()));
+        }
+        try (Stream<Object[]> rows = resource.objectArrayStream(null,
+                RowFilter.where("year", (year) -> year.equals(Year.of(2017))))) {
+            Assertions.assertEquals(3, rows.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Test skipping parts ruled out by statistics when filtering")
+    public void testRowFilterSkipsParts() throws Exception{
+        List<File> files = new ArrayList<>();
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            files.add(new File (file));
+        }
+        FilebasedResource<?> resource = new FilebasedResource<>("coordinates", files, getBasePath());
+        RowFilter filter = RowFilter.ge("city", "a");
+
+        Iterator<Object[]> iter = resource.objectArrayIterator(null, filter);
+        int count = 0;
+        while (iter.hasNext()) {
+            iter.next();
+            count++;
+        }
+        Assertions.assertEquals(9, count);
+
+        // the statistics of the second part rule out any match, so it is not read
+        List<Map<String, FieldStatistics>> statistics = new ArrayList<>();
+        statistics.add(null);
+        statistics.add(Collections.singletonMap("city", new FieldStatistics(3, 0, null, null, "0", "9")));
+        statistics.add(Collections.singletonMap("city", new FieldStatistics(3, 0, null, null, "london", "rome")));
+        resource.setPartStatistics(statistics);
+
+        List<Object> cities = new ArrayList<>();
+        iter = resource.objectArrayIterator(Collections.singletonList("city"), filter);
+        while (iter.hasNext()) {
+            cities.add(iter.next()[0]);
+        }
+        Assertions.assertEquals(Arrays.asList("libreville", "dakar", "ouagadougou", "london", "paris", "rome"), cities);
+        try (Stream<Object[]> rows = resource.objectArrayStream(null, filter)) {
+            Assertions.assertEquals(6, rows.parallel().count());
+        }
+    }
+
+    @Test
+    @DisplayName("Test reading rows at an offset through the row index")
+    public void testReadRows() throws Exception{
+        List<File> files = new ArrayList<>();
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            files.add(new File (file));
+        }
+        FilebasedResource<?> cities = new FilebasedResource<>("coordinates", files, getBasePath());
+        List<Object[]> rows = cities.readRows(2, 4);
+        Assertions.assertEquals(Arrays.asList("ouagadougou", "barranquilla", "rio de janeiro", "cuidad de guatemala"),
+                rows.stream().map((r) -> r[0]).collect(Collectors.toList()));
+        Assertions.assertEquals(1, cities.readRows(8, 10).size());
+        Assertions.assertTrue(cities.readRows(9, 10).isEmpty());
+        Assertions.assertThrows(DataPackageException.class, () -> cities.readRows(-1, 1));
+
+        Path tempDir = Files.createTempDirectory("datapackage-");
+        StringBuilder csv = new StringBuilder("id,text\r\n");
+        for (int i = 0; i < 3000; i++) {
+            csv.append(i).append(',');
+            // quoted line breaks must not be counted as rows
+            csv.append((i % 3 == 0) ? "\"multi\r\nline\"" : "plain").append("\r\n");
+        }
+        Path dataFile = tempDir.resolve("big.csv");
+        Files.write(dataFile, csv.toString().getBytes(StandardCharsets.UTF_8));
+        FilebasedResource<?> resource = new FilebasedResource<>("big",
+                Collections.singletonList(new File("big.csv")), tempDir.toFile());
+        rows = resource.readRows(2046, 3);
+        Assertions.assertEquals(Arrays.asList("2046", "2047", "2048"),
+                rows.stream().map((r) -> r[0]).collect(Collectors.toList()));
+        Assertions.assertEquals("multi\r\nline", rows.get(1)[1]);
+
+        // a stored index is used, and ignored once the data changes
+        resource.writeRowIndex(tempDir);
+        Assertions.assertTrue(Files.exists(tempDir.resolve("big.csv.idx")));
+        resource = new FilebasedResource<>("big", Collections.singletonList(new File("big.csv")), tempDir.toFile());
+        Assertions.assertEquals("2999", resource.readRows(2999, 1).get(0)[0]);
+        Files.write(dataFile, "3000,appended\r\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        rows = resource.readRows(2999, 5);
+        Assertions.assertEquals(2, rows.size());
+        Assertions.assertEquals("appended", rows.get(1)[1]);
+    }
+
+    @Test
+    @DisplayName("Test looking up rows by primary key")
+    public void testLookup() throws Exception{
+        Path tempDir = Files.createTempDirectory("datapackage-");
+        StringBuilder csv = new StringBuilder("id,name\n");
+        for (int i = 0; i < 3000; i++) {
+            csv.append(i * 7).append(",name").append(i).append('\n');
+        }
+        Files.write(tempDir.resolve("lookup.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        Schema schema = Schema.fromJson("{\"fields\": [{\"name\": \"id\", \"type\": \"integer\"}, " +
+                "{\"name\": \"name\", \"type\": \"string\"}], \"primaryKey\": \"id\"}", true);
+        FilebasedResource<?> resource = new FilebasedResource<>("lookup",
+                Collections.singletonList(new File("lookup.csv")), tempDir.toFile());
+        resource.setSchema(schema);
+
+        Assertions.assertEquals("name2048", resource.lookup(2048 * 7)[1]);
+        Assertions.assertEquals("name3", resource.lookup("21")[1]);
+        Assertions.assertNull(resource.lookup(22));
+        Assertions.assertThrows(DataPackageException.class, () -> resource.lookup(1, 2));
+
+        resource.createPrimaryKeyIndex(true);
+        Assertions.assertTrue(Files.exists(tempDir.resolve("lookup.csv.pk.idx")));
+        FilebasedResource<?> reopened = new FilebasedResource<>("lookup",
+                Collections.singletonList(new File("lookup.csv")), tempDir.toFile());
+        reopened.setSchema(schema);
+        Assertions.assertEquals("name2999", reopened.lookup(2999 * 7)[1]);
+
+        // composite keys of inlined data are looked up in memory
+        String schemaJsonString = getFileContents("/fixtures/schema/population_schema.json");
+        Resource<?,?> population = new CSVDataResource("population",
+                getFileContents("/fixtures/data/population.csv"));
+        population.setSchema(Schema.fromJson(schemaJsonString.replaceFirst("\\{",
+                "{\"primaryKey\": [\"city\", \"year\"],"), true));
+        Assertions.assertEquals(new BigInteger("2240000"), population.lookup("paris", 2017)[2]);
+        Assertions.assertNull(population.lookup("paris", 2018));
+
+        population.setSchema(Schema.fromJson(schemaJsonString.replaceFirst("\\{",
+                "{\"primaryKey\": \"year\","), true));
+        Assertions.assertThrows(DataPackageValidationException.class, () -> population.lookup(2017));
+    }
+
+    @Test
+    @DisplayName("Test that repeated lookups don't read the parts again")
+    public void testLookupDoesNotRereadParts() throws Exception{
+        Path tempDir = Files.createTempDirectory("datapackage-");
+        StringBuilder csv = new StringBuilder("id,name\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append(i).append(",name").append(i).append('\n');
+        }
+        File zipFile = new File(tempDir.toFile(), "lookup.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            out.putNextEntry(new ZipEntry("data/lookup.csv"));
+            out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        Schema schema = Schema.fromJson("{\"fields\": [{\"name\": \"id\", \"type\": \"integer\"}, " +
+                "{\"name\": \"name\", \"type\": \"string\"}], \"primaryKey\": \"id\"}", true);
+
+        // entries of archives are read through the row index of the extracted file
+        AtomicInteger tablesRead = new AtomicInteger();
+        FilebasedResource<?> zipped = new FilebasedResource<Object>("lookup",
+                Collections.singletonList(new File("data/lookup.csv")), zipFile) {
+            @Override
+            Table createPartTable(File file) throws Exception {
+                tablesRead.incrementAndGet();
+                return super.createPartTable(file);
+            }
+        };
+        zipped.setIsInArchive(true);
+        zipped.setSchema(schema);
+        Assertions.assertEquals("name500", zipped.lookup(500)[1]);
+        int afterIndex = tablesRead.get();
+        for (int i = 0; i < 1000; i += 100) {
+            Assertions.assertEquals("name" + i, zipped.lookup(i)[1]);
+        }
+        Assertions.assertEquals(afterIndex, tablesRead.get());
+        zipped.close();
+
+        // inlined data keeps its rows with the index, up to the limit
+        AtomicInteger partsRead = new AtomicInteger();
+        CSVDataResource<?> inlined = new CSVDataResource<Object>("lookup", csv.toString()) {
+            @Override
+            List<Callable<Table>> getTableParts() throws Exception {
+                partsRead.incrementAndGet();
+                return super.getTableParts();
+            }
+        };
+        inlined.setSchema(schema);
+        for (int i = 0; i < 1000; i += 100) {
+            Assertions.assertEquals("name" + i, inlined.lookup(i)[1]);
+        }
+        Assertions.assertEquals(1, partsRead.get());
+        inlined.setMaxLookupRows(10);
+        Assertions.assertEquals("name999", inlined.lookup(999)[1]);
+        Assertions.assertEquals("name998", inlined.lookup(998)[1]);
+        Assertions.assertEquals(4, partsRead.get());
+    }
+
+    @Test
+    @DisplayName("Test validating all rows against the Schema")
+    public void testValidationEngine() throws Exception{
+        Resource<?,?> resource = new CSVDataResource("people",
+                "id,name,age\n1,Ann,30\n2,,40\n2,Cid,x\n4,Dan,-1\n5,Eve,50");
+        resource.setSchema(Schema.fromJson("{\"fields\": [" +
+                "{\"name\": \"id\", \"type\": \"integer\"}, " +
+                "{\"name\": \"name\", \"type\": \"string\", \"constraints\": {\"required\": true}}, " +
+                "{\"name\": \"age\", \"type\": \"integer\", \"constraints\": {\"minimum\": 0}}], " +
+                "\"primaryKey\": \"id\"}", true));
+
+        ValidationEngine engine = new ValidationEngine(null);
+        ValidationReport report = engine.validate(resource);
+        Assertions.assertFalse(report.isValid());
+        List<DataPackageValidationException> errors = report.getErrors("people");
+        Assertions.assertEquals(4, errors.size());
+        long[] rows = errors.stream().mapToLong((e) -> ((RowValidationException) e).getRowNumber()).toArray();
+        Assertions.assertArrayEquals(new long[]{2, 3, 3, 4}, rows);
+        Assertions.assertEquals(Collections.singletonList("name"), ((RowValidationException) errors.get(0)).getFieldNames());
+
+        // keys that don't fit in memory are checked in partitions, with the same errors
+        RelationEngine relationEngine = new RelationEngine((n) -> null);
+        relationEngine.setMaxKeysInMemory(1);
+        ((AbstractResource<?,?>) resource).setRelationEngine(relationEngine);
+        List<DataPackageValidationException> spilled = engine.validate(resource).getErrors("people");
+        Assertions.assertEquals(errors.size(), spilled.size());
+        for (int i = 0; i < errors.size(); i++) {
+            Assertions.assertEquals(errors.get(i).getMessage(), spilled.get(i).getMessage());
+            Assertions.assertEquals(((RowValidationException) errors.get(i)).getValues(),
+                    ((RowValidationException) spilled.get(i)).getValues());
+        }
+
+        // validation of the Resource stops at the error limit
+        engine.setMaxErrors(2);
+        Assertions.assertEquals(2, engine.validate(resource).getErrors().size());
+    }
+
+    @Test
+    @DisplayName("Test computing statistics and reading them back from the descriptor")
+    public void testComputeStatistics() throws Exception{
+        String schemaJsonString = getFileContents("/fixtures/schema/population_schema.json");
+        Resource<?,?> population = buildResource("/fixtures/data/population.csv");
+        population.setSchema(Schema.fromJson(schemaJsonString, true));
+        Assertions.assertNull(population.getStatistics());
+
+        Map<String, FieldStatistics> statistics = population.computeStatistics();
+        FieldStatistics stats = statistics.get("population");
+        Assertions.assertEquals(3, stats.getRowCount());
+        Assertions.assertEquals(0, stats.getNullCount());
+        Assertions.assertEquals(2240000.0, stats.getMin());
+        Assertions.assertEquals(8780000.0, stats.getMax());
+        Assertions.assertNull(stats.getMinValue());
+        Assertions.assertEquals(3L, stats.getDistinctCount());
+        stats = statistics.get("city");
+        Assertions.assertEquals("london", stats.getMinValue());
+        Assertions.assertEquals("rome", stats.getMaxValue());
+        Assertions.assertNull(stats.getMin());
+        Assertions.assertEquals(1L, statistics.get("year").getDistinctCount());
+
+        List<File> files = new ArrayList<>();
+        for (String file : new String[]{"data/cities.csv", "data/cities2.csv", "data/cities3.csv"}) {
+            files.add(new File (file));
+        }
+        FilebasedResource<?> resource = new FilebasedResource<>("coordinates", files, getBasePath());
+        resource.computeStatistics();
+        Assertions.assertEquals(9, resource.getStatistics().get("city").getValueCount());
+        Assertions.assertEquals(9L, resource.getStatistics().get("city").getDistinctCount());
+        Assertions.assertEquals(3, resource.getPartStatistics().size());
+        Assertions.assertEquals("london", resource.getPartStatistics().get(2).get("city").getMinValue());
+
+        // the statistics are kept in the descriptor and prune parts without scanning the data again
+        ObjectNode json = resource.getJsonNode();
+        Assertions.assertTrue(json.has("statistics"));
+        Resource<?,?> restored = Resource.build(json, getBasePath().toPath(), false);
+        Assertions.assertEquals(9L, restored.getStatistics().get("city").getDistinctCount());
+        Assertions.assertEquals("barranquilla", restored.getStatistics().get("city").getMinValue());
+        Assertions.assertEquals("rome", restored.getStatistics().get("city").getMaxValue());
+        List<Object> cities = new ArrayList<>();
+        Iterator<Object[]> iter = restored.objectArrayIterator(
+                Collections.singletonList("city"), RowFilter.ge("city", "p"));
+        while (iter.hasNext()) {
+            cities.add(iter.next()[0]);
+        }
+        Assertions.assertEquals(Arrays.asList("rio de janeiro", "paris", "rome"), cities);
+    }
+
     @Test
     public void testIterateDataFromMultipartURLPath() throws Exception{
         List<String[]> expectedData  = new ArrayList();